@@ -15,20 +15,31 @@ import javax.ws.rs.ext.Provider;
 
 /**
  * Updates JSONB config to use a naming convention when interacting with objects
- * that match the API best practices set by internal documentation.
+ * that match the API best practices set by internal documentation. JSON-B
+ * instances are thread safe and costly to create, so a single instance is
+ * shared for all types.
  * 
  * @author Martin Lowe
  */
 @Provider
 public class JsonBConfig implements ContextResolver<Jsonb> {
+	private static final Jsonb JSONB = JsonbBuilder.create(configure(new JsonbConfig()));
 
 	@Override
 	public Jsonb getContext(Class<?> type) {
-		JsonbConfig config = new JsonbConfig();
+		return JSONB;
+	}
 
+	/**
+	 * Applies the naming convention and date format of the API to the passed
+	 * configuration.
+	 * 
+	 * @param config the configuration to update
+	 * @return the updated configuration
+	 */
+	public static JsonbConfig configure(JsonbConfig config) {
 		// following strategy is defined as default by internal API guidelines
-		config.withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES)
+		return config.withPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CASE_WITH_UNDERSCORES)
 				.withDateFormat("uuuu-MM-dd'T'HH:mm:ssXXX", null);
-		return JsonbBuilder.create(config);
 	}
 }
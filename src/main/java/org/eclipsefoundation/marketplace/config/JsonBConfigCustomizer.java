@@ -0,0 +1,28 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.config;
+
+import javax.inject.Singleton;
+import javax.json.bind.JsonbConfig;
+
+import io.quarkus.jsonb.JsonbConfigCustomizer;
+
+/**
+ * Applies the API naming convention to the JSON-B instance available for
+ * injection, so that injected instances serialize the same way as response
+ * bodies.
+ * 
+ * @author Martin Lowe
+ */
+@Singleton
+public class JsonBConfigCustomizer implements JsonbConfigCustomizer {
+
+	@Override
+	public void customize(JsonbConfig config) {
+		JsonBConfig.configure(config);
+	}
+}
@@ -9,9 +9,14 @@ package org.eclipsefoundation.marketplace.dao;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
 
+import org.bson.Document;
 import org.eclipsefoundation.marketplace.health.BeanHealth;
+import org.eclipsefoundation.marketplace.model.BulkWriteSummary;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.reactivestreams.Publisher;
 
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.result.DeleteResult;
 
 /**
@@ -30,16 +35,39 @@ public interface MongoDao extends BeanHealth {
 	 */
 	<T> CompletionStage<List<T>> get(MongoQuery<T> q);
 
+	/**
+	 * Retrieves a page of typed results given the query passed, along with the
+	 * total number of documents that match the query filters. Both are retrieved
+	 * in a single round trip to the database.
+	 * 
+	 * @param q the query object for the current operation
+	 * @return a future page of results of the type set in query, along with the
+	 *         total number of matching documents
+	 */
+	<T> CompletionStage<PaginatedResult<T>> getWithTotal(MongoQuery<T> q);
+
+	/**
+	 * Retrieves typed results given the query passed as a stream of results, with
+	 * results being retrieved from the database as they are requested by the
+	 * subscriber.
+	 * 
+	 * @param q the query object for the current operation
+	 * @return a publisher of results of the type set in query
+	 */
+	<T> Publisher<T> stream(MongoQuery<T> q);
+
 	/**
 	 * Adds a list of typed documents to the currently active database and schema,
-	 * using the query object to access the document type.
+	 * using the query object to access the document type. Documents are written
+	 * independently of each other, so a failure to write one document does not
+	 * stop the others from being written.
 	 * 
 	 * @param <T>       the type of document to post
 	 * @param q         the query object for the current operation
 	 * @param documents the list of typed documents to add to the database instance.
-	 * @return a future Void result indicating success on return.
+	 * @return a future summary of the documents written and any failures.
 	 */
-	<T> CompletionStage<Void> add(MongoQuery<T> q, List<T> documents);
+	<T> CompletionStage<BulkWriteSummary> add(MongoQuery<T> q, List<T> documents);
 
 	/**
 	 * Deletes documents that match the given query.
@@ -60,4 +88,33 @@ public interface MongoDao extends BeanHealth {
 	 *         the given query and docuement type.
 	 */
 	<T> CompletionStage<Long> count(MongoQuery<T> q);
+
+	/**
+	 * Runs the aggregation pipeline of the given query through the explain command,
+	 * returning the execution statistics of the query plan.
+	 * 
+	 * @param <T> the type of document being queried
+	 * @param q   the query object for the current operation
+	 * @return a future explain result as returned by MongoDB
+	 */
+	<T> CompletionStage<Document> explain(MongoQuery<T> q);
+
+	/**
+	 * Creates the given indexes on the collection for the given document type.
+	 * Indexes that already exist with the same definition are left as is.
+	 * 
+	 * @param <T>     the type of document the indexes are for
+	 * @param type    the class of the document type
+	 * @param indexes the index declarations to create
+	 * @return a future list of the names of the created indexes
+	 */
+	<T> CompletionStage<List<String>> createIndexes(Class<T> type, List<IndexModel> indexes);
+
+	/**
+	 * Retrieves the indexes that exist on the given collection.
+	 * 
+	 * @param collection the name of the collection
+	 * @return a future list of index descriptions as returned by MongoDB
+	 */
+	CompletionStage<List<Document>> getIndexes(String collection);
 }
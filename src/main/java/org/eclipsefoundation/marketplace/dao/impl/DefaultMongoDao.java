@@ -7,32 +7,75 @@
 package org.eclipsefoundation.marketplace.dao.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
 import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.reactive.streams.operators.PublisherBuilder;
+import org.eclipse.microprofile.reactive.streams.operators.ReactiveStreams;
 import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.exception.MaintenanceException;
+import org.eclipsefoundation.marketplace.exception.QueryTimeoutException;
+import org.eclipsefoundation.marketplace.model.BulkWriteSummary;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
 import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
 import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.QueryCoalescingService;
+import org.eclipsefoundation.marketplace.service.SlowQueryService;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 
+import io.quarkus.mongodb.AggregateOptions;
 import io.quarkus.mongodb.ReactiveMongoClient;
 import io.quarkus.mongodb.ReactiveMongoCollection;
 
@@ -44,6 +87,9 @@ import io.quarkus.mongodb.ReactiveMongoCollection;
 @ApplicationScoped
 public class DefaultMongoDao implements MongoDao {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMongoDao.class);
+	private static final String RESULTS_FACET = "results";
+	private static final String TOTAL_FACET = "total";
+	private static final String COUNT = "count";
 
 	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_DB_NAME)
 	String databaseName;
@@ -57,12 +103,25 @@ public class DefaultMongoDao implements MongoDao {
 	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_MAINTENANCE_FLAG, defaultValue = "false")
 	boolean maintenanceFlag;
 
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_BULK_CHUNK_SIZE, defaultValue = "1000")
+	int bulkChunkSize;
+
 	@Inject
 	Instance<CodecProvider> providers;
 
 	@Inject
 	ReactiveMongoClient mongoClient;
 
+	@Inject
+	SlowQueryService slowQueries;
+
+	@Inject
+	QueryCoalescingService coalescer;
+
+	private CodecRegistry codecRegistry;
+	private final Map<String, ReadPreference> readPreferences = new ConcurrentHashMap<>();
+	private final Map<String, Long> maxTimes = new ConcurrentHashMap<>();
+
 	@Override
 	public <T> CompletionStage<List<T>> get(MongoQuery<T> q) {
 		if (maintenanceFlag) {
@@ -74,18 +133,73 @@ public class DefaultMongoDao implements MongoDao {
 
 		LOGGER.debug("Getting aggregate results");
 		// build base query
-		PublisherBuilder<T> builder = getCollection(q.getDocType()).aggregate(q.getPipeline(getLimit(q)),
-				q.getDocType());
+		List<Bson> pipeline = q.getPipeline(getLimit(q));
+		ReadPreference readPreference = getReadPreference(q, "get");
+		long maxTime = getMaxTime(q, "get");
 		// check if result set should be limited
-		if (q.getDTOFilter().useLimit()) {
-			builder = builder.limit(getLimit(q));
+		int limit = q.getDTOFilter().useLimit() ? getLimit(q) : 0;
+		// run the query, sharing the results with identical queries already in flight
+		return coalescer.coalesce(getCoalescingKey("get", q, readPreference, maxTime, pipeline),
+				() -> timed("get", q, () -> read(q, pipeline, q.getDocType(), readPreference, maxTime, limit)
+						.thenApply(results -> results.stream().distinct().collect(Collectors.toList()))));
+	}
+
+	@Override
+	public <T> CompletionStage<PaginatedResult<T>> getWithTotal(MongoQuery<T> q) {
+		if (maintenanceFlag) {
+			throw new MaintenanceException();
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Querying MongoDB for page and total using the following query: {}", q);
 		}
-		// run the query
-		return builder.distinct().toList().run();
+
+		// filter once, then split into the current page and a count of all matches
+		List<Bson> pipeline = q.getFilterPipeline();
+		pipeline.add(Aggregates.facet(new Facet(RESULTS_FACET, q.getPagePipeline(getLimit(q))),
+				new Facet(TOTAL_FACET, Aggregates.count(TOTAL_FACET))));
+		ReadPreference readPreference = getReadPreference(q, "getWithTotal");
+		long maxTime = getMaxTime(q, "getWithTotal");
+		// run the query, sharing the page with identical queries already in flight
+		return coalescer.coalesce(getCoalescingKey("getWithTotal", q, readPreference, maxTime, pipeline),
+				() -> timed("getWithTotal", q, () -> read(q, pipeline, BsonDocument.class, readPreference, maxTime, 1))
+						.thenApply(docs -> convertFacetResult(docs.isEmpty() ? null : docs.get(0), q)));
+	}
+
+	@Override
+	public <T> Publisher<T> stream(MongoQuery<T> q) {
+		if (maintenanceFlag) {
+			throw new MaintenanceException();
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Streaming results from MongoDB using the following query: {}", q);
+		}
+		List<Bson> pipeline = q.getPipeline(getLimit(q));
+		ReadPreference readPreference = getReadPreference(q, "stream");
+		long maxTime = getMaxTime(q, "stream");
+		PublisherBuilder<T> builder;
+		if (ReadPreference.primary().equals(readPreference) || !q.getDTOFilter().useLimit()) {
+			builder = getCollection(q.getCollectionName(), q.getDocType()).aggregate(pipeline, q.getDocType(),
+					getAggregateOptions(maxTime));
+			if (q.getDTOFilter().useLimit()) {
+				builder = builder.limit(getLimit(q));
+			}
+		} else {
+			// reads away from the primary return a single batch, which is read once the
+			// stream is subscribed to
+			builder = ReactiveStreams.of(pipeline)
+					.flatMapCompletionStage(p -> read(q, p, q.getDocType(), readPreference, maxTime, getLimit(q)))
+					.flatMapIterable(results -> results);
+		}
+		// only random samples can contain duplicates, and distinct holds all results
+		if (q.isSampled()) {
+			builder = builder.distinct();
+		}
+		long start = System.nanoTime();
+		return builder.onTerminate(() -> slowQueries.record("stream", q, getElapsedMillis(start))).buildRs();
 	}
 
 	@Override
-	public <T> CompletionStage<Void> add(MongoQuery<T> q, List<T> documents) {
+	public <T> CompletionStage<BulkWriteSummary> add(MongoQuery<T> q, List<T> documents) {
 		if (maintenanceFlag) {
 			throw new MaintenanceException();
 		}
@@ -96,21 +210,87 @@ public class DefaultMongoDao implements MongoDao {
 		// set up upserting to not fail on updates
 		ReplaceOptions ro = new ReplaceOptions().upsert(true).bypassDocumentValidation(true);
 
-		// maintain a list of updates
-		List<CompletionStage<?>> stages = new ArrayList<>(documents.size());
+		// convert the documents into write operations
+		List<WriteModel<T>> writes = new ArrayList<>(documents.size());
 		Bson filter = q.getFilter();
 		for (T doc : documents) {
 			if (filter == null) {
-				stages.add(getCollection(q.getDocType()).insertOne(doc));
+				writes.add(new InsertOneModel<>(doc));
 			} else {
-				stages.add(getCollection(q.getDocType()).replaceOne(filter, doc, ro));
+				writes.add(new ReplaceOneModel<>(filter, doc, ro));
 			}
 		}
 
-		// convert the stages to futures, and wrap them in a completable future
-		List<CompletableFuture<?>> all = stages.stream().map(CompletionStage::toCompletableFuture)
-				.collect(Collectors.toList());
-		return CompletableFuture.allOf(all.toArray(new CompletableFuture[all.size()]));
+		// write the chunks one after another, collecting the results as they return
+		BulkWriteSummary summary = new BulkWriteSummary();
+		CompletionStage<BulkWriteSummary> stage = CompletableFuture.completedFuture(summary);
+		int chunkSize = Math.max(1, bulkChunkSize);
+		for (int offset = 0; offset < writes.size(); offset += chunkSize) {
+			List<WriteModel<T>> chunk = writes.subList(offset, Math.min(offset + chunkSize, writes.size()));
+			int chunkOffset = offset;
+			stage = stage.thenCompose(s -> writeChunk(q.getDocType(), chunk, chunkOffset, s));
+		}
+		CompletionStage<BulkWriteSummary> out = stage.thenApply(s -> addWrittenIds(q.getDocType(), documents, s));
+		return timed("add", q, () -> out);
+	}
+
+	/**
+	 * Adds the IDs of the documents that were written to the summary. IDs that
+	 * weren't set are generated by the codec of the type while inserting, so they
+	 * are read from the documents once the writes complete.
+	 * 
+	 * @param type      the type of document written
+	 * @param documents the documents passed to be written
+	 * @param summary   the summary of the writes
+	 * @return the summary with the IDs of the written documents
+	 */
+	private <T> BulkWriteSummary addWrittenIds(Class<T> type, List<T> documents, BulkWriteSummary summary) {
+		Codec<T> codec = getCodecRegistry().get(type);
+		if (!(codec instanceof CollectibleCodec)) {
+			return summary;
+		}
+		CollectibleCodec<T> collectible = (CollectibleCodec<T>) codec;
+		Set<Integer> failed = summary.getFailures().stream().map(BulkWriteSummary.Failure::getIndex)
+				.collect(Collectors.toSet());
+		for (int i = 0; i < documents.size(); i++) {
+			T doc = documents.get(i);
+			if (!failed.contains(i) && collectible.documentHasId(doc)) {
+				BsonValue id = collectible.getDocumentId(doc);
+				summary.addWrittenId(id.isString() ? id.asString().getValue()
+						: id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString());
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Writes a chunk of operations as an unordered bulk write, adding the results
+	 * and any write errors to the summary.
+	 * 
+	 * @param type    the type of document being written
+	 * @param chunk   the write operations for the current chunk
+	 * @param offset  the index of the first operation of the chunk in the full
+	 *                list of operations
+	 * @param summary the summary to add the results to
+	 * @return a future summary updated with the results of the chunk
+	 */
+	private <T> CompletionStage<BulkWriteSummary> writeChunk(Class<T> type, List<WriteModel<T>> chunk, int offset,
+			BulkWriteSummary summary) {
+		return getCollection(type).bulkWrite(chunk, new BulkWriteOptions().ordered(false))
+				.handle((result, e) -> {
+					if (e == null) {
+						return summary.add(result);
+					}
+					// partial failures report what was written along with the failed writes
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof MongoBulkWriteException) {
+						MongoBulkWriteException ex = (MongoBulkWriteException) cause;
+						LOGGER.warn("{} of {} documents of type {} could not be written", ex.getWriteErrors().size(),
+								chunk.size(), type.getSimpleName());
+						return summary.add(ex.getWriteResult()).addErrors(ex.getWriteErrors(), offset);
+					}
+					throw new CompletionException(cause);
+				});
 	}
 
 	@Override
@@ -121,7 +301,7 @@ public class DefaultMongoDao implements MongoDao {
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("Removing documents from MongoDB using the following query: {}", q);
 		}
-		return getCollection(q.getDocType()).deleteMany(q.getFilter());
+		return timed("delete", q, () -> getCollection(q.getDocType()).deleteMany(q.getFilter()));
 	}
 
 	@Override
@@ -132,7 +312,49 @@ public class DefaultMongoDao implements MongoDao {
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("Counting documents in MongoDB that match the following query: {}", q);
 		}
-		return getCollection(q.getDocType()).countDocuments(q.getFilter());
+		ReadPreference readPreference = getReadPreference(q, "count");
+		Bson filter = q.getFilter() == null ? new BsonDocument() : q.getFilter();
+		long maxTime = getMaxTime(q, "count");
+		// count with the same stages that are used to count documents by the driver
+		List<Bson> pipeline = Arrays.asList(Aggregates.match(filter), Aggregates.count(COUNT));
+		return coalescer.coalesce(
+				getCoalescingKey("count", q, readPreference, maxTime, Collections.singletonList(filter)),
+				() -> timed("count", q, () -> read(q, pipeline, BsonDocument.class, readPreference, maxTime, 1))
+						.thenApply(docs -> docs.isEmpty() ? 0L : docs.get(0).getNumber(COUNT).longValue()));
+	}
+
+	@Override
+	public <T> CompletionStage<Document> explain(MongoQuery<T> q) {
+		if (maintenanceFlag) {
+			throw new MaintenanceException();
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Explaining the following query: {}", q);
+		}
+		BsonDocument aggregate = getAggregateCommand(q, q.getPipeline(getLimit(q)), new BsonDocument());
+		BsonDocument command = new BsonDocument("explain", aggregate).append("verbosity",
+				new BsonString("executionStats"));
+		// run the explain against the same nodes the query would be routed to
+		return mongoClient.getDatabase(databaseName).runCommand(command, getReadPreference(q, "explain"));
+	}
+
+	@Override
+	public <T> CompletionStage<List<String>> createIndexes(Class<T> type, List<IndexModel> indexes) {
+		if (maintenanceFlag) {
+			throw new MaintenanceException();
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Creating {} indexes in MongoDB for type {}", indexes.size(), type.getSimpleName());
+		}
+		return getCollection(type).createIndexes(indexes);
+	}
+
+	@Override
+	public CompletionStage<List<Document>> getIndexes(String collection) {
+		if (maintenanceFlag) {
+			throw new MaintenanceException();
+		}
+		return mongoClient.getDatabase(databaseName).getCollection(collection).listIndexes().toList().run();
 	}
 
 	@Override
@@ -144,11 +366,325 @@ public class DefaultMongoDao implements MongoDao {
 		return b.up().build();
 	}
 
+	/**
+	 * Converts the raw document returned by the $facet stage into a typed page of
+	 * results, decoding the documents using the registered codecs.
+	 * 
+	 * @param doc the document returned by the $facet stage
+	 * @param q   the query object for the current operation
+	 * @return the typed page of results with the total count of matches
+	 */
+	private <T> PaginatedResult<T> convertFacetResult(BsonDocument doc, MongoQuery<T> q) {
+		if (doc == null) {
+			return new PaginatedResult<>(Collections.emptyList(), 0);
+		}
+		// get the codec for the current type to decode the nested documents
+		Codec<T> codec = getCodecRegistry().get(q.getDocType());
+		DecoderContext context = DecoderContext.builder().build();
+		List<T> results = doc.getArray(RESULTS_FACET, new BsonArray()).stream()
+				.map(v -> codec.decode(new BsonDocumentReader(v.asDocument()), context)).distinct()
+				.collect(Collectors.toList());
+		// count stage returns no documents when there are no matches
+		BsonArray total = doc.getArray(TOTAL_FACET, new BsonArray());
+		long count = total.isEmpty() ? 0 : total.get(0).asDocument().getNumber(TOTAL_FACET).longValue();
+		// apply the limit to the results as is done for regular queries
+		if (q.getDTOFilter().useLimit() && results.size() > getLimit(q)) {
+			results = results.subList(0, getLimit(q));
+		}
+		return new PaginatedResult<>(results, count);
+	}
+
+	private CodecRegistry getCodecRegistry() {
+		if (codecRegistry == null) {
+			List<CodecProvider> all = new ArrayList<>();
+			providers.forEach(all::add);
+			codecRegistry = all.isEmpty() ? MongoClient.getDefaultCodecRegistry()
+					: CodecRegistries.fromRegistries(CodecRegistries.fromProviders(all),
+							MongoClient.getDefaultCodecRegistry());
+		}
+		return codecRegistry;
+	}
+
+	/**
+	 * Runs the operation, recording its duration with the slow query service once
+	 * it completes.
+	 * 
+	 * @param operation the name of the operation
+	 * @param q         the query object for the current operation
+	 * @param op        supplier that starts the operation
+	 * @return the future result of the operation
+	 */
+	private <R> CompletionStage<R> timed(String operation, MongoQuery<?> q, Supplier<CompletionStage<R>> op) {
+		long start = System.nanoTime();
+		return op.get().whenComplete((r, e) -> slowQueries.record(operation, q, getElapsedMillis(start)))
+				.handle((r, e) -> {
+					if (e == null) {
+						return r;
+					}
+					// operations that ran out of time are reported as timeouts
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof MongoExecutionTimeoutException) {
+						throw new QueryTimeoutException(
+								"Operation " + operation + " exceeded its time budget: " + q.getFingerprint(),
+								isDeadlinePassed(q), cause);
+					}
+					throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+				});
+	}
+
+	/**
+	 * Creates the aggregate options for the query, limiting the time the
+	 * aggregation can run for to the budget of the operation.
+	 * 
+	 * @param maxTime the time budget of the operation in milliseconds, or 0 if
+	 *                there is no limit
+	 * @return the options for the aggregation
+	 */
+	private static AggregateOptions getAggregateOptions(long maxTime) {
+		AggregateOptions options = new AggregateOptions();
+		if (maxTime > 0) {
+			options.maxTime(maxTime, TimeUnit.MILLISECONDS);
+		}
+		return options;
+	}
+
+	/**
+	 * Retrieves the time budget for the query, which is the configured budget for
+	 * the type and operation capped by the time left before the client deadline.
+	 * 
+	 * @param q         the query object for the current operation
+	 * @param operation the name of the operation
+	 * @return the time budget in milliseconds, or 0 if there is no limit
+	 * @throws QueryTimeoutException if the client deadline has already passed
+	 */
+	private <T> long getMaxTime(MongoQuery<T> q, String operation) {
+		String tableName = getConfigName(q);
+		long budget = maxTimes.computeIfAbsent(tableName + '.' + operation,
+				k -> getConfiguredMaxTime(tableName, operation));
+		Optional<Long> remaining = q.getRemainingMillis();
+		if (!remaining.isPresent() || (budget > 0 && budget <= remaining.get())) {
+			return budget;
+		}
+		if (remaining.get() <= 0) {
+			throw new QueryTimeoutException(
+					"Deadline passed before " + operation + " could start: " + q.getFingerprint(), true, null);
+		}
+		return remaining.get();
+	}
+
+	/**
+	 * Resolves the time budget for the given table and operation from
+	 * configuration, using the most specific of the operation, table, and default
+	 * settings.
+	 * 
+	 * @param tableName the name of the table being read
+	 * @param operation the name of the operation
+	 * @return the configured budget in milliseconds, or 0 if there is no limit
+	 */
+	private long getConfiguredMaxTime(String tableName, String operation) {
+		String tableKey = MicroprofilePropertyNames.MONGODB_MAX_TIME + '.' + tableName;
+		Optional<String> value = getFirstValue(ConfigProvider.getConfig(), tableKey + '.' + operation, tableKey,
+				MicroprofilePropertyNames.MONGODB_MAX_TIME);
+		try {
+			return value.isPresent() ? Math.max(0, Long.parseLong(value.get())) : 0;
+		} catch (NumberFormatException e) {
+			LOGGER.error("Invalid time budget '{}' configured for '{}', no limit will be used", value.get(), tableName,
+					e);
+			return 0;
+		}
+	}
+
+	private static boolean isDeadlinePassed(MongoQuery<?> q) {
+		return q.getRemainingMillis().map(remaining -> remaining <= 0).orElse(false);
+	}
+
+	/**
+	 * Builds the canonical key for a read operation, used to collapse identical
+	 * operations that are in flight at the same time. The key contains every input
+	 * that affects the results of the operation, including its time budget. As the
+	 * budget is capped by the deadline of the client, operations with a shorter
+	 * deadline than the configured budget aren't shared with other callers, which
+	 * would otherwise fail early or wait past their own deadline.
+	 * 
+	 * @param operation      the name of the read operation
+	 * @param q              the query object for the current operation
+	 * @param readPreference the read preference the operation is routed with
+	 * @param maxTime        the time budget of the operation in milliseconds
+	 * @param stages         the stages or filters sent to MongoDB
+	 * @return the canonical key for the operation
+	 */
+	private <T> String getCoalescingKey(String operation, MongoQuery<T> q, ReadPreference readPreference,
+			long maxTime, List<Bson> stages) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(operation).append('|').append(q.getDocType().getName());
+		sb.append('|').append(q.getCollectionName());
+		sb.append('|').append(readPreference.getName());
+		sb.append('|').append(maxTime);
+		if (q.getDTOFilter().useLimit()) {
+			sb.append('|').append(getLimit(q));
+		}
+		sb.append('|');
+		stages.forEach(
+				bson -> sb.append(bson.toBsonDocument(BsonDocument.class, getCodecRegistry()).toJson()).append(','));
+		return sb.toString();
+	}
+
+	private static long getElapsedMillis(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
 	private <T> int getLimit(MongoQuery<T> q) {
 		return q.getLimit() > 0 ? Math.min(q.getLimit(), defaultMax) : defaultLimit;
 	}
 
+	/**
+	 * Retrieves the read preference configured for the table and operation of
+	 * the query.
+	 * 
+	 * @param q         the query object for the current operation
+	 * @param operation the name of the read operation
+	 * @return the read preference to route the operation with
+	 */
+	private <T> ReadPreference getReadPreference(MongoQuery<T> q, String operation) {
+		if (q.isPrimaryRequired()) {
+			return ReadPreference.primary();
+		}
+		String tableName = getConfigName(q);
+		return readPreferences.computeIfAbsent(tableName + '.' + operation,
+				k -> getReadPreference(tableName, operation));
+	}
+
+	/**
+	 * Reads the results of the pipeline, routed with the given read preference.
+	 * The reactive client can't change the read preference of a collection, so
+	 * reads that don't go to the primary are run as a single aggregate command,
+	 * which takes the read preference per call. Only the first batch of such a
+	 * command is read, as later batches must come from the same node, so reads
+	 * whose results don't fit in one batch are run on the primary instead. Reads
+	 * that aren't limited always use the primary.
+	 * 
+	 * @param q              the query object for the current operation
+	 * @param pipeline       the stages of the aggregation
+	 * @param type           the type to decode the results into
+	 * @param readPreference the read preference to route the operation with
+	 * @param maxTime        the time budget of the operation in milliseconds
+	 * @param limit          the maximum number of results, or 0 for no limit
+	 * @return the future results of the aggregation
+	 */
+	private <R> CompletionStage<List<R>> read(MongoQuery<?> q, List<Bson> pipeline, Class<R> type,
+			ReadPreference readPreference, long maxTime, int limit) {
+		if (ReadPreference.primary().equals(readPreference) || limit <= 0) {
+			return readPrimary(q, pipeline, type, maxTime, limit);
+		}
+		List<Bson> limited = new ArrayList<>(pipeline);
+		limited.add(Aggregates.limit(limit));
+		// one more than the limit, so that a batch holding all results is never full
+		BsonDocument command = getAggregateCommand(q, limited,
+				new BsonDocument("batchSize", new BsonInt32(limit + 1)));
+		if (maxTime > 0) {
+			command.append("maxTimeMS", new BsonInt64(maxTime));
+		}
+		return mongoClient.getDatabase(databaseName).runCommand(command, readPreference, BsonDocument.class)
+				.thenCompose(result -> {
+					BsonDocument cursor = result.getDocument("cursor");
+					if (cursor.getNumber("id").longValue() != 0) {
+						LOGGER.debug("Results for {} don't fit in a single batch, reading from the primary",
+								q.getFingerprint());
+						return readPrimary(q, pipeline, type, maxTime, limit);
+					}
+					Codec<R> codec = getCodecRegistry().get(type);
+					DecoderContext context = DecoderContext.builder().build();
+					return CompletableFuture.completedFuture(cursor.getArray("firstBatch").stream()
+							.map(v -> codec.decode(new BsonDocumentReader(v.asDocument()), context))
+							.collect(Collectors.toList()));
+				});
+	}
+
+	private <R> CompletionStage<List<R>> readPrimary(MongoQuery<?> q, List<Bson> pipeline, Class<R> type,
+			long maxTime, int limit) {
+		PublisherBuilder<R> builder = getCollection(q.getCollectionName(), type).aggregate(pipeline, type,
+				getAggregateOptions(maxTime));
+		if (limit > 0) {
+			builder = builder.limit(limit);
+		}
+		return builder.toList().run();
+	}
+
+	/**
+	 * Builds the aggregate command for the pipeline of the query, converting the
+	 * stages to raw BSON to be embedded in the command.
+	 * 
+	 * @param q        the query object for the current operation
+	 * @param pipeline the stages of the aggregation
+	 * @param cursor   the cursor options of the command
+	 * @return the aggregate command
+	 */
+	private BsonDocument getAggregateCommand(MongoQuery<?> q, List<Bson> pipeline, BsonDocument cursor) {
+		BsonArray stages = new BsonArray(pipeline.stream()
+				.map(bson -> bson.toBsonDocument(BsonDocument.class, getCodecRegistry())).collect(Collectors.toList()));
+		return new BsonDocument("aggregate", new BsonString(q.getCollectionName())).append("pipeline", stages)
+				.append("cursor", cursor);
+	}
+
+	/**
+	 * Resolves the read preference for the given table and operation from
+	 * configuration. The most specific of the operation, table, and default
+	 * settings is used, falling back on reading from the primary.
+	 * 
+	 * @param tableName the name of the table being read
+	 * @param operation the name of the read operation
+	 * @return the read preference to use
+	 */
+	private ReadPreference getReadPreference(String tableName, String operation) {
+		Config config = ConfigProvider.getConfig();
+		String tableKey = MicroprofilePropertyNames.MONGODB_READ_PREFERENCE + '.' + tableName;
+		Optional<String> name = getFirstValue(config, tableKey + '.' + operation, tableKey,
+				MicroprofilePropertyNames.MONGODB_READ_PREFERENCE);
+		if (!name.isPresent() || ReadPreference.primary().getName().equalsIgnoreCase(name.get())) {
+			return ReadPreference.primary();
+		}
+		Optional<String> staleness = getFirstValue(config, tableKey + '.' + MicroprofilePropertyNames.MONGODB_MAX_STALENESS,
+				MicroprofilePropertyNames.MONGODB_READ_PREFERENCE + '.' + MicroprofilePropertyNames.MONGODB_MAX_STALENESS);
+		try {
+			ReadPreference pref = staleness.isPresent()
+					? ReadPreference.valueOf(name.get(), Collections.emptyList(), Long.parseLong(staleness.get()),
+							TimeUnit.SECONDS)
+					: ReadPreference.valueOf(name.get());
+			LOGGER.info("Using read preference {} for {} operations on '{}'", pref, operation, tableName);
+			return pref;
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Invalid read preference '{}' configured for '{}', using primary", name.get(), tableName, e);
+			return ReadPreference.primary();
+		}
+	}
+
+	private static Optional<String> getFirstValue(Config config, String... keys) {
+		for (String key : keys) {
+			Optional<String> value = config.getOptionalValue(key, String.class);
+			if (value.isPresent() && !value.get().trim().isEmpty()) {
+				return Optional.of(value.get().trim());
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Retrieves the name that settings for the query are configured under, which
+	 * is the table of the type being read. Queries served from a materialized
+	 * collection use the settings of the table they were made against.
+	 * 
+	 * @param q the query object for the current operation
+	 * @return the name of the table for configuration lookups
+	 */
+	private static String getConfigName(MongoQuery<?> q) {
+		return DtoTableNames.getTableName(q.getDocType());
+	}
+
 	private <T> ReactiveMongoCollection<T> getCollection(Class<T> type) {
-		return mongoClient.getDatabase(databaseName).getCollection(DtoTableNames.getTableName(type), type);
+		return getCollection(DtoTableNames.getTableName(type), type);
+	}
+
+	private <T> ReactiveMongoCollection<T> getCollection(String name, Class<T> type) {
+		return mongoClient.getDatabase(databaseName).getCollection(name, type);
 	}
 }
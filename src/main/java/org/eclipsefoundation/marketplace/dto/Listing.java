@@ -35,22 +35,22 @@ public class Listing extends NodeBase {
 	private String body;
 	private String status;
 	private String logo;
-	private boolean foundationMember;
+	private Boolean foundationMember;
 
-	@SortableField(name = "installs_count")
+	@SortableField(name = "installs_count", path = DatabaseFieldNames.TOTAL_INSTALLS)
 	private Integer installsTotal;
 
-	@SortableField(name = "installs_count_recent")
+	@SortableField(name = "installs_count_recent", path = DatabaseFieldNames.RECENT_INSTALLS)
 	private Integer installsRecent;
 
 	@SortableField
-	private long favoriteCount;
+	private Long favoriteCount;
 
-	@SortableField(name = DatabaseFieldNames.CREATION_DATE)
+	@SortableField(name = DatabaseFieldNames.CREATION_DATE, date = true)
 	@JsonbProperty(DatabaseFieldNames.CREATION_DATE)
 	private String creationDate;
 
-	@SortableField(name = DatabaseFieldNames.UPDATE_DATE)
+	@SortableField(name = DatabaseFieldNames.UPDATE_DATE, date = true)
 	@JsonbProperty(DatabaseFieldNames.UPDATE_DATE)
 	private String updateDate;
 	@JsonbProperty(DatabaseFieldNames.LICENSE_TYPE)
@@ -64,11 +64,15 @@ public class Listing extends NodeBase {
 	private List<Tag> tags;
 	private List<ListingVersion> versions;
 	private boolean isPromotion;
+	private boolean partial;
 
 	/**
-	 * Default constructor, sets lists to empty lists to stop null pointers
+	 * Default constructor, sets lists to empty lists to stop null pointers. Fields
+	 * are only null when they were left out of a partial read of the listing.
 	 */
 	public Listing() {
+		this.foundationMember = false;
+		this.favoriteCount = 0L;
 		this.authors = new ArrayList<>();
 		this.tags = new ArrayList<>();
 		this.versions = new ArrayList<>();
@@ -165,14 +169,14 @@ public class Listing extends NodeBase {
 	/**
 	 * @return the foundationMember
 	 */
-	public boolean isFoundationMember() {
+	public Boolean isFoundationMember() {
 		return foundationMember;
 	}
 
 	/**
 	 * @param foundationMember the foundationMember to set
 	 */
-	public void setFoundationMember(boolean foundationMember) {
+	public void setFoundationMember(Boolean foundationMember) {
 		this.foundationMember = foundationMember;
 	}
 
@@ -211,14 +215,14 @@ public class Listing extends NodeBase {
 	/**
 	 * @return the favoriteCount
 	 */
-	public long getFavoriteCount() {
+	public Long getFavoriteCount() {
 		return favoriteCount;
 	}
 
 	/**
 	 * @param favoriteCount the favoriteCount to set
 	 */
-	public void setFavoriteCount(long favoriteCount) {
+	public void setFavoriteCount(Long favoriteCount) {
 		this.favoriteCount = favoriteCount;
 	}
 
@@ -276,42 +280,51 @@ public class Listing extends NodeBase {
 	 * @param categoryIds the categoryIds to set
 	 */
 	public void setCategoryIds(List<String> categoryIds) {
-		this.categoryIds = new ArrayList<>(categoryIds);
+		this.categoryIds = copy(categoryIds);
+	}
+
+	/**
+	 * @return the categoryIds if they were requested in a partial read of the
+	 *         listing, otherwise null
+	 */
+	@JsonbProperty(DatabaseFieldNames.CATEGORY_IDS)
+	public List<String> getRequestedCategoryIds() {
+		return partial ? copy(categoryIds) : null;
 	}
 
 	/**
 	 * @return the categoryIds
 	 */
 	public List<String> getMarketIds() {
-		return new ArrayList<>(marketIds);
+		return copy(marketIds);
 	}
 
 	/**
 	 * @param marketIds the categoryIds to set
 	 */
 	public void setMarketIds(List<String> marketIds) {
-		this.marketIds = new ArrayList<>(marketIds);
+		this.marketIds = copy(marketIds);
 	}
 
 	/**
 	 * @return the screenshots
 	 */
 	public List<String> getScreenshots() {
-		return new ArrayList<>(screenshots);
+		return copy(screenshots);
 	}
 
 	/**
 	 * @param screenshots the screenshots to set
 	 */
 	public void setScreenshots(List<String> screenshots) {
-		this.screenshots = new ArrayList<>(screenshots);
+		this.screenshots = copy(screenshots);
 	}
 
 	/**
 	 * @return the categories
 	 */
 	public List<Category> getCategories() {
-		return new ArrayList<>(categories);
+		return copy(categories);
 	}
 
 	/**
@@ -319,7 +332,7 @@ public class Listing extends NodeBase {
 	 */
 	@JsonbTransient
 	public void setCategories(List<Category> categories) {
-		this.categories = new ArrayList<>(categories);
+		this.categories = copy(categories);
 	}
 
 	/**
@@ -340,37 +353,35 @@ public class Listing extends NodeBase {
 	 * @return the authors
 	 */
 	public List<Author> getAuthors() {
-		return new ArrayList<>(authors);
+		return copy(authors);
 	}
 
 	/**
 	 * @param authors the authors to set
 	 */
 	public void setAuthors(List<Author> authors) {
-		Objects.requireNonNull(authors);
-		this.authors = new ArrayList<>(authors);
+		this.authors = copy(authors);
 	}
 
 	/**
 	 * @return the tags
 	 */
 	public List<Tag> getTags() {
-		return new ArrayList<>(tags);
+		return copy(tags);
 	}
 
 	/**
 	 * @param tags the tags to set
 	 */
 	public void setTags(List<Tag> tags) {
-		Objects.requireNonNull(tags);
-		this.tags = new ArrayList<>(tags);
+		this.tags = copy(tags);
 	}
 
 	/**
 	 * @return the versions
 	 */
 	public List<ListingVersion> getVersions() {
-		return new ArrayList<>(versions);
+		return copy(versions);
 	}
 
 	/**
@@ -378,8 +389,7 @@ public class Listing extends NodeBase {
 	 */
 	@JsonbTransient
 	public void setVersions(List<ListingVersion> versions) {
-		Objects.requireNonNull(versions);
-		this.versions = new ArrayList<>(versions);
+		this.versions = copy(versions);
 	}
 
 	/**
@@ -397,10 +407,41 @@ public class Listing extends NodeBase {
 		this.isPromotion = isPromotion;
 	}
 
+	/**
+	 * @return true if the listing was read with only a subset of its fields,
+	 *         otherwise false
+	 */
+	@JsonbTransient
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * @param partial true if the listing was read with only a subset of its fields
+	 */
+	@JsonbTransient
+	public void setPartial(boolean partial) {
+		this.partial = partial;
+	}
+
 	@Override
 	public boolean validate() {
-		return super.validate() && license != null && !authors.isEmpty() && !categoryIds.isEmpty()
-				&& !versions.isEmpty();
+		return super.validate() && license != null && !isEmpty(authors) && !isEmpty(categoryIds)
+				&& !isEmpty(versions);
+	}
+
+	/**
+	 * Copies the list, keeping null for lists left out of a partial read.
+	 * 
+	 * @param list the list to copy
+	 * @return a copy of the list, or null if the list is null
+	 */
+	private static <E> List<E> copy(List<E> list) {
+		return list == null ? null : new ArrayList<>(list);
+	}
+
+	private static boolean isEmpty(List<?> list) {
+		return list == null || list.isEmpty();
 	}
 
 	@Override
@@ -427,13 +468,14 @@ public class Listing extends NodeBase {
 		Listing other = (Listing) obj;
 		return Objects.equals(authors, other.authors) && Objects.equals(body, other.body)
 				&& Objects.equals(categories, other.categories) && Objects.equals(categoryIds, other.categoryIds)
-				&& creationDate == other.creationDate && favoriteCount == other.favoriteCount
-				&& foundationMember == other.foundationMember && Objects.equals(homepageUrl, other.homepageUrl)
-				&& installsRecent == other.installsRecent && installsTotal == other.installsTotal
+				&& Objects.equals(creationDate, other.creationDate) && Objects.equals(favoriteCount, other.favoriteCount)
+				&& Objects.equals(foundationMember, other.foundationMember)
+				&& Objects.equals(homepageUrl, other.homepageUrl) && Objects.equals(installsRecent, other.installsRecent)
+				&& Objects.equals(installsTotal, other.installsTotal)
 				&& Objects.equals(logo, other.logo) && Objects.equals(organization, other.organization)
 				&& Objects.equals(status, other.status) && Objects.equals(supportUrl, other.supportUrl)
 				&& Objects.equals(tags, other.tags) && Objects.equals(teaser, other.teaser)
-				&& updateDate == other.updateDate && Objects.equals(versions, other.versions)
+				&& Objects.equals(updateDate, other.updateDate) && Objects.equals(versions, other.versions)
 				&& Objects.equals(screenshots, other.screenshots);
 	}
 
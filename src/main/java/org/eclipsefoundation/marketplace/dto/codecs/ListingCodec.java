@@ -6,7 +6,11 @@
  */
 package org.eclipsefoundation.marketplace.dto.codecs;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.bson.BsonReader;
@@ -74,6 +78,7 @@ public class ListingCodec implements CollectibleCodec<Listing> {
 		doc.put(DatabaseFieldNames.MARKETPLACE_FAVORITES, value.getFavoriteCount());
 		doc.put(DatabaseFieldNames.LICENSE_TYPE, value.getLicense());
 		doc.put(DatabaseFieldNames.LISTING_STATUS, value.getStatus());
+		doc.put(DatabaseFieldNames.LISTING_LOGO, value.getLogo());
 		doc.put(DatabaseFieldNames.UPDATE_DATE, DateTimeHelper.toRFC3339(value.getUpdateDate()));
 		doc.put(DatabaseFieldNames.CREATION_DATE, DateTimeHelper.toRFC3339(value.getCreationDate()));
 		doc.put(DatabaseFieldNames.FOUNDATION_MEMBER_FLAG, value.isFoundationMember());
@@ -84,10 +89,10 @@ public class ListingCodec implements CollectibleCodec<Listing> {
 		// for nested document types, use the converters to safely transform into BSON
 		// documents
 		doc.put(DatabaseFieldNames.LISTING_ORGANIZATIONS, organizationConverter.convert(value.getOrganization()));
-		doc.put(DatabaseFieldNames.LISTING_AUTHORS,
-				value.getAuthors().stream().map(authorConverter::convert).collect(Collectors.toList()));
-		doc.put(DatabaseFieldNames.LISTING_TAGS,
-				value.getTags().stream().map(tagConverter::convert).collect(Collectors.toList()));
+		doc.put(DatabaseFieldNames.LISTING_AUTHORS, convertList(value.getAuthors(), authorConverter::convert));
+		doc.put(DatabaseFieldNames.LISTING_TAGS, convertList(value.getTags(), tagConverter::convert));
+		// fields that aren't set are left out rather than written as null
+		doc.values().removeIf(Objects::isNull);
 		documentCodec.encode(writer, doc, encoderContext);
 	}
 
@@ -110,26 +115,35 @@ public class ListingCodec implements CollectibleCodec<Listing> {
 		out.setTeaser(document.getString(DatabaseFieldNames.LISTING_TEASER));
 		out.setBody(document.getString(DatabaseFieldNames.LISTING_BODY));
 		out.setStatus(document.getString(DatabaseFieldNames.LISTING_STATUS));
-		out.setInstallsRecent(document.getInteger(DatabaseFieldNames.RECENT_INSTALLS,0));
-		out.setInstallsTotal(document.getInteger(DatabaseFieldNames.TOTAL_INSTALLS,0));
+		out.setLogo(document.getString(DatabaseFieldNames.LISTING_LOGO));
 		out.setLicense(document.getString(DatabaseFieldNames.LICENSE_TYPE));
-		out.setFavoriteCount(document.getLong(DatabaseFieldNames.MARKETPLACE_FAVORITES));
-		out.setFoundationMember(document.getBoolean(DatabaseFieldNames.FOUNDATION_MEMBER_FLAG));
-		out.setCategoryIds(document.getList(DatabaseFieldNames.CATEGORY_IDS, String.class));
-		out.setMarketIds(document.getList(DatabaseFieldNames.MARKET_IDS, String.class));
-		out.setScreenshots(document.getList(DatabaseFieldNames.SCREENSHOTS, String.class));
+
+		// fields left out of a partial read stay null so they are left out of the
+		// response, while fields missing from the listing itself use their defaults
+		List<String> projected = document.getList(DatabaseFieldNames.PROJECTED_FIELDS, String.class);
+		out.setPartial(projected != null);
+		out.setInstallsRecent(getValue(document, projected, DatabaseFieldNames.RECENT_INSTALLS, 0));
+		out.setInstallsTotal(getValue(document, projected, DatabaseFieldNames.TOTAL_INSTALLS, 0));
+		out.setFavoriteCount(getValue(document, projected, DatabaseFieldNames.MARKETPLACE_FAVORITES, 0L));
+		out.setFoundationMember(getValue(document, projected, DatabaseFieldNames.FOUNDATION_MEMBER_FLAG, false));
+		out.setCategoryIds(getList(document, projected, DatabaseFieldNames.CATEGORY_IDS, String.class));
+		out.setMarketIds(getList(document, projected, DatabaseFieldNames.MARKET_IDS, String.class));
+		out.setScreenshots(getList(document, projected, DatabaseFieldNames.SCREENSHOTS, String.class));
 
 		// for nested document types, use the converters to safely transform into POJO
-		out.setAuthors(document.getList(DatabaseFieldNames.LISTING_AUTHORS, Document.class).stream()
-				.map(authorConverter::convert).collect(Collectors.toList()));
-		out.setOrganization(
-				organizationConverter.convert(document.get(DatabaseFieldNames.LISTING_ORGANIZATIONS, Document.class)));
-		out.setTags(document.getList(DatabaseFieldNames.LISTING_TAGS, Document.class).stream()
-				.map(tagConverter::convert).collect(Collectors.toList()));
-		out.setVersions(document.getList(DatabaseFieldNames.LISTING_VERSIONS, Document.class).stream()
-				.map(versionConverter::convert).collect(Collectors.toList()));
-		out.setCategories(document.getList(DatabaseFieldNames.LISTING_CATEGORIES, Document.class).stream()
-				.map(categoryConverter::convert).collect(Collectors.toList()));
+		out.setAuthors(convertList(getList(document, projected, DatabaseFieldNames.LISTING_AUTHORS, Document.class),
+				authorConverter::convert));
+		Document organization = document.get(DatabaseFieldNames.LISTING_ORGANIZATIONS, Document.class);
+		if (organization != null) {
+			out.setOrganization(organizationConverter.convert(organization));
+		}
+		out.setTags(convertList(getList(document, projected, DatabaseFieldNames.LISTING_TAGS, Document.class),
+				tagConverter::convert));
+		out.setVersions(convertList(getList(document, projected, DatabaseFieldNames.LISTING_VERSIONS, Document.class),
+				versionConverter::convert));
+		out.setCategories(convertList(
+				getList(document, projected, DatabaseFieldNames.LISTING_CATEGORIES, Document.class),
+				categoryConverter::convert));
 
 		// convert date to date string
 		out.setCreationDate(DateTimeHelper.toRFC3339(document.getDate(DatabaseFieldNames.CREATION_DATE)));
@@ -138,6 +152,53 @@ public class ListingCodec implements CollectibleCodec<Listing> {
 		return out;
 	}
 
+	/**
+	 * Reads a field of the document, using the default value when the field is
+	 * missing.
+	 * 
+	 * @param document     the document to read
+	 * @param projected    the fields included by a partial read, or null if all
+	 *                     fields were read
+	 * @param key          the name of the field
+	 * @param defaultValue the value to use when the field is missing
+	 * @return the value, or null if the field was left out of a partial read
+	 */
+	private static <V> V getValue(Document document, List<String> projected, String key, V defaultValue) {
+		if (projected != null && !projected.contains(key)) {
+			return null;
+		}
+		return document.get(key, defaultValue);
+	}
+
+	/**
+	 * Reads a list field of the document, using an empty list when the field is
+	 * missing.
+	 * 
+	 * @param document  the document to read
+	 * @param projected the fields included by a partial read, or null if all fields
+	 *                  were read
+	 * @param key       the name of the field
+	 * @param type      the type of the items in the list
+	 * @return the list, or null if the field was left out of a partial read
+	 */
+	private static <V> List<V> getList(Document document, List<String> projected, String key, Class<V> type) {
+		if (projected != null && !projected.contains(key)) {
+			return null;
+		}
+		return document.getList(key, type, new ArrayList<>());
+	}
+
+	/**
+	 * Converts each item of the list, keeping null for lists that are missing.
+	 * 
+	 * @param list      the list to convert
+	 * @param converter the conversion for each item
+	 * @return the converted list, or null if the list is null
+	 */
+	private static <S, R> List<R> convertList(List<S> list, Function<S, R> converter) {
+		return list == null ? null : list.stream().map(converter).collect(Collectors.toList());
+	}
+
 	@Override
 	public Listing generateIdIfAbsentFromDocument(Listing document) {
 		if (!documentHasId(document)) {
@@ -6,6 +6,8 @@
  */
 package org.eclipsefoundation.marketplace.dto.converters;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.stream.Collectors;
 
 import org.bson.Document;
@@ -27,13 +29,16 @@ public class ListingVersionConverter implements Converter<ListingVersion> {
 		ListingVersion version = new ListingVersion();
 		version.setId(src.getString(DatabaseFieldNames.DOCID));
 		version.setListingId(src.getString(DatabaseFieldNames.LISTING_ID));
-		version.setEclipseVersions(src.getList("compatible_versions", String.class));
-		version.setPlatforms(src.getList("platforms", String.class));
-		version.setMinJavaVersion(JavaVersionHelper.convertToDisplayValue(Integer.toString(src.getInteger("min_java_version"))));
+		version.setEclipseVersions(src.getList("compatible_versions", String.class, new ArrayList<>()));
+		version.setPlatforms(src.getList("platforms", String.class, new ArrayList<>()));
+		Integer minJavaVersion = src.getInteger("min_java_version");
+		if (minJavaVersion != null) {
+			version.setMinJavaVersion(JavaVersionHelper.convertToDisplayValue(Integer.toString(minJavaVersion)));
+		}
 		version.setUpdateSiteUrl(src.getString("update_site_url"));
 		version.setVersion(src.getString("version"));
-		version.setFeatureIds(src.getList(DatabaseFieldNames.FEATURE_IDS, Document.class).stream()
-				.map(featureIdConverter::convert).collect(Collectors.toList()));
+		version.setFeatureIds(src.getList(DatabaseFieldNames.FEATURE_IDS, Document.class, Collections.emptyList())
+				.stream().map(featureIdConverter::convert).collect(Collectors.toList()));
 		return version;
 	}
 
@@ -9,15 +9,18 @@ package org.eclipsefoundation.marketplace.dto.filter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.bson.conversions.Bson;
+import org.eclipsefoundation.marketplace.model.JoinStage;
 import org.eclipsefoundation.marketplace.model.QueryParameters;
 import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
 
 /**
  * Filter interface for usage when querying data.
@@ -59,6 +62,68 @@ public interface DtoFilter<T> {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Retrieve the joins of external data for the current type. Unlike aggregates,
+	 * joins are planned by the query so that they only run before pagination when
+	 * their data is needed to filter or sort results. Joins must not depend on the
+	 * current request, as they are built once per type and reused for all queries.
+	 * 
+	 * @return list of joins in the order they should be applied, or empty if there
+	 *         are no joins.
+	 */
+	default List<JoinStage> getJoins() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Retrieve the filters on the data of the given join for the current
+	 * arguments.
+	 * 
+	 * @param join   the join to retrieve filters for
+	 * @param params parameters to use in filter construction
+	 * @return list of aggregate stages filtering on the joined data, or empty if
+	 *         there are no applicable filters.
+	 */
+	default List<Bson> getJoinFilters(JoinStage join, QueryParameters params) {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Retrieve the mapping of output field names to the database fields that
+	 * populate them, used to select a subset of fields to return. Types with no
+	 * mapping always return full documents.
+	 * 
+	 * @return map of output field names to database field paths, or empty if
+	 *         selecting fields is not supported for the type.
+	 */
+	default Map<String, String> getProjectableFields() {
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Retrieve the indexes required by the filters for the current type. Indexes
+	 * are created at startup if they do not already exist.
+	 * 
+	 * @return list of index declarations for the collection of the current type,
+	 *         or empty if there are no indexes.
+	 */
+	default List<IndexModel> getIndexes() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Retrieve the name of a collection that holds documents of the current type
+	 * with the data of each join already embedded. When present, queries read from
+	 * this collection and only apply the filters of each join rather than joining
+	 * the data on every read.
+	 * 
+	 * @return the name of the materialized collection, or null if joins should be
+	 *         run against the base collection.
+	 */
+	default String getMaterializedCollection() {
+		return null;
+	}
+
 	/**
 	 * Returns the type of data this object will filter for.
 	 * 
@@ -7,6 +7,7 @@
 package org.eclipsefoundation.marketplace.dto.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -15,11 +16,14 @@ import javax.enterprise.context.ApplicationScoped;
 
 import org.bson.conversions.Bson;
 import org.eclipsefoundation.marketplace.dto.ErrorReport;
+import org.eclipsefoundation.marketplace.helper.IndexHelper;
 import org.eclipsefoundation.marketplace.model.QueryParameters;
 import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
 
 /**
  * Filter implementation for the ErrorReport class.
@@ -75,6 +79,15 @@ public class ErrorReportFilter implements DtoFilter<ErrorReport> {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public List<IndexModel> getIndexes() {
+		return Arrays.asList(IndexHelper.create(Indexes.ascending(DatabaseFieldNames.LISTING_ID)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.ERROR_READ)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.ERROR_FEATURE_IDS)),
+				IndexHelper.create(Indexes.compoundIndex(Indexes.text(DatabaseFieldNames.ERROR_TITLE),
+						Indexes.text(DatabaseFieldNames.ERROR_BODY), Indexes.text(DatabaseFieldNames.ERROR_DETAILED_MESSAGE))));
+	}
+
 	@Override
 	public Class<ErrorReport> getType() {
 		return ErrorReport.class;
@@ -7,6 +7,7 @@
 package org.eclipsefoundation.marketplace.dto.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -17,11 +18,14 @@ import javax.enterprise.context.ApplicationScoped;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.conversions.Bson;
 import org.eclipsefoundation.marketplace.dto.Install;
+import org.eclipsefoundation.marketplace.helper.IndexHelper;
 import org.eclipsefoundation.marketplace.model.QueryParameters;
 import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
 
 /**
  * Filter implementation for the {@linkplain Install} class.
@@ -76,6 +80,17 @@ public class InstallFilter implements DtoFilter<Install> {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public List<IndexModel> getIndexes() {
+		return Arrays.asList(
+				IndexHelper.create(Indexes.compoundIndex(Indexes.ascending(DatabaseFieldNames.LISTING_ID),
+						Indexes.ascending(DatabaseFieldNames.INSTALL_DATE))),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.INSTALL_DATE)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.INSTALL_VERSION)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.OS)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.ECLIPSE_VERSION)));
+	}
+
 	@Override
 	public Class<Install> getType() {
 		return Install.class;
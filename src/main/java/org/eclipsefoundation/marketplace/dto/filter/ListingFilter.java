@@ -7,7 +7,11 @@
 package org.eclipsefoundation.marketplace.dto.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -16,14 +20,19 @@ import javax.inject.Inject;
 import org.bson.conversions.Bson;
 import org.eclipsefoundation.marketplace.dto.Listing;
 import org.eclipsefoundation.marketplace.dto.ListingVersion;
+import org.eclipsefoundation.marketplace.helper.IndexHelper;
+import org.eclipsefoundation.marketplace.model.JoinStage;
 import org.eclipsefoundation.marketplace.model.QueryParameters;
 import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
 import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
 
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Field;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UnwindOptions;
 
@@ -34,9 +43,40 @@ import com.mongodb.client.model.UnwindOptions;
  */
 @ApplicationScoped
 public class ListingFilter implements DtoFilter<Listing> {
+	private static final Map<String, String> PROJECTABLE_FIELDS;
+	static {
+		Map<String, String> fields = new HashMap<>();
+		fields.put("id", DatabaseFieldNames.DOCID);
+		fields.put(DatabaseFieldNames.TITLE, DatabaseFieldNames.TITLE);
+		fields.put(DatabaseFieldNames.URL, DatabaseFieldNames.URL);
+		fields.put(DatabaseFieldNames.SUPPORT_PAGE_URL, DatabaseFieldNames.SUPPORT_PAGE_URL);
+		fields.put(DatabaseFieldNames.HOME_PAGE_URL, DatabaseFieldNames.HOME_PAGE_URL);
+		fields.put(DatabaseFieldNames.LISTING_TEASER, DatabaseFieldNames.LISTING_TEASER);
+		fields.put(DatabaseFieldNames.LISTING_BODY, DatabaseFieldNames.LISTING_BODY);
+		fields.put(DatabaseFieldNames.LISTING_STATUS, DatabaseFieldNames.LISTING_STATUS);
+		fields.put(DatabaseFieldNames.LISTING_LOGO, DatabaseFieldNames.LISTING_LOGO);
+		fields.put("foundation_member", DatabaseFieldNames.FOUNDATION_MEMBER_FLAG);
+		fields.put(DatabaseFieldNames.TOTAL_INSTALLS, DatabaseFieldNames.TOTAL_INSTALLS);
+		fields.put(DatabaseFieldNames.RECENT_INSTALLS, DatabaseFieldNames.RECENT_INSTALLS);
+		fields.put(DatabaseFieldNames.MARKETPLACE_FAVORITES, DatabaseFieldNames.MARKETPLACE_FAVORITES);
+		fields.put(DatabaseFieldNames.CREATION_DATE, DatabaseFieldNames.CREATION_DATE);
+		fields.put(DatabaseFieldNames.UPDATE_DATE, DatabaseFieldNames.UPDATE_DATE);
+		fields.put(DatabaseFieldNames.LICENSE_TYPE, DatabaseFieldNames.LICENSE_TYPE);
+		fields.put(DatabaseFieldNames.MARKET_IDS, DatabaseFieldNames.MARKET_IDS);
+		fields.put(DatabaseFieldNames.CATEGORY_IDS, DatabaseFieldNames.CATEGORY_IDS);
+		fields.put(DatabaseFieldNames.SCREENSHOTS, DatabaseFieldNames.SCREENSHOTS);
+		fields.put(DatabaseFieldNames.LISTING_CATEGORIES, DatabaseFieldNames.LISTING_CATEGORIES);
+		fields.put(DatabaseFieldNames.LISTING_ORGANIZATIONS, DatabaseFieldNames.LISTING_ORGANIZATIONS);
+		fields.put(DatabaseFieldNames.LISTING_AUTHORS, DatabaseFieldNames.LISTING_AUTHORS);
+		fields.put(DatabaseFieldNames.LISTING_TAGS, DatabaseFieldNames.LISTING_TAGS);
+		fields.put(DatabaseFieldNames.LISTING_VERSIONS, DatabaseFieldNames.LISTING_VERSIONS);
+		PROJECTABLE_FIELDS = Collections.unmodifiableMap(fields);
+	}
 
 	@Inject
 	DtoFilter<ListingVersion> listingVersionFilter;
+	@Inject
+	ExpandedListingService expandedListings;
 	
 	@Override
 	public List<Bson> getFilters(QueryParameters params, String root) {
@@ -77,31 +117,75 @@ public class ListingFilter implements DtoFilter<Listing> {
 	}
 
 	@Override
-	public List<Bson> getAggregates(QueryParameters params) {
-		List<Bson> aggs = new ArrayList<>();
-		// adds a $lookup aggregate, joining categories on categoryIDS as "categories"
-		aggs.add(Aggregates.lookup(DtoTableNames.LISTING_VERSION.getTableName(), DatabaseFieldNames.DOCID, DatabaseFieldNames.LISTING_ID,
+	public List<JoinStage> getJoins() {
+		List<JoinStage> joins = new ArrayList<>();
+		// adds a $lookup aggregate, joining listing versions on listing ID as "versions"
+		joins.add(new JoinStage(DatabaseFieldNames.LISTING_VERSIONS,
+				Arrays.asList(Aggregates.lookup(DtoTableNames.LISTING_VERSION.getTableName(), DatabaseFieldNames.DOCID,
+						DatabaseFieldNames.LISTING_ID, DatabaseFieldNames.LISTING_VERSIONS)),
 				DatabaseFieldNames.LISTING_VERSIONS));
-		Bson filters = listingVersionFilter.wrapFiltersToAggregate(params, DatabaseFieldNames.LISTING_VERSIONS);
-		if (filters != null) {
-			aggs.add(filters);
-		}
-		aggs.add(Aggregates.lookup(DtoTableNames.CATEGORY.getTableName(), DatabaseFieldNames.CATEGORY_IDS,
-				DatabaseFieldNames.DOCID, DatabaseFieldNames.LISTING_CATEGORIES));
-		List<String> marketIds = params.getValues(UrlParameterNames.MARKET_IDS.getParameterName());
-		if (!marketIds.isEmpty()) {
-			aggs.add(Aggregates.match(Filters.in("categories.market_ids", marketIds)));
-		}
+
+		// adds a $lookup aggregate, joining categories on categoryIDS as "categories"
+		joins.add(new JoinStage(DatabaseFieldNames.LISTING_CATEGORIES,
+				Arrays.asList(Aggregates.lookup(DtoTableNames.CATEGORY.getTableName(), DatabaseFieldNames.CATEGORY_IDS,
+						DatabaseFieldNames.DOCID, DatabaseFieldNames.LISTING_CATEGORIES)),
+				DatabaseFieldNames.LISTING_CATEGORIES));
+
+		List<Bson> installStages = new ArrayList<>();
 		// adds a $lookup aggregate, joining install metrics on ids as "installs"
-		aggs.add(Aggregates.lookup(DtoTableNames.INSTALL_METRIC.getTableName(), DatabaseFieldNames.DOCID,
+		installStages.add(Aggregates.lookup(DtoTableNames.INSTALL_METRIC.getTableName(), DatabaseFieldNames.DOCID,
 				DatabaseFieldNames.DOCID, "installs"));
 		// unwinds the installs out of arrays
-		aggs.add(Aggregates.unwind("$installs", new UnwindOptions().preserveNullAndEmptyArrays(true)));
+		installStages.add(Aggregates.unwind("$installs", new UnwindOptions().preserveNullAndEmptyArrays(true)));
 		// push the installs counts to the listing, and remove the installs merged in
-		aggs.add(Aggregates.addFields(new Field<String>(DatabaseFieldNames.RECENT_INSTALLS, "$installs.offset_0.count"),
+		installStages.add(Aggregates.addFields(new Field<String>(DatabaseFieldNames.RECENT_INSTALLS, "$installs.offset_0.count"),
 				new Field<String>(DatabaseFieldNames.TOTAL_INSTALLS, "$installs.count")));
-		aggs.add(Aggregates.project(Projections.exclude("installs")));
-		return aggs;
+		installStages.add(Aggregates.project(Projections.exclude("installs")));
+		joins.add(new JoinStage("installs", installStages, DatabaseFieldNames.RECENT_INSTALLS,
+				DatabaseFieldNames.TOTAL_INSTALLS));
+		return joins;
+	}
+
+	@Override
+	public List<Bson> getJoinFilters(JoinStage join, QueryParameters params) {
+		List<Bson> filters = new ArrayList<>();
+		if (DatabaseFieldNames.LISTING_VERSIONS.equals(join.getName())) {
+			// filter on the listing versions joined into the listing
+			Bson versionFilter = listingVersionFilter.wrapFiltersToAggregate(params,
+					DatabaseFieldNames.LISTING_VERSIONS);
+			if (versionFilter != null) {
+				filters.add(versionFilter);
+			}
+		} else if (DatabaseFieldNames.LISTING_CATEGORIES.equals(join.getName())) {
+			// filter on the markets of the categories joined into the listing
+			List<String> marketIds = params.getValues(UrlParameterNames.MARKET_IDS.getParameterName());
+			if (!marketIds.isEmpty()) {
+				filters.add(Aggregates.match(Filters.in("categories.market_ids", marketIds)));
+			}
+		}
+		return filters;
+	}
+
+	@Override
+	public Map<String, String> getProjectableFields() {
+		return PROJECTABLE_FIELDS;
+	}
+
+	@Override
+	public List<IndexModel> getIndexes() {
+		return Arrays.asList(IndexHelper.create(Indexes.ascending(DatabaseFieldNames.LICENSE_TYPE)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.LISTING_TAGS + ".title")),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.CATEGORY_IDS)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.CREATION_DATE, DatabaseFieldNames.DOCID)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.UPDATE_DATE, DatabaseFieldNames.DOCID)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.MARKETPLACE_FAVORITES, DatabaseFieldNames.DOCID)),
+				IndexHelper.create(Indexes.compoundIndex(Indexes.text(DatabaseFieldNames.TITLE),
+						Indexes.text(DatabaseFieldNames.LISTING_TEASER), Indexes.text(DatabaseFieldNames.LISTING_BODY))));
+	}
+
+	@Override
+	public String getMaterializedCollection() {
+		return expandedListings.isAvailable() ? ExpandedListingService.COLLECTION : null;
 	}
 
 	@Override
@@ -7,6 +7,7 @@
 package org.eclipsefoundation.marketplace.dto.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -16,11 +17,14 @@ import javax.enterprise.context.ApplicationScoped;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.conversions.Bson;
 import org.eclipsefoundation.marketplace.dto.ListingVersion;
+import org.eclipsefoundation.marketplace.helper.IndexHelper;
 import org.eclipsefoundation.marketplace.model.QueryParameters;
 import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
 
 /**
  * Filter implementation for the {@linkplain ListingVersion} class.
@@ -67,6 +71,14 @@ public class ListingVersionFilter implements DtoFilter<ListingVersion> {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public List<IndexModel> getIndexes() {
+		return Arrays.asList(IndexHelper.create(Indexes.ascending(DatabaseFieldNames.LISTING_ID)),
+				IndexHelper.create(Indexes.ascending("platforms")),
+				IndexHelper.create(Indexes.ascending("compatible_versions")),
+				IndexHelper.create(Indexes.ascending("min_java_version")));
+	}
+
 	@Override
 	public Class<ListingVersion> getType() {
 		return ListingVersion.class;
@@ -0,0 +1,38 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.exception;
+
+/**
+ * Thrown when a DAO operation runs out of its time budget, either the budget
+ * configured for the operation or the deadline set by the client.
+ * 
+ * @author Martin Lowe
+ */
+public class QueryTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean deadlineExceeded;
+
+	/**
+	 * @param message          description of the operation that timed out
+	 * @param deadlineExceeded whether the budget was set by the client deadline
+	 * @param cause            the underlying exception, if any
+	 */
+	public QueryTimeoutException(String message, boolean deadlineExceeded, Throwable cause) {
+		super(message, cause);
+		this.deadlineExceeded = deadlineExceeded;
+	}
+
+	/**
+	 * @return true if the budget was set by the client deadline, false if it was
+	 *         the budget configured for the operation
+	 */
+	public boolean isDeadlineExceeded() {
+		return deadlineExceeded;
+	}
+}
@@ -0,0 +1,34 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.health;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.eclipsefoundation.marketplace.service.CacheSnapshotService;
+
+/**
+ * Readiness check that holds traffic until the cache has been restored from
+ * the last snapshot.
+ * 
+ * @author Martin Lowe
+ */
+@Readiness
+@ApplicationScoped
+public class CacheWarmupHealthCheck implements HealthCheck {
+
+	@Inject
+	CacheSnapshotService snapshotService;
+
+	@Override
+	public HealthCheckResponse call() {
+		return HealthCheckResponse.named("Cache warm-up").state(snapshotService.isWarm()).build();
+	}
+}
@@ -0,0 +1,80 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.helper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.NodeBase;
+import org.eclipsefoundation.marketplace.dto.Promotion;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+
+/**
+ * Static helper for generating the tags of cached values. Each tag identifies
+ * an entity contained in the value, so that entries can be removed when one of
+ * the entities they contain changes.
+ *
+ * @author Martin Lowe
+ */
+public class CacheTagHelper {
+
+	/**
+	 * Generates the tag for the entity of the given type and ID.
+	 *
+	 * @param type the type of the entity
+	 * @param id   the ID of the entity
+	 * @return the tag for the entity
+	 */
+	public static String getTag(Class<?> type, String id) {
+		return type.getSimpleName().toLowerCase(Locale.ROOT) + ':' + id;
+	}
+
+	/**
+	 * Retrieves the tags for the entities contained in the value. Collections are
+	 * and pages of results are tagged with the entities of each of their items, and
+	 * promotions are tagged with the promoted listing as well as the promotion.
+	 *
+	 * @param value the cached value
+	 * @return the tags for the value, or an empty set if it contains no entities
+	 */
+	public static Set<String> getTags(Object value) {
+		if (!(value instanceof Collection) && !(value instanceof PaginatedResult) && !(value instanceof NodeBase)
+				&& !(value instanceof Promotion)) {
+			return Collections.emptySet();
+		}
+		Set<String> tags = new HashSet<>();
+		addTags(value, tags);
+		return tags;
+	}
+
+	private static void addTags(Object value, Set<String> tags) {
+		if (value instanceof Collection) {
+			((Collection<?>) value).forEach(item -> addTags(item, tags));
+		} else if (value instanceof PaginatedResult) {
+			addTags(((PaginatedResult<?>) value).getResults(), tags);
+		} else if (value instanceof NodeBase) {
+			addTag(value.getClass(), ((NodeBase) value).getId(), tags);
+		} else if (value instanceof Promotion) {
+			Promotion promo = (Promotion) value;
+			addTag(Promotion.class, promo.getId(), tags);
+			addTag(Listing.class, promo.getListingId(), tags);
+		}
+	}
+
+	private static void addTag(Class<?> type, String id, Set<String> tags) {
+		if (id != null) {
+			tags.add(getTag(type, id));
+		}
+	}
+
+	private CacheTagHelper() {
+	}
+}
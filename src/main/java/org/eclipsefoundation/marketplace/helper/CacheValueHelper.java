@@ -0,0 +1,234 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.helper;
+
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.eclipsefoundation.marketplace.model.SerializedValue;
+
+/**
+ * Helper for recording the type of cached values so that they can be read back
+ * from their serialized form. Values are only deserialized into DTOs and simple
+ * types, so modified data can't be used to create arbitrary objects. Pages of
+ * results are stored as their results along with the total, as the response
+ * body for a page only contains the results.
+ *
+ * @author Martin Lowe
+ */
+public class CacheValueHelper {
+	private static final String LIST_TYPE = List.class.getName();
+	private static final String PAGE_TYPE = PaginatedResult.class.getName();
+	private static final String DTO_PACKAGE = Listing.class.getPackage().getName() + '.';
+	private static final Set<String> SIMPLE_TYPES = new HashSet<>(
+			Arrays.asList(String.class.getName(), Integer.class.getName(), Long.class.getName()));
+
+	/**
+	 * Returns the type of the value, with lists recorded as a list rather than
+	 * their implementation class.
+	 *
+	 * @param value the cached value
+	 * @return the name of the type of the value
+	 */
+	public static String getType(Object value) {
+		return value instanceof List ? LIST_TYPE : value.getClass().getName();
+	}
+
+	/**
+	 * Returns the type of the items of a list or page, as lists have no runtime
+	 * item type.
+	 *
+	 * @param value the cached value
+	 * @return the name of the type of the items, or an empty string if the value
+	 *         isn't a list or page or has no items
+	 */
+	public static String getItemType(Object value) {
+		List<?> items = value instanceof PaginatedResult ? ((PaginatedResult<?>) value).getResults() : null;
+		if (value instanceof List) {
+			items = (List<?>) value;
+		}
+		if (items != null && !items.isEmpty()) {
+			return items.get(0).getClass().getName();
+		}
+		return "";
+	}
+
+	/**
+	 * Checks whether the value is a page of results, which is stored as its
+	 * results and total.
+	 *
+	 * @param type the name of the type of the value
+	 * @return true if the type is a page of results, otherwise false
+	 */
+	public static boolean isPage(String type) {
+		return PAGE_TYPE.equals(type);
+	}
+
+	/**
+	 * Checks whether values of the type and item type can be restored.
+	 *
+	 * @param type     the name of the type of the value
+	 * @param itemType the name of the type of the list items, or an empty string
+	 * @return true if the value can be restored, otherwise false
+	 */
+	public static boolean isAllowed(String type, String itemType) {
+		if (LIST_TYPE.equals(type) || PAGE_TYPE.equals(type)) {
+			return itemType.isEmpty() || isAllowed(itemType);
+		}
+		return isAllowed(type) && itemType.isEmpty();
+	}
+
+	/**
+	 * Writes the value as the body of a response. Pages of results are written as
+	 * the array of results, as the total is returned as a header.
+	 *
+	 * @param jsonb the serializer to write the value with
+	 * @param value the value to write
+	 * @return the response body for the value
+	 */
+	public static SerializedValue toResponseBody(Jsonb jsonb, Object value) {
+		Object body = value instanceof PaginatedResult ? ((PaginatedResult<?>) value).getResults() : value;
+		return new SerializedValue(jsonb.toJson(body).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the value in the JSON form read by
+	 * {@link #deserialize(Jsonb, String, String, String)}.
+	 *
+	 * @param jsonb the serializer to write the value with
+	 * @param value the value to write
+	 * @return the serialized value
+	 */
+	public static String serialize(Jsonb jsonb, Object value) {
+		if (value instanceof PaginatedResult) {
+			PaginatedResult<?> page = (PaginatedResult<?>) value;
+			return "{\"total\":" + page.getTotal() + ",\"results\":" + jsonb.toJson(page.getResults()) + '}';
+		}
+		return jsonb.toJson(value);
+	}
+
+	/**
+	 * Reads a value from its JSON form using the recorded types.
+	 *
+	 * @param jsonb    the serializer the value was written with
+	 * @param type     the name of the type of the value
+	 * @param itemType the name of the type of the list items, or an empty string
+	 * @param json     the serialized value
+	 * @return the value, or null if the type can't be restored
+	 * @throws ClassNotFoundException if a recorded type doesn't exist
+	 */
+	public static Object deserialize(Jsonb jsonb, String type, String itemType, String json)
+			throws ClassNotFoundException {
+		if (LIST_TYPE.equals(type)) {
+			return readList(jsonb, itemType, json);
+		}
+		if (PAGE_TYPE.equals(type)) {
+			JsonObject page;
+			try (JsonReader reader = Json.createReader(new StringReader(json))) {
+				page = reader.readObject();
+			} catch (JsonException e) {
+				throw new JsonbException("Could not read page of results", e);
+			}
+			List<Object> results = readList(jsonb, itemType, page.get("results").toString());
+			return results == null ? null : new PaginatedResult<>(results, page.getJsonNumber("total").longValue());
+		}
+		Class<?> c = getType(type);
+		return c == null ? null : jsonb.fromJson(json, c);
+	}
+
+	/**
+	 * Creates a page of results from the serialized results, only reading the
+	 * results when they are first requested. This allows a stored page to be
+	 * served from its serialized form without reading it.
+	 *
+	 * @param jsonb    the serializer the results were written with
+	 * @param itemType the name of the type of the results, or an empty string
+	 * @param results  the serialized results of the page
+	 * @param total    the number of documents matching the query across all pages
+	 * @return the page, or null if the type of the results can't be restored
+	 * @throws ClassNotFoundException if the type of the results doesn't exist
+	 */
+	public static PaginatedResult<Object> readPage(Jsonb jsonb, String itemType, String results, long total)
+			throws ClassNotFoundException {
+		if (!itemType.isEmpty() && getType(itemType) == null) {
+			return null;
+		}
+		return new PaginatedResult<>(() -> {
+			try {
+				return readList(jsonb, itemType, results);
+			} catch (ClassNotFoundException e) {
+				throw new JsonbException("Could not read page of results", e);
+			}
+		}, total);
+	}
+
+	/**
+	 * Reads a list from its JSON form.
+	 *
+	 * @param jsonb    the serializer the list was written with
+	 * @param itemType the name of the type of the list items, or an empty string
+	 * @param json     the serialized list
+	 * @return the list, or null if the type of the items can't be restored
+	 * @throws ClassNotFoundException if the type of the items doesn't exist
+	 */
+	private static List<Object> readList(Jsonb jsonb, String itemType, String json) throws ClassNotFoundException {
+		if (itemType.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Class<?> item = getType(itemType);
+		if (item == null) {
+			return null;
+		}
+		// read as an array of the item type, as lists have no runtime item type
+		Object[] items = (Object[]) jsonb.fromJson(json, Array.newInstance(item, 0).getClass());
+		return new ArrayList<>(Arrays.asList(items));
+	}
+
+	/**
+	 * Loads the class for the type if it is allowed to be restored.
+	 *
+	 * @param name the name of the class
+	 * @return the class, or null if the type can't be restored
+	 * @throws ClassNotFoundException if the class doesn't exist
+	 */
+	private static Class<?> getType(String name) throws ClassNotFoundException {
+		if (!isAllowed(name)) {
+			return null;
+		}
+		return Class.forName(name, false, CacheValueHelper.class.getClassLoader());
+	}
+
+	/**
+	 * Checks whether values of the type can be restored, which is limited to
+	 * simple types and the classes of the DTO package, not including sub-packages.
+	 *
+	 * @param name the name of the class
+	 * @return true if values of the type can be restored, otherwise false
+	 */
+	private static boolean isAllowed(String name) {
+		return SIMPLE_TYPES.contains(name)
+				|| name.startsWith(DTO_PACKAGE) && name.indexOf('.', DTO_PACKAGE.length()) == -1;
+	}
+
+	private CacheValueHelper() {
+	}
+}
@@ -9,7 +9,9 @@ package org.eclipsefoundation.marketplace.helper;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
 import java.util.Date;
 
 import org.apache.commons.lang3.StringUtils;
@@ -19,13 +21,16 @@ import org.slf4j.LoggerFactory;
 /**
  * Central implementation for handling date time conversion in the service.
  * Class uses Java8 DateTime formatters, creating an internal format that
- * represents RFC 3339
+ * represents RFC 3339. Fractions of a second are kept when present, so that
+ * dates can be compared to the millisecond precision they are stored with.
  * 
  * @author Martin Lowe
  */
 public class DateTimeHelper {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DateTimeHelper.class);
-	private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ssXXX");
+	private static final DateTimeFormatter formatter = new DateTimeFormatterBuilder()
+			.appendPattern("uuuu-MM-dd'T'HH:mm:ss").appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+			.appendPattern("XXX").toFormatter();
 
 	/**
 	 * Converts RFC 3339 compliant date string to date object. If non compliant
@@ -48,7 +53,7 @@ public class DateTimeHelper {
 	
 	/**
 	 * Converts passed date to RFC 3339 compliant date string. Time is adjusted to
-	 * be in UTC time.
+	 * be in UTC time, and milliseconds are included when set.
 	 * 
 	 * @param date the date object to convert to RFC 3339 format.
 	 * @return the RFC 3339 format date string.
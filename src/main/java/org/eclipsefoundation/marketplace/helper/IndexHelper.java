@@ -0,0 +1,70 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.helper;
+
+import java.util.Map.Entry;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+
+/**
+ * Helper for creating index declarations for MongoDB collections. Indexes are
+ * named using the same convention that MongoDB uses when no name is given, so
+ * that declared indexes can be matched against existing indexes by name.
+ * 
+ * @author Martin Lowe
+ */
+public class IndexHelper {
+
+	/**
+	 * Creates an index declaration for the given keys that will be built in the
+	 * background.
+	 * 
+	 * @param keys the keys of the index, e.g. created through
+	 *             {@link com.mongodb.client.model.Indexes}
+	 * @return the index declaration
+	 */
+	public static IndexModel create(Bson keys) {
+		return new IndexModel(keys, new IndexOptions().background(true).name(getName(keys)));
+	}
+
+	/**
+	 * Generates the default name of an index for the given keys, which is made of
+	 * each key and its direction or type joined by underscores (e.g.
+	 * listing_id_1_date_-1).
+	 * 
+	 * @param keys the keys of the index
+	 * @return the name of the index
+	 */
+	public static String getName(Bson keys) {
+		BsonDocument doc = keys.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, BsonValue> entry : doc.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append('_');
+			}
+			sb.append(entry.getKey()).append('_');
+			BsonValue value = entry.getValue();
+			if (value.isString()) {
+				sb.append(value.asString().getValue());
+			} else if (value.isNumber()) {
+				sb.append(value.asNumber().intValue());
+			} else {
+				sb.append(value);
+			}
+		}
+		return sb.toString();
+	}
+
+	private IndexHelper() {
+	}
+}
@@ -7,46 +7,66 @@
 package org.eclipsefoundation.marketplace.helper;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Objects;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.json.bind.Jsonb;
 import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.xml.bind.DatatypeConverter;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriBuilder;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.model.SerializedValue;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.namespace.ResponseHeaderNames;
+import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Helper class that transforms data into a response usable for the RESTeasy
- * container. Uses injected JSON-B serializer and caching service to get current
- * information on cache data.
+ * container. Uses the caching service to get current information on cache data,
+ * and reuses the serialized body of cached values so that cache hits are
+ * returned without serializing or compressing the data again.
  * 
  * @author Martin Lowe
  *
  */
 @ApplicationScoped
 public class ResponseHelper {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseHelper.class);
+	private static final String GZIP = "gzip";
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_RETURN_LIMIT)
+	int defaultLimit;
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_RETURN_LIMIT_MAX)
+	int defaultMax;
 
-	private static final MessageDigest DIGEST;
-	static {
-		try {
-			DIGEST = MessageDigest.getInstance("md5");
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("Could not create an MD5 hash digest");
-		}
-	}
-	
-	@Inject
-	Jsonb jsonb;
 	@Inject
 	CachingService<?> cachingService;
+	@Inject
+	ManagedExecutor executor;
+	@Inject
+	Jsonb jsonb;
 
 	/**
 	 * Builds a response using passed data. Uses references to the caching service
@@ -59,36 +79,280 @@ public class ResponseHelper {
 	 * @return a complete response object for the given data and request.
 	 */
 	public Response build(String id, RequestWrapper wrapper, Object data) {
+		return buildResponse(id, wrapper, data, Collections.emptyList(), null);
+	}
+
+	/**
+	 * Builds a response for a lookup of an entity that doesn't exist. As entities
+	 * can be created at any time, the response is only cached for as long as the
+	 * ID is reported as missing rather than for the TTL of cached values.
+	 * 
+	 * @param id      the ID of the looked up entity
+	 * @param wrapper the query parameters for the current request
+	 * @param data    the empty result to attach to the response
+	 * @param maxAge  the number of seconds the response can be cached for
+	 * @return a complete response object for the given data and request.
+	 */
+	public Response buildMissing(String id, RequestWrapper wrapper, Object data, long maxAge) {
+		return buildResponse(id, wrapper, data, Collections.emptyList(), maxAge);
+	}
+
+	/**
+	 * Builds a response for a page of results with the given items inserted at the
+	 * start of the page. The items are serialized separately and joined to the
+	 * serialized body of the cached page, so that the page itself is not
+	 * serialized again when the inserted items change between requests.
+	 * 
+	 * @param id      the ID of the object to be stored in cache
+	 * @param wrapper the query parameters for the current request
+	 * @param data    the page of results to attach to the response
+	 * @param prepend the items to insert at the start of the page
+	 * @return a complete response object for the given data and request.
+	 */
+	public Response build(String id, RequestWrapper wrapper, PaginatedResult<?> data, List<?> prepend) {
+		return buildResponse(id, wrapper, data, prepend, null);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #build(String, RequestWrapper, Object)}. The
+	 * response is built with the context of the current request once the data is
+	 * available, returning a server error if the data could not be retrieved.
+	 * 
+	 * @param id      the ID of the object to be stored in cache
+	 * @param wrapper the query parameters for the current request
+	 * @param data    stage that completes with the data to attach to the response
+	 * @return a stage that completes with the response for the given data and
+	 *         request.
+	 */
+	public <T> CompletionStage<Response> buildAsync(String id, RequestWrapper wrapper,
+			CompletionStage<Optional<T>> data) {
+		return StreamHelper.withContext(executor, data).thenApplyAsync(d -> {
+			if (!d.isPresent()) {
+				LOGGER.error("Error while retrieving results for ID {}", id);
+				return Response.serverError().build();
+			}
+			return build(id, wrapper, d.get());
+		});
+	}
+
+	/**
+	 * Asynchronous variant of {@link #build(String, RequestWrapper, Object)} for
+	 * lookups of a single entity by ID. Empty results are answered as missing
+	 * entities using {@link #buildMissing(String, RequestWrapper, Object, long)},
+	 * and are removed from the cache as missing IDs are tracked separately for a
+	 * shorter time.
+	 * 
+	 * @param id            the ID of the looked up entity
+	 * @param wrapper       the query parameters for the current request
+	 * @param data          stage that completes with the results of the lookup
+	 * @param missingMaxAge the number of seconds responses for missing entities
+	 *                      can be cached for
+	 * @return a stage that completes with the response for the given data and
+	 *         request.
+	 */
+	public <T extends Collection<?>> CompletionStage<Response> buildLookupAsync(String id, RequestWrapper wrapper,
+			CompletionStage<Optional<T>> data, long missingMaxAge) {
+		return StreamHelper.withContext(executor, data).thenApplyAsync(d -> {
+			if (!d.isPresent()) {
+				LOGGER.error("Error while retrieving results for ID {}", id);
+				return Response.serverError().build();
+			}
+			if (d.get().isEmpty()) {
+				cachingService.remove(cachingService.getCacheKey(id, wrapper, null));
+				return buildMissing(id, wrapper, d.get(), missingMaxAge);
+			}
+			return build(id, wrapper, d.get());
+		});
+	}
+
+	private Response buildResponse(String id, RequestWrapper wrapper, Object data, List<?> prepend, Long maxAge) {
+		// pages of results carry the total number of results for their filters
+		Long total = data instanceof PaginatedResult ? ((PaginatedResult<?>) data).getTotal() : null;
 		// set default cache control flags for API responses
 		CacheControl cc = new CacheControl();
 		cc.setNoStore(wrapper.isCacheBypass());
 
 		if (!cc.isNoStore()) {
-			cc.setMaxAge((int) cachingService.getMaxAge());
-			// get the TTL for the current entry
-			Optional<Long> ttl = cachingService.getExpiration(id, wrapper);
-			if (!ttl.isPresent()) {
-				return Response.serverError().build();
+			long seconds = maxAge != null ? maxAge : cachingService.getMaxAge();
+			cc.setMaxAge((int) seconds);
+			// get the TTL and age for the current entry. The entry may have been evicted
+			// since the data was retrieved, in which case the data is as fresh as a new
+			// entry. Missing entities have no entry, as they aren't kept in the cache
+			long now = System.currentTimeMillis();
+			Optional<? extends CacheEntry<?>> entry = maxAge != null ? Optional.empty()
+					: cachingService.getEntry(id, wrapper);
+			Date expires = new Date(
+					entry.map(CacheEntry::getExpiresAt).orElse(now + TimeUnit.SECONDS.toMillis(seconds)));
+			long age = entry.map(e -> e.getAge(now)).orElse(0L);
+
+			// use the body of the cached value, only serializing data that isn't cached
+			SerializedValue body = prepend(entry.filter(e -> e.getValue() == data)
+					.map(e -> e.getSerialized(this::serialize)).orElseGet(() -> serialize(data)), prepend);
+			String hash = body.getETag();
+
+			// check if etag matches
+			if (matchesETag(wrapper, hash)) {
+				return Response.notModified(hash).cacheControl(cc).expires(expires)
+						.header(ResponseHeaderNames.AGE, age).build();
 			}
+			// return the encoding of the body accepted by the client w/ the generated etag
+			ResponseBuilder builder = Response.ok().type(MediaType.APPLICATION_JSON_TYPE)
+					.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			if (acceptsGzip(wrapper.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+				builder.entity(body.getGzip()).header(HttpHeaders.CONTENT_ENCODING, GZIP);
+			} else {
+				builder.entity(body.getJson());
+			}
+			return addPagination(builder, wrapper, total).tag(hash).cacheControl(cc).expires(expires)
+					.header(ResponseHeaderNames.AGE, age).build();
+		}
+		return addPagination(Response.ok(prepend(serialize(data), prepend).getJson(), MediaType.APPLICATION_JSON_TYPE),
+				wrapper, total).cacheControl(cc).build();
+	}
 
-			// serialize the data to get an etag
-			String content = jsonb.toJson(Objects.requireNonNull(data));
-			// ingest the content and hash to create an etag for current content
-			String hash;
-			synchronized (this) {
-				DIGEST.update(content.getBytes(StandardCharsets.UTF_8));
-				hash = DatatypeConverter.printHexBinary(DIGEST.digest());
-				DIGEST.reset();
+	/**
+	 * Checks whether the value of an Accept-Encoding header allows gzip encoded
+	 * responses.
+	 * 
+	 * @param acceptEncoding the value of the Accept-Encoding header, or null if
+	 *                       not set
+	 * @return true if the client accepts gzip encoded responses, otherwise false
+	 */
+	public static boolean acceptsGzip(String acceptEncoding) {
+		if (StringUtils.isBlank(acceptEncoding)) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim();
+			if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+				// a quality of 0 marks the encoding as not acceptable
+				for (int i = 1; i < parts.length; i++) {
+					String param = parts[i].trim();
+					if (param.startsWith("q=") && NumberUtils.toDouble(param.substring(2), 1) == 0) {
+						return false;
+					}
+				}
+				return true;
 			}
-			
-			// check if etag matches
-			String etag = wrapper.getHeader("Etag");
-			if (hash.equals(etag)) {
-				return Response.notModified(etag).cacheControl(cc).expires(new Date(ttl.get())).build();
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the client already has the current version of the body, using
+	 * the If-None-Match header or the ETag header sent by older clients.
+	 * 
+	 * @param wrapper the current request
+	 * @param etag    the ETag of the current body
+	 * @return true if the client has the current version, otherwise false
+	 */
+	private static boolean matchesETag(RequestWrapper wrapper, String etag) {
+		if (etag.equals(wrapper.getHeader("Etag"))) {
+			return true;
+		}
+		String ifNoneMatch = wrapper.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if (StringUtils.isBlank(ifNoneMatch)) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			// If-None-Match uses weak comparison, so weak tags also match
+			String value = StringUtils.removeStart(tag.trim(), "W/");
+			if ("*".equals(value) || etag.equals(StringUtils.strip(value, "\""))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SerializedValue serialize(Object data) {
+		return CacheValueHelper.toResponseBody(jsonb, data);
+	}
+
+	/**
+	 * Joins the serialized items to the start of a serialized JSON array.
+	 * 
+	 * @param body    the serialized JSON array
+	 * @param prepend the items to insert at the start of the array
+	 * @return the body with the items inserted, or the body if there are no items
+	 */
+	private SerializedValue prepend(SerializedValue body, List<?> prepend) {
+		if (prepend.isEmpty()) {
+			return body;
+		}
+		byte[] items = jsonb.toJson(prepend).getBytes(StandardCharsets.UTF_8);
+		byte[] array = body.getJson();
+		// an empty array is replaced by the items, otherwise the brackets between are dropped
+		if (array.length <= 2) {
+			return new SerializedValue(items);
+		}
+		byte[] out = new byte[items.length + array.length - 1];
+		System.arraycopy(items, 0, out, 0, items.length - 1);
+		out[items.length - 1] = ',';
+		System.arraycopy(array, 1, out, items.length, array.length - 1);
+		return new SerializedValue(out);
+	}
+
+	/**
+	 * Adds the total count and RFC 5988 Link headers to the response when a total
+	 * is available. Page links are only generated for offset pagination, as keyset
+	 * pagination uses the next cursor header instead.
+	 * 
+	 * @param builder the response builder to add headers to
+	 * @param wrapper the query parameters for the current request
+	 * @param total   the total number of results, or null if not available
+	 * @return the response builder
+	 */
+	private ResponseBuilder addPagination(ResponseBuilder builder, RequestWrapper wrapper, Long total) {
+		if (total == null) {
+			return builder;
+		}
+		builder.header(ResponseHeaderNames.TOTAL_COUNT, total);
+		if (wrapper.getFirstParam(UrlParameterNames.CURSOR).isPresent()) {
+			return builder;
+		}
+		// calculate the current and last page for the request
+		int limit = getLimit(wrapper);
+		int page = getPage(wrapper);
+		long last = Math.max(1, (total + limit - 1) / limit);
+
+		List<Link> links = new ArrayList<>();
+		links.add(getPageLink(wrapper, 1, "first"));
+		if (page > 1) {
+			links.add(getPageLink(wrapper, Math.min(page - 1, last), "prev"));
+		}
+		if (page < last) {
+			links.add(getPageLink(wrapper, page + 1, "next"));
+		}
+		links.add(getPageLink(wrapper, last, "last"));
+		return builder.links(links.toArray(new Link[links.size()]));
+	}
+
+	private Link getPageLink(RequestWrapper wrapper, long page, String rel) {
+		UriBuilder b = wrapper.getRequestUriBuilder().replaceQueryParam(UrlParameterNames.PAGE.getParameterName(),
+				page);
+		return Link.fromUriBuilder(b).rel(rel).build();
+	}
+
+	private int getLimit(RequestWrapper wrapper) {
+		Optional<String> limitOpt = wrapper.getFirstParam(UrlParameterNames.LIMIT);
+		if (limitOpt.isPresent() && StringUtils.isNumeric(limitOpt.get())) {
+			int limit = Integer.parseInt(limitOpt.get());
+			if (limit > 0) {
+				return Math.min(limit, defaultMax);
+			}
+		}
+		return defaultLimit;
+	}
+
+	private int getPage(RequestWrapper wrapper) {
+		Optional<String> pageOpt = wrapper.getFirstParam(UrlParameterNames.PAGE);
+		if (pageOpt.isPresent() && StringUtils.isNumeric(pageOpt.get())) {
+			int page = Integer.parseInt(pageOpt.get());
+			if (page > 0) {
+				return page;
 			}
-			// return a response w/ the generated etag
-			return Response.ok(data).tag(hash).cacheControl(cc).expires(new Date(ttl.get())).build();
 		}
-		return Response.ok(data).cacheControl(cc).build();
+		return 1;
 	}
 }
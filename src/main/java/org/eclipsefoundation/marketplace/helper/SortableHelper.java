@@ -7,12 +7,14 @@
 package org.eclipsefoundation.marketplace.helper;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.eclipsefoundation.marketplace.model.SortableField;
@@ -35,9 +37,15 @@ public class SortableHelper {
 	private static final Map<Class<?>, Function<String, ?>> CONVERSION_FUNCTIONS = new HashMap<>();
 	static {
 		CONVERSION_FUNCTIONS.put(long.class, Long::valueOf);
+		CONVERSION_FUNCTIONS.put(Long.class, Long::valueOf);
 		CONVERSION_FUNCTIONS.put(int.class, Integer::valueOf);
+		CONVERSION_FUNCTIONS.put(Integer.class, Integer::valueOf);
 		CONVERSION_FUNCTIONS.put(String.class, s -> s);
 	}
+	// dates are represented as strings on objects, but stored as dates in DB
+	private static final Function<String, ?> DATE_CONVERSION_FUNCTION = DateTimeHelper::toRFC3339;
+	// types don't change at runtime, so each type only needs to be read once
+	private static final Map<Class<?>, List<Sortable<?>>> SORTABLE_FIELDS = new ConcurrentHashMap<>();
 
 	/**
 	 * <p>
@@ -50,14 +58,18 @@ public class SortableHelper {
 	 * annotations on fields. The parent Fields annotation values will be passed to
 	 * the recursive call to create compound path keys for queries.
 	 * </p>
+	 * <p>
+	 * Results are cached per class, so the reflective read happens once per type.
+	 * </p>
 	 * 
 	 * @param tgt the class to reflectively read the fields of
-	 * @return list of annotated field properties
+	 * @return unmodifiable list of annotated field properties
 	 */
 	public static List<Sortable<?>> getSortableFields(Class<?> tgt) {
 		Objects.requireNonNull(tgt);
 		
-		return parseClass(0, tgt, null, new LinkedList<>());
+		return SORTABLE_FIELDS.computeIfAbsent(tgt,
+				k -> Collections.unmodifiableList(parseClass(0, k, null, new LinkedList<>())));
 	}
 
 	/**
@@ -78,13 +90,17 @@ public class SortableHelper {
 
 	private static List<Sortable<?>> parseClass(int depth, Class<?> tgt, Sortable<?> parent, List<Sortable<?>> coll) {
 		for (Field f : tgt.getDeclaredFields()) {
+			// if annotation exists, get values from it
+			SortableField sf = f.getAnnotation(SortableField.class);
+
 			// create new container for field
-			Sortable<?> c = new Sortable<>(f.getType());
+			Sortable<?> c = new Sortable<>(f.getType(), sf != null && sf.date());
 			c.name = NAMING_STRATEGY.translate(f.getName());
 			c.path = c.name;
-
-			// if annotation exists, get values from it
-			SortableField sf = f.getAnnotation(SortableField.class);
+			// only root level fields can be read directly from an object
+			if (parent == null) {
+				c.field = f;
+			}
 			// if not sortable, still generate in case children fields require parent data
 			if (sf == null) {
 				// if parent exists, concat the paths
@@ -131,13 +147,14 @@ public class SortableHelper {
 	public static final class Sortable<T> {
 		private String name;
 		private String path;
+		private Field field;
 		private final Class<T> type;
 		private final Function<String, ?> func;
 
-		private Sortable(Class<T> type) {
+		private Sortable(Class<T> type, boolean isDate) {
 			this.type = type;
 			// get conversion function which is required for searching properly for value in DB.
-			this.func = CONVERSION_FUNCTIONS.get(type);
+			this.func = isDate ? DATE_CONVERSION_FUNCTION : CONVERSION_FUNCTIONS.get(type);
 		}
 		
 		/**
@@ -156,6 +173,37 @@ public class SortableHelper {
 			return (T) func.apply(value);
 		}
 
+		/**
+		 * Whether the value of this field can be read directly from an object of
+		 * the sortable type. Nested fields are not currently readable.
+		 * 
+		 * @return true if the value can be read using
+		 *         {@link Sortable#getValue(Object)}, otherwise false.
+		 */
+		public boolean isReadable() {
+			return field != null;
+		}
+
+		/**
+		 * Reads the value of the sortable field from the passed object.
+		 * 
+		 * @param src the object to read the field value from
+		 * @return the value of the field for the given object, or null if not set
+		 */
+		public Object getValue(Object src) {
+			if (!isReadable()) {
+				throw new IllegalStateException("Field '" + name + "' cannot be read from a root object");
+			}
+			try {
+				if (!field.isAccessible()) {
+					field.setAccessible(true);
+				}
+				return field.get(Objects.requireNonNull(src));
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Could not read value of field '" + name + "'", e);
+			}
+		}
+
 		/**
 		 * @return the name
 		 */
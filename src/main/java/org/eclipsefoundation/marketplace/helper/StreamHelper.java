@@ -6,10 +6,22 @@
  */
 package org.eclipsefoundation.marketplace.helper;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 
+import javax.json.bind.Jsonb;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +56,104 @@ public class StreamHelper {
 		return null;
 	}
 
+	/**
+	 * Wraps the stage in a stage backed by the managed executor. Async stages that
+	 * depend on the returned stage run on the managed executor with the context
+	 * captured when they are created, regardless of which thread completes the
+	 * wrapped stage.
+	 * 
+	 * @param <T>      the type of object that contains results of async call
+	 * @param executor the managed executor to back the stage with
+	 * @param stage    the stage to wrap
+	 * @return a managed stage that completes with the result of the wrapped stage
+	 */
+	public static <T> CompletionStage<T> withContext(ManagedExecutor executor, CompletionStage<T> stage) {
+		return executor.completedFuture(null).thenCompose(v -> stage);
+	}
+
+	/**
+	 * Creates a streaming output that writes the results of the publisher to the
+	 * response as newline delimited JSON as they are received. Results are
+	 * requested one at a time so that only the current result is held in memory.
+	 * 
+	 * @param <T>       the type of object published
+	 * @param publisher the publisher of the results to write
+	 * @param jsonb     the JSON-B instance to serialize results with
+	 * @return the streaming output for the published results
+	 */
+	public static <T> StreamingOutput toStreamingOutput(Publisher<T> publisher, Jsonb jsonb) {
+		return out -> {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			JsonWritingSubscriber<T> subscriber = new JsonWritingSubscriber<>(writer, jsonb);
+			publisher.subscribe(subscriber);
+			// await the end of the stream before closing out the response
+			try {
+				subscriber.done.get();
+			} catch (InterruptedException e) {
+				LOGGER.error("Streaming of results was interrupted before completion", e);
+				Thread.currentThread().interrupt();
+				throw new IOException("Streaming of results was interrupted", e);
+			} catch (ExecutionException e) {
+				LOGGER.error("Streaming of results completed exceptionally: {}", e.getCause(), e);
+				throw new IOException("Error while streaming results", e.getCause());
+			}
+			writer.flush();
+		};
+	}
+
+	/**
+	 * Subscriber that writes each received result to a writer as a line of JSON,
+	 * requesting the next result only once the current one has been written.
+	 * 
+	 * @param <T> the type of object being written
+	 */
+	private static class JsonWritingSubscriber<T> implements Subscriber<T> {
+		private final Writer writer;
+		private final Jsonb jsonb;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private Subscription subscription;
+		private boolean first = true;
+
+		private JsonWritingSubscriber(Writer writer, Jsonb jsonb) {
+			this.writer = writer;
+			this.jsonb = jsonb;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			this.subscription = s;
+			s.request(1);
+		}
+
+		@Override
+		public void onNext(T item) {
+			try {
+				writer.write(jsonb.toJson(item));
+				writer.write('\n');
+				// flush the first result to get the response to the client quickly
+				if (first) {
+					writer.flush();
+					first = false;
+				}
+				subscription.request(1);
+			} catch (IOException e) {
+				subscription.cancel();
+				done.completeExceptionally(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			done.completeExceptionally(t);
+		}
+
+		@Override
+		public void onComplete() {
+			done.complete(null);
+		}
+	}
+
 	private StreamHelper() {
 	}
 }
@@ -0,0 +1,185 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Summary of a write of one or more documents to the database. Writes are not
+ * atomic, so some documents may be written while others fail. Failures are
+ * reported using the index of the document in the list of documents passed to
+ * be written.
+ * 
+ * @author Martin Lowe
+ */
+public class BulkWriteSummary {
+	private int inserted;
+	private int upserted;
+	private int matched;
+	private int modified;
+	private List<Failure> failures;
+	private List<String> writtenIds;
+
+	public BulkWriteSummary() {
+		this.failures = new ArrayList<>();
+		this.writtenIds = new ArrayList<>();
+	}
+
+	/**
+	 * Adds the counts from the result of a bulk write operation to the summary.
+	 * 
+	 * @param result the result of the bulk write
+	 * @return this summary for chaining
+	 */
+	public BulkWriteSummary add(BulkWriteResult result) {
+		if (result != null && result.wasAcknowledged()) {
+			this.inserted += result.getInsertedCount();
+			this.upserted += result.getUpserts().size();
+			this.matched += result.getMatchedCount();
+			this.modified += result.getModifiedCount();
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the errors from a bulk write operation to the summary, offsetting the
+	 * index of the errors to match the index within the full list of documents.
+	 * 
+	 * @param errors the errors encountered while writing
+	 * @param offset the index of the first document sent in the bulk write
+	 * @return this summary for chaining
+	 */
+	public BulkWriteSummary addErrors(List<BulkWriteError> errors, int offset) {
+		for (BulkWriteError error : errors) {
+			failures.add(new Failure(error.getIndex() + offset, error.getCode(), error.getMessage()));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the ID of a document that was written to the summary.
+	 * 
+	 * @param id the ID of the written document
+	 * @return this summary for chaining
+	 */
+	public BulkWriteSummary addWrittenId(String id) {
+		if (id != null) {
+			writtenIds.add(id);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the number of documents inserted
+	 */
+	public int getInserted() {
+		return inserted;
+	}
+
+	/**
+	 * @return the number of documents inserted through an upsert
+	 */
+	public int getUpserted() {
+		return upserted;
+	}
+
+	/**
+	 * @return the number of existing documents matched for replacement
+	 */
+	public int getMatched() {
+		return matched;
+	}
+
+	/**
+	 * @return the number of existing documents modified
+	 */
+	public int getModified() {
+		return modified;
+	}
+
+	/**
+	 * @return the number of documents that could not be written
+	 */
+	public int getFailed() {
+		return failures.size();
+	}
+
+	/**
+	 * @return the failures encountered while writing documents
+	 */
+	public List<Failure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * @return the IDs of the documents that were written, including IDs generated
+	 *         while inserting
+	 */
+	public List<String> getWrittenIds() {
+		return Collections.unmodifiableList(writtenIds);
+	}
+
+	/**
+	 * @return true if any document could not be written, false otherwise
+	 */
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("BulkWriteSummary [inserted=").append(inserted);
+		sb.append(", upserted=").append(upserted);
+		sb.append(", matched=").append(matched);
+		sb.append(", modified=").append(modified);
+		sb.append(", failed=").append(failures.size());
+		sb.append(']');
+		return sb.toString();
+	}
+
+	/**
+	 * Represents a single document that could not be written to the database.
+	 */
+	public static class Failure {
+		private final int index;
+		private final int code;
+		private final String message;
+
+		public Failure(int index, int code, String message) {
+			this.index = index;
+			this.code = code;
+			this.message = message;
+		}
+
+		/**
+		 * @return the index of the document within the documents passed to be written
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the MongoDB error code
+		 */
+		public int getCode() {
+			return code;
+		}
+
+		/**
+		 * @return the error message
+		 */
+		public String getMessage() {
+			return message;
+		}
+	}
+}
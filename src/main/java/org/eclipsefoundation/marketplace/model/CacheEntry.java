@@ -0,0 +1,198 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Value stored in the cache along with the metadata for the entry. The entry is
+ * created once when the value is loaded, so the expiration and age of a value
+ * are always available while the value is cached.
+ *
+ * @author Martin Lowe
+ * @param <T> the type of the cached value
+ */
+public class CacheEntry<T> {
+	// estimated heap use of the entry itself, its hashed key, and its tags
+	private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+	private final String key;
+	private final T value;
+	private final long loadedAt;
+	private final long expiresAt;
+	private final long loadNanos;
+	private final long size;
+	private final Set<String> tags;
+	private final LongAdder hits;
+	private final AtomicBoolean refreshing;
+	private volatile SerializedValue serialized;
+
+	/**
+	 * @param key       the readable cache key of the entry
+	 * @param value     the cached value
+	 * @param loadedAt  the time the value finished loading in millis since epoch
+	 * @param ttl       the time to live of the value in millis
+	 * @param loadNanos the time taken to load the value in nanoseconds
+	 * @param size      the size of the serialized value in bytes, or -1 if
+	 *                  unknown
+	 * @param tags      the tags of the entities contained in the value
+	 */
+	public CacheEntry(String key, T value, long loadedAt, long ttl, long loadNanos, long size, Set<String> tags) {
+		this.key = Objects.requireNonNull(key);
+		this.value = Objects.requireNonNull(value);
+		this.loadedAt = loadedAt;
+		this.expiresAt = loadedAt + ttl;
+		this.loadNanos = loadNanos;
+		this.size = size;
+		this.tags = Collections.unmodifiableSet(tags);
+		this.hits = new LongAdder();
+		this.refreshing = new AtomicBoolean();
+	}
+
+	/**
+	 * Records a request that was served by this entry.
+	 */
+	public void recordHit() {
+		hits.increment();
+	}
+
+	/**
+	 * Marks the entry as being refreshed, so that only one refresh is started for
+	 * the entry.
+	 * 
+	 * @return true if the refresh should be started, false if one was already
+	 *         started
+	 */
+	public boolean startRefresh() {
+		return refreshing.compareAndSet(false, true);
+	}
+
+	/**
+	 * Clears the mark set when the refresh started, so that the entry can be
+	 * refreshed again after a failed refresh.
+	 */
+	public void endRefresh() {
+		refreshing.set(false);
+	}
+
+	/**
+	 * @param now the current time in millis since epoch
+	 * @return true if the entry is within its time to live, otherwise false
+	 */
+	public boolean isFresh(long now) {
+		return expiresAt > now;
+	}
+
+	/**
+	 * @param now the current time in millis since epoch
+	 * @return the age of the entry in seconds, as used in the Age header
+	 */
+	public long getAge(long now) {
+		return TimeUnit.MILLISECONDS.toSeconds(Math.max(0, now - loadedAt));
+	}
+
+	/**
+	 * @return the readable cache key of the entry
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the cached value
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the time the value finished loading in millis since epoch
+	 */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	/**
+	 * @return the time the value expires in millis since epoch
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @return the time taken to load the value in millis
+	 */
+	public long getLoadTime() {
+		return TimeUnit.NANOSECONDS.toMillis(loadNanos);
+	}
+
+	/**
+	 * @return the size of the serialized value in bytes, or -1 if unknown
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the response body for the value if it has been serialized, otherwise
+	 *         empty
+	 */
+	public Optional<SerializedValue> getSerialized() {
+		return Optional.ofNullable(serialized);
+	}
+
+	/**
+	 * Returns the response body for the value, serializing the value on first use
+	 * so that later responses for the entry reuse the same bytes.
+	 * 
+	 * @param serializer function that serializes the value into a response body
+	 * @return the response body for the value
+	 */
+	public SerializedValue getSerialized(Function<? super T, SerializedValue> serializer) {
+		SerializedValue current = serialized;
+		if (current == null) {
+			current = serializer.apply(value);
+			serialized = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Estimates the heap used by the entry, based on the size of the serialized
+	 * value and the key. The size is counted twice, as the value is kept along
+	 * with its serialized response body. Values with an unknown size are only
+	 * weighed by the entry overhead.
+	 * 
+	 * @return the estimated size of the entry in bytes, as used to weigh entries
+	 *         in the cache
+	 */
+	public int getWeight() {
+		long weight = ENTRY_OVERHEAD_BYTES + 2L * key.length() + 2L * Math.max(0, size);
+		return (int) Math.min(Integer.MAX_VALUE, weight);
+	}
+
+	/**
+	 * @return the tags of the entities contained in the value
+	 */
+	public Set<String> getTags() {
+		return tags;
+	}
+
+	/**
+	 * @return the number of requests served by this entry
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+}
@@ -0,0 +1,122 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the statistics of a cache since the application started.
+ *
+ * @author Martin Lowe
+ */
+public class CacheStatistics {
+	private final long hits;
+	private final long misses;
+	private final long loads;
+	private final long loadFailures;
+	private final double averageLoadMillis;
+	private final double p99LoadMillis;
+	private final Map<String, Long> evictions;
+	private final CacheUsage usage;
+
+	/**
+	 * @param hits              the number of requests served from the cache
+	 * @param misses            the number of requests that needed a load
+	 * @param loads             the number of values loaded
+	 * @param loadFailures      the number of loads that failed
+	 * @param averageLoadMillis the average time taken by loads in millis
+	 * @param p99LoadMillis     the 99th percentile of the time taken by loads in
+	 *                          millis
+	 * @param evictions         the number of evicted entries by cause
+	 * @param usage             the current number and size of entries
+	 */
+	public CacheStatistics(long hits, long misses, long loads, long loadFailures, double averageLoadMillis,
+			double p99LoadMillis, Map<String, Long> evictions, CacheUsage usage) {
+		this.hits = hits;
+		this.misses = misses;
+		this.loads = loads;
+		this.loadFailures = loadFailures;
+		this.averageLoadMillis = averageLoadMillis;
+		this.p99LoadMillis = p99LoadMillis;
+		this.evictions = evictions;
+		this.usage = usage;
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests that needed a load
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the ratio of requests served from the cache, or 1 if there have been
+	 *         no requests
+	 */
+	public double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 1 : (double) hits / requests;
+	}
+
+	/**
+	 * @return the ratio of requests that needed a load, or 0 if there have been no
+	 *         requests
+	 */
+	public double getMissRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) misses / requests;
+	}
+
+	/**
+	 * @return the number of values loaded
+	 */
+	public long getLoads() {
+		return loads;
+	}
+
+	/**
+	 * @return the number of loads that failed
+	 */
+	public long getLoadFailures() {
+		return loadFailures;
+	}
+
+	/**
+	 * @return the average time taken by loads in millis
+	 */
+	public double getAverageLoadMillis() {
+		return averageLoadMillis;
+	}
+
+	/**
+	 * @return the 99th percentile of the time taken by loads in millis
+	 */
+	public double getP99LoadMillis() {
+		return p99LoadMillis;
+	}
+
+	/**
+	 * @return the number of evicted entries by cause
+	 */
+	public Map<String, Long> getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the current number and size of entries
+	 */
+	public CacheUsage getUsage() {
+		return usage;
+	}
+}
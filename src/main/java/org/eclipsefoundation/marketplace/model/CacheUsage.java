@@ -0,0 +1,62 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Snapshot of the number of entries in a cache and their estimated size, along
+ * with the limit the cache is bound by.
+ * 
+ * @author Martin Lowe
+ */
+public class CacheUsage {
+	private final long entries;
+	private final long bytes;
+	private final long maxEntries;
+	private final long maxBytes;
+
+	/**
+	 * @param entries    the number of entries in the cache
+	 * @param bytes      the estimated size of the entries in bytes
+	 * @param maxEntries the maximum number of entries, or -1 if not bound by count
+	 * @param maxBytes   the maximum estimated size in bytes, or -1 if not bound by
+	 *                   size
+	 */
+	public CacheUsage(long entries, long bytes, long maxEntries, long maxBytes) {
+		this.entries = entries;
+		this.bytes = bytes;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the number of entries in the cache
+	 */
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the estimated size of the entries in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the maximum number of entries, or -1 if not bound by count
+	 */
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return the maximum estimated size in bytes, or -1 if not bound by size
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+}
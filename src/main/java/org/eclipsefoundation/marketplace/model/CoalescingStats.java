@@ -0,0 +1,51 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Snapshot of the counts of DAO operations that were run or collapsed into an
+ * operation that was already in flight.
+ * 
+ * @author Martin Lowe
+ */
+public class CoalescingStats {
+	private final long executed;
+	private final long collapsed;
+	private final int inFlight;
+
+	/**
+	 * @param executed  the number of operations that were run
+	 * @param collapsed the number of calls that shared an in-flight operation
+	 * @param inFlight  the number of operations currently in flight
+	 */
+	public CoalescingStats(long executed, long collapsed, int inFlight) {
+		this.executed = executed;
+		this.collapsed = collapsed;
+		this.inFlight = inFlight;
+	}
+
+	/**
+	 * @return the number of operations that were run
+	 */
+	public long getExecuted() {
+		return executed;
+	}
+
+	/**
+	 * @return the number of calls that shared an in-flight operation
+	 */
+	public long getCollapsed() {
+		return collapsed;
+	}
+
+	/**
+	 * @return the number of operations currently in flight
+	 */
+	public int getInFlight() {
+		return inFlight;
+	}
+}
@@ -0,0 +1,52 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Estimated number of requests for a cache key. Counts are tracked for a
+ * limited number of keys, so the count of a key may include up to
+ * {@link #getError()} requests for keys it replaced.
+ *
+ * @author Martin Lowe
+ */
+public class HotKey {
+	private final String key;
+	private final long count;
+	private final long error;
+
+	/**
+	 * @param key   the cache key
+	 * @param count the estimated number of requests for the key
+	 * @param error the maximum overestimation of the count
+	 */
+	public HotKey(String key, long count, long error) {
+		this.key = key;
+		this.count = count;
+		this.error = error;
+	}
+
+	/**
+	 * @return the cache key
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the estimated number of requests for the key
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the maximum overestimation of the count
+	 */
+	public long getError() {
+		return error;
+	}
+}
@@ -0,0 +1,66 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Report on the state of indexes for a single collection, comparing the indexes
+ * declared by the application to the indexes that exist in the database.
+ * 
+ * @author Martin Lowe
+ */
+public class IndexReport {
+	private final String collection;
+	private final Set<String> declared;
+	private final Set<String> existing;
+
+	/**
+	 * @param collection the name of the collection
+	 * @param declared   the names of indexes declared by the application
+	 * @param existing   the names of indexes that exist in the database
+	 */
+	public IndexReport(String collection, Set<String> declared, Set<String> existing) {
+		this.collection = collection;
+		this.declared = new TreeSet<>(declared);
+		this.existing = new TreeSet<>(existing);
+	}
+
+	/**
+	 * @return the name of the collection
+	 */
+	public String getCollection() {
+		return collection;
+	}
+
+	/**
+	 * @return the names of indexes declared by the application
+	 */
+	public Set<String> getDeclared() {
+		return Collections.unmodifiableSet(declared);
+	}
+
+	/**
+	 * @return the names of indexes that exist in the database
+	 */
+	public Set<String> getExisting() {
+		return Collections.unmodifiableSet(existing);
+	}
+
+	/**
+	 * @return the names of declared indexes that do not exist in the database
+	 */
+	public List<String> getMissing() {
+		List<String> missing = new ArrayList<>(declared);
+		missing.removeAll(existing);
+		return missing;
+	}
+}
@@ -0,0 +1,172 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoClient;
+
+/**
+ * Represents a join of external data into a document within an aggregate
+ * pipeline. Joins track the fields they produce as well as any filters that
+ * depend on the joined data, which allows the pipeline to be planned such that
+ * joins only happen before pagination when the joined data is required to
+ * filter or sort results.
+ * 
+ * @author Martin Lowe
+ */
+public class JoinStage {
+	private final String name;
+	private final List<Bson> stages;
+	private final List<Bson> filters;
+	private final Set<String> fields;
+
+	/**
+	 * Creates a join with the given stages that will produce the given fields.
+	 * 
+	 * @param name   the name of the join, used for logging
+	 * @param stages the aggregate stages that perform the join
+	 * @param fields the root level fields that are produced by the join
+	 */
+	public JoinStage(String name, List<Bson> stages, String... fields) {
+		this.name = Objects.requireNonNull(name);
+		this.stages = new ArrayList<>(stages);
+		this.filters = new ArrayList<>();
+		this.fields = new HashSet<>(Arrays.asList(fields));
+	}
+
+	/**
+	 * Copies the given join, using the passed filters in place of any existing
+	 * filters. The stages and fields of the join are shared with the copy.
+	 * 
+	 * @param join    the join to copy
+	 * @param filters the filters for the copied join
+	 */
+	private JoinStage(JoinStage join, List<Bson> filters) {
+		this.name = join.name;
+		this.stages = join.stages;
+		this.filters = new ArrayList<>(filters);
+		this.fields = join.fields;
+	}
+
+	/**
+	 * Creates a copy of this join with its stages rendered to BSON documents, so
+	 * that they aren't rendered again each time the join is used in a pipeline.
+	 * Filters are not copied.
+	 * 
+	 * @return a copy of the join with rendered stages
+	 */
+	public JoinStage render() {
+		List<Bson> rendered = stages.stream()
+				.map(bson -> bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()))
+				.collect(Collectors.toList());
+		return new JoinStage(name, rendered, fields.toArray(new String[0]));
+	}
+
+	/**
+	 * Creates a copy of this join with the given filters on the joined data, in
+	 * place of any existing filters.
+	 * 
+	 * @param filters aggregate stages that filter on joined data
+	 * @return a copy of the join with the given filters
+	 */
+	public JoinStage withFilters(List<Bson> filters) {
+		return new JoinStage(this, filters);
+	}
+
+	/**
+	 * Adds a filter stage that depends on data provided by this join. Null values
+	 * are ignored.
+	 * 
+	 * @param filter aggregate stage that filters on joined data
+	 * @return this join for chaining
+	 */
+	public JoinStage addFilter(Bson filter) {
+		if (filter != null) {
+			this.filters.add(filter);
+		}
+		return this;
+	}
+
+	/**
+	 * Checks whether this join produces data for the field at the given path.
+	 * 
+	 * @param path the path of the field to check
+	 * @return true if the root of the path is produced by this join
+	 */
+	public boolean provides(String path) {
+		if (path == null) {
+			return false;
+		}
+		int idx = path.indexOf('.');
+		return fields.contains(idx == -1 ? path : path.substring(0, idx));
+	}
+
+	/**
+	 * @return whether there are filters that depend on the joined data
+	 */
+	public boolean hasFilters() {
+		return !filters.isEmpty();
+	}
+
+	/**
+	 * @return the join stages, followed by any filters on the joined data
+	 */
+	public List<Bson> getPipeline() {
+		List<Bson> out = new ArrayList<>(stages);
+		out.addAll(filters);
+		return out;
+	}
+
+	/**
+	 * @return the join stages, without any filters on the joined data
+	 */
+	public List<Bson> getStages() {
+		return Collections.unmodifiableList(stages);
+	}
+
+	/**
+	 * @return the filters on the joined data
+	 */
+	public List<Bson> getFilters() {
+		return Collections.unmodifiableList(filters);
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the fields produced by the join
+	 */
+	public Set<String> getFields() {
+		return Collections.unmodifiableSet(fields);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("JoinStage [name=").append(name);
+		sb.append(", fields=").append(fields);
+		sb.append(", filters=").append(filters.size());
+		sb.append(']');
+		return sb.toString();
+	}
+}
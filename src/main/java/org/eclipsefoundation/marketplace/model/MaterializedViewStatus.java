@@ -0,0 +1,169 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Report on the state of a materialized collection that is maintained by the
+ * application from the changes made to its source collections.
+ * 
+ * @author Martin Lowe
+ */
+public class MaterializedViewStatus {
+	private String collection;
+	private boolean enabled;
+	private boolean available;
+	private boolean writer;
+	private boolean watching;
+	private String lastRebuild;
+	private long lastRebuildMillis;
+	private int pendingUpdates;
+	private long appliedUpdates;
+	private String lastError;
+
+	/**
+	 * @return the name of the materialized collection
+	 */
+	public String getCollection() {
+		return collection;
+	}
+
+	/**
+	 * @param collection the name of the materialized collection
+	 */
+	public void setCollection(String collection) {
+		this.collection = collection;
+	}
+
+	/**
+	 * @return whether the collection is maintained by the application
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled whether the collection is maintained by the application
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return whether queries are currently served from the collection
+	 */
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * @param available whether queries are currently served from the collection
+	 */
+	public void setAvailable(boolean available) {
+		this.available = available;
+	}
+
+	/**
+	 * @return whether this instance maintains the collection, as only one instance
+	 *         writes to it at a time
+	 */
+	public boolean isWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer whether this instance maintains the collection
+	 */
+	public void setWriter(boolean writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * @return whether changes to the source collections are being watched
+	 */
+	public boolean isWatching() {
+		return watching;
+	}
+
+	/**
+	 * @param watching whether changes to the source collections are being watched
+	 */
+	public void setWatching(boolean watching) {
+		this.watching = watching;
+	}
+
+	/**
+	 * @return the time the last full rebuild completed, or null if it hasn't
+	 */
+	public String getLastRebuild() {
+		return lastRebuild;
+	}
+
+	/**
+	 * @param lastRebuild the time the last full rebuild completed
+	 */
+	public void setLastRebuild(String lastRebuild) {
+		this.lastRebuild = lastRebuild;
+	}
+
+	/**
+	 * @return the duration of the last full rebuild in milliseconds
+	 */
+	public long getLastRebuildMillis() {
+		return lastRebuildMillis;
+	}
+
+	/**
+	 * @param lastRebuildMillis the duration of the last full rebuild in
+	 *                          milliseconds
+	 */
+	public void setLastRebuildMillis(long lastRebuildMillis) {
+		this.lastRebuildMillis = lastRebuildMillis;
+	}
+
+	/**
+	 * @return the number of documents waiting to be updated
+	 */
+	public int getPendingUpdates() {
+		return pendingUpdates;
+	}
+
+	/**
+	 * @param pendingUpdates the number of documents waiting to be updated
+	 */
+	public void setPendingUpdates(int pendingUpdates) {
+		this.pendingUpdates = pendingUpdates;
+	}
+
+	/**
+	 * @return the number of documents updated from changes since startup
+	 */
+	public long getAppliedUpdates() {
+		return appliedUpdates;
+	}
+
+	/**
+	 * @param appliedUpdates the number of documents updated from changes since
+	 *                       startup
+	 */
+	public void setAppliedUpdates(long appliedUpdates) {
+		this.appliedUpdates = appliedUpdates;
+	}
+
+	/**
+	 * @return the message of the last error encountered, or null if there was none
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * @param lastError the message of the last error encountered
+	 */
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+}
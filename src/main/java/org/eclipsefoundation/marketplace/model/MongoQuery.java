@@ -6,25 +6,41 @@
  */
 package org.eclipsefoundation.marketplace.model;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonArray;
 import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
-import org.eclipsefoundation.marketplace.helper.SortableHelper;
 import org.eclipsefoundation.marketplace.helper.SortableHelper.Sortable;
+import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.Hashing;
 import com.mongodb.MongoClient;
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 
 /**
  * Wrapper for initializing MongoDB BSON filters, sort clauses, and document
@@ -34,14 +50,33 @@ import com.mongodb.client.model.Filters;
  */
 public class MongoQuery<T> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MongoQuery.class);
+	// stages whose values are masked when generating fingerprints
+	private static final Set<String> MASKED_STAGES = new HashSet<>(
+			Arrays.asList("$match", "$skip", "$limit", "$sample"));
+	private static final BsonValue MASK = new BsonString("?");
 
 	private QueryParameters params;
 	private DtoFilter<T> dtoFilter;
+	private QueryTemplate template;
 
 	private Bson filter;
 	private Bson sort;
 	private SortOrder order;
+	private Sortable<?> sortField;
 	private List<Bson> aggregates;
+	private List<JoinStage> joins;
+	private Set<String> projection;
+	private String materializedCollection;
+
+	// whether reads must go to the primary, e.g. when reading data that was just
+	// written
+	private boolean primaryRequired;
+	// deadline set by the client in millis since epoch, or null if not set
+	private Long deadline;
+
+	// keyset pagination fields
+	private boolean keyset;
+	private Bson cursorFilter;
 
 	public MongoQuery(RequestWrapper wrapper, DtoFilter<T> dtoFilter) {
 		this(wrapper, Collections.emptyMap(), dtoFilter);
@@ -49,10 +84,17 @@ public class MongoQuery<T> {
 
 	public MongoQuery(RequestWrapper wrapper, Map<String, List<String>> params, DtoFilter<T> dtoFilter) {
 		this.dtoFilter = dtoFilter;
+		this.template = QueryTemplate.forFilter(dtoFilter);
 		this.aggregates = new ArrayList<>();
+		this.joins = new ArrayList<>();
 		// allow for parameters to be either explicitly set or use wrapper params
 		this.params = new QueryParameters(wrapper == null ? params : wrapper.asMap());
+		this.deadline = wrapper == null ? null : wrapper.getDeadline().orElse(null);
 		init();
+		// parameters read by the filters change the results, so they key cached results
+		if (wrapper != null) {
+			wrapper.addFilterParameters(this.params.getReadKeys());
+		}
 	}
 
 	/**
@@ -65,7 +107,13 @@ public class MongoQuery<T> {
 		this.filter = null;
 		this.sort = null;
 		this.order = SortOrder.NONE;
+		this.sortField = null;
 		this.aggregates = new ArrayList<>();
+		this.joins = new ArrayList<>();
+		this.projection = null;
+		this.materializedCollection = dtoFilter.getMaterializedCollection();
+		this.keyset = false;
+		this.cursorFilter = null;
 
 		// get the filters for the current DTO
 		List<Bson> filters = new ArrayList<>();
@@ -86,10 +134,33 @@ public class MongoQuery<T> {
 			}
 		}
 
+		// check if keyset pagination was requested, which cannot be used with random
+		// sampling as there is no stable order
+		Optional<String> cursorOpt = params.getFirstIfPresent(UrlParameterNames.CURSOR.getParameterName());
+		if (cursorOpt.isPresent() && !SortOrder.RANDOM.equals(order) && dtoFilter.useLimit()) {
+			this.keyset = true;
+			// default to ordering by ID when no sort is set
+			if (sort == null) {
+				this.order = SortOrder.ASCENDING;
+				this.sort = Sorts.ascending(DatabaseFieldNames.DOCID);
+			}
+			Optional<PageCursor> cursor = PageCursor.decode(cursorOpt.get());
+			if (cursor.isPresent()) {
+				this.cursorFilter = getCursorFilter(cursor.get());
+			}
+		}
+
 		if (!filters.isEmpty()) {
 			this.filter = Filters.and(filters);
 		}
 		this.aggregates = dtoFilter.getAggregates(params);
+		// fill the filters for the current request into the prepared joins
+		this.joins = new ArrayList<>(template.getJoins().size());
+		for (JoinStage join : template.getJoins()) {
+			List<Bson> joinFilters = dtoFilter.getJoinFilters(join, params);
+			joins.add(joinFilters.isEmpty() ? join : join.withFilters(joinFilters));
+		}
+		this.projection = getProjection();
 
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("MongoDB query initialized with filter: {}", this.filter);
@@ -104,36 +175,302 @@ public class MongoQuery<T> {
 	 * @return the aggregation pipeline
 	 */
 	public List<Bson> getPipeline(int limit) {
+		// ranges on root fields are matched along with the filters so they can use
+		// the indexes of the collection
+		boolean rootCursor = isRootCursor();
+		List<Bson> out = getFilterPipeline(rootCursor ? cursorFilter : null);
+		out.addAll(getPagePipeline(limit, !rootCursor));
+		return out;
+	}
+
+	/**
+	 * Generates the stages of the aggregation pipeline that select the documents
+	 * matching the current filters, including any joins required to filter or sort
+	 * the results. These stages are independent of the requested page of results.
+	 * 
+	 * @return the filtering stages of the aggregation pipeline
+	 */
+	public List<Bson> getFilterPipeline() {
+		return getFilterPipeline(null);
+	}
+
+	private List<Bson> getFilterPipeline(Bson cursorRange) {
+		List<Bson> out = new ArrayList<>();
+		// add filters first
+		if (filter != null && cursorRange != null) {
+			out.add(Aggregates.match(Filters.and(filter, cursorRange)));
+		} else if (filter != null || cursorRange != null) {
+			out.add(Aggregates.match(filter != null ? filter : cursorRange));
+		}
+		// add joins whose data is needed before results can be paged. Materialized
+		// documents already contain the joined data, so only the filters are needed
+		if (isMaterialized()) {
+			joins.forEach(join -> out.addAll(join.getFilters()));
+		} else {
+			getJoins(true).forEach(join -> out.addAll(join.getPipeline()));
+		}
+		// add base aggregates
+		out.addAll(aggregates);
+		return out;
+	}
+
+	/**
+	 * Generates the stages of the aggregation pipeline that sort and page the
+	 * filtered documents, followed by any joins that can be deferred until the
+	 * current page of results has been selected.
+	 * 
+	 * @param limit the number of documents to return
+	 * @return the paging stages of the aggregation pipeline
+	 */
+	public List<Bson> getPagePipeline(int limit) {
+		return getPagePipeline(limit, true);
+	}
+
+	private List<Bson> getPagePipeline(int limit, boolean withCursor) {
 		if (limit < 0) {
 			throw new IllegalStateException("Aggregate pipeline document limit must be greater than 0");
 		}
 		List<Bson> out = new ArrayList<>();
-		// add filters first
-		if (filter != null) {
-			out.add(Aggregates.match(filter));
+		// start the range after the last result of the previous page if set
+		if (withCursor && cursorFilter != null) {
+			out.add(Aggregates.match(cursorFilter));
 		}
-		// add base aggregates (joins)
-		out.addAll(aggregates);
 		if (sort != null) {
 			out.add(Aggregates.sort(sort));
 		}
-		// check if the page param has been set, defaulting to the first page if not set
-		int page = 1;
+		// keyset pagination starts from the cursor range rather than skipping results
+		if (!keyset) {
+			out.add(Aggregates.skip((getPage() - 1) * limit));
+		}
+		// add sample if we aren't sorting
+		if (isSampled()) {
+			out.add(Aggregates.sample(limit));
+		} else if (sort != null && dtoFilter.useLimit()) {
+			out.add(Aggregates.limit(limit));
+		}
+		// join remaining data onto the current page of results only, skipping joins
+		// whose data was not requested
+		if (!isMaterialized()) {
+			getJoins(false).stream().filter(this::isJoinRequested).forEach(join -> out.addAll(join.getPipeline()));
+		}
+		// reduce the documents to the requested fields, recording which fields were
+		// included so that codecs can tell them apart from fields that are missing
+		if (projection != null) {
+			List<String> fields = new ArrayList<>(projection);
+			out.add(Aggregates.project(Projections.fields(Projections.include(fields),
+					Projections.computed(DatabaseFieldNames.PROJECTED_FIELDS, new Document("$literal", fields)))));
+		}
+		return out;
+	}
+
+	/**
+	 * Generates a fingerprint of the filtering stages of the current query. Queries
+	 * that match the same set of documents share a fingerprint regardless of the
+	 * requested page, limit, or cursor.
+	 * 
+	 * @return a hash representing the filters of the current query
+	 */
+	public String getFilterFingerprint() {
+		StringBuilder sb = new StringBuilder(getDocType().getName());
+		sb.append('|').append(getCollectionName());
+		getFilterPipeline().forEach(bson -> sb.append('|')
+				.append(bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).toJson()));
+		return Hashing.sha256().hashString(sb, StandardCharsets.UTF_8).toString();
+	}
+
+	/**
+	 * Checks whether results for this query are retrieved through random sampling,
+	 * which may return the same document more than once.
+	 * 
+	 * @return true if the query uses random sampling, false otherwise
+	 */
+	public boolean isSampled() {
+		return (sort == null || SortOrder.RANDOM.equals(order)) && dtoFilter.useLimit();
+	}
+
+	/**
+	 * Checks whether the cursor range only uses fields of the documents being
+	 * queried, and can be matched before any joins or aggregates are run.
+	 * 
+	 * @return true if there is a cursor range on root fields, otherwise false
+	 */
+	private boolean isRootCursor() {
+		if (cursorFilter == null || !aggregates.isEmpty()) {
+			return false;
+		}
+		return sortField == null || isMaterialized()
+				|| joins.stream().noneMatch(join -> join.provides(sortField.getPath()));
+	}
+
+	/**
+	 * Retrieves the joins for the current query that either need to run before the
+	 * results are paged, or that can be deferred until after paging.
+	 * 
+	 * @param required whether to retrieve required or deferred joins
+	 * @return the list of matching joins in the order they were defined
+	 */
+	private List<JoinStage> getJoins(boolean required) {
+		List<JoinStage> out = joins.stream().filter(join -> isJoinRequired(join) == required)
+				.collect(Collectors.toList());
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Planned {} joins for query: {}", required ? "required" : "deferred", out);
+		}
+		return out;
+	}
+
+	/**
+	 * Checks whether the data produced by a join is part of the requested fields.
+	 * 
+	 * @param join the join to check
+	 * @return true if all fields are requested or the join produces a requested
+	 *         field, false otherwise
+	 */
+	private boolean isJoinRequested(JoinStage join) {
+		return projection == null || join.getFields().stream().anyMatch(projection::contains);
+	}
+
+	/**
+	 * Converts the requested fields from the {@link UrlParameterNames.FIELDS} URL
+	 * parameter into the set of database fields to include in results. Unknown
+	 * fields are ignored. The document ID and current sort field are always
+	 * included so that results can be deduplicated and paginated.
+	 * 
+	 * @return the set of database fields to include, or null if all fields should
+	 *         be returned
+	 */
+	private Set<String> getProjection() {
+		Map<String, String> projectable = dtoFilter.getProjectableFields();
+		List<String> requested = params.getValues(UrlParameterNames.FIELDS.getParameterName());
+		if (projectable.isEmpty() || requested.isEmpty()) {
+			return null;
+		}
+		Set<String> out = new TreeSet<>();
+		for (String value : requested) {
+			for (String name : StringUtils.split(value, ',')) {
+				String path = projectable.get(name.trim().toLowerCase());
+				if (path != null) {
+					out.add(path);
+				} else {
+					LOGGER.debug("Field with name '{}' cannot be selected, skipping", name);
+				}
+			}
+		}
+		if (out.isEmpty()) {
+			return null;
+		}
+		out.add(DatabaseFieldNames.DOCID);
+		if (sortField != null) {
+			out.add(sortField.getPath());
+		}
+		return out;
+	}
+
+	/**
+	 * Checks whether a join needs to be run before the results are sorted and
+	 * paged. This is the case when there are filters on the joined data, or when
+	 * the current sort uses a field produced by the join.
+	 * 
+	 * @param join the join to check
+	 * @return true if the join should run before pagination, false otherwise
+	 */
+	private boolean isJoinRequired(JoinStage join) {
+		return join.hasFilters() || (sortField != null && join.provides(sortField.getPath()));
+	}
+
+	/**
+	 * Generates a cursor that points to the page following the passed results.
+	 * Cursors are only generated for queries that have a stable order, either
+	 * through sorting or through use of the cursor parameter.
+	 * 
+	 * @param results the results for the current page of the query
+	 * @return the encoded cursor for the next page of results, or empty if there
+	 *         are no results or a cursor cannot be generated for the query.
+	 */
+	public Optional<String> getNextCursor(List<T> results) {
+		if (results == null || results.isEmpty() || sort == null || SortOrder.RANDOM.equals(order)
+				|| !dtoFilter.useLimit()) {
+			return Optional.empty();
+		}
+		T last = results.get(results.size() - 1);
+		String lastId = getDocumentId(last);
+		if (lastId == null) {
+			return Optional.empty();
+		}
+		// no sort field means that the results are ordered by ID
+		if (sortField == null) {
+			return Optional.of(new PageCursor(null, order, null, lastId).encode());
+		}
+		if (!sortField.isReadable()) {
+			LOGGER.debug("Sort field '{}' cannot be read, no cursor will be generated", sortField.getName());
+			return Optional.empty();
+		}
+		Object value = sortField.getValue(last);
+		return Optional.of(new PageCursor(sortField.getName(), order, value == null ? null : value.toString(), lastId)
+				.encode());
+	}
+
+	/**
+	 * Creates the range filter that matches all documents that come after the
+	 * position indicated by the cursor, using the document ID as a tiebreaker for
+	 * equal sort values. Cursors generated for a different sort than the current
+	 * query are ignored.
+	 * 
+	 * @param cursor the decoded cursor for the current request
+	 * @return the range filter, or null if the cursor does not match the query
+	 */
+	private Bson getCursorFilter(PageCursor cursor) {
+		String fieldName = sortField == null ? null : sortField.getName();
+		if (!StringUtils.equals(fieldName, cursor.getField()) || !order.equals(cursor.getOrder())) {
+			LOGGER.debug("Cursor {} does not match current sort order, ignoring", cursor);
+			return null;
+		}
+		boolean asc = SortOrder.ASCENDING.equals(order);
+		Bson idRange = asc ? Filters.gt(DatabaseFieldNames.DOCID, cursor.getLastId())
+				: Filters.lt(DatabaseFieldNames.DOCID, cursor.getLastId());
+		if (sortField == null) {
+			return idRange;
+		}
+		String path = sortField.getPath();
+		// null values sort before all other values
+		if (cursor.getValue() == null) {
+			Bson nullRange = Filters.and(Filters.eq(path, null), idRange);
+			return asc ? Filters.or(nullRange, Filters.ne(path, null)) : nullRange;
+		}
+		Object value = sortField.castValue(cursor.getValue());
+		Bson equalRange = Filters.and(Filters.eq(path, value), idRange);
+		if (asc) {
+			return Filters.or(Filters.gt(path, value), equalRange);
+		}
+		return Filters.or(Filters.lt(path, value), equalRange, Filters.eq(path, null));
+	}
+
+	/**
+	 * Checks the URL parameter of {@link UrlParameterNames.PAGE} for a numeric
+	 * value and returns it if present, defaulting to the first page.
+	 * 
+	 * @return the current page for the query, starting at 1
+	 */
+	private int getPage() {
 		Optional<String> pageOpt = params.getFirstIfPresent(UrlParameterNames.PAGE.getParameterName());
 		if (pageOpt.isPresent() && StringUtils.isNumeric(pageOpt.get())) {
 			int tmpPage = Integer.parseInt(pageOpt.get());
 			if (tmpPage > 0) {
-				page = tmpPage;
-				LOGGER.debug("Found a set page of {} for current query", page);
+				LOGGER.debug("Found a set page of {} for current query", tmpPage);
+				return tmpPage;
 			}
 		}
-		
-		out.add(Aggregates.skip((page - 1) * limit));
-		// add sample if we aren't sorting
-		if ((sort == null || SortOrder.RANDOM.equals(order)) && dtoFilter.useLimit()) {
-			out.add(Aggregates.sample(limit));
+		return 1;
+	}
+
+	private static String getDocumentId(Object doc) {
+		try {
+			Method m = doc.getClass().getMethod("getId");
+			Object id = m.invoke(doc);
+			return id == null ? null : id.toString();
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			LOGGER.debug("Could not retrieve ID for document of type {}", doc.getClass().getSimpleName(), e);
+			return null;
 		}
-		return out;
 	}
 
 	/**
@@ -152,17 +489,20 @@ public class MongoQuery<T> {
 	}
 
 	private void setSort(String sortField, String sortOrder) {
-		List<Sortable<?>> fields = SortableHelper.getSortableFields(getDocType());
-		Optional<Sortable<?>> fieldContainer = SortableHelper.getSortableFieldByName(fields, sortField);
+		Optional<Sortable<?>> fieldContainer = template.getSortableField(sortField);
 		if (fieldContainer.isPresent()) {
 			this.order = SortOrder.getOrderByName(sortOrder);
-			// add sorting query if the sortOrder matches a defined order
+			String path = fieldContainer.get().getPath();
+			// add sorting query if the sortOrder matches a defined order, using the ID to
+			// break ties so that the order is stable between pages
 			switch (order) {
 			case ASCENDING:
-				this.sort = Filters.eq(sortField, order.getOrder());
+				this.sortField = fieldContainer.get();
+				this.sort = Sorts.ascending(path, DatabaseFieldNames.DOCID);
 				break;
 			case DESCENDING:
-				this.sort = Filters.eq(sortField, order.getOrder());
+				this.sortField = fieldContainer.get();
+				this.sort = Sorts.descending(path, DatabaseFieldNames.DOCID);
 				break;
 			default:
 				// intentionally empty, no sort
@@ -173,6 +513,44 @@ public class MongoQuery<T> {
 		}
 	}
 
+	/**
+	 * @return true if the query must read from the primary node
+	 */
+	public boolean isPrimaryRequired() {
+		return this.primaryRequired;
+	}
+
+	/**
+	 * Sets whether the query must read from the primary node, ignoring the
+	 * configured read preference. This should be used when reading data that was
+	 * just written, as secondaries may not have received the write yet.
+	 * 
+	 * @param primaryRequired true if the query must read from the primary
+	 */
+	public void setPrimaryRequired(boolean primaryRequired) {
+		this.primaryRequired = primaryRequired;
+	}
+
+	/**
+	 * Sets the query to read from the source collection and join data on read,
+	 * even when a materialized collection is available. This should be used when
+	 * reading data that was just written, as materialized collections are updated
+	 * asynchronously.
+	 */
+	public void skipMaterialized() {
+		this.materializedCollection = null;
+	}
+
+	/**
+	 * Retrieves the time left before the deadline set by the client for the
+	 * current request.
+	 * 
+	 * @return the remaining time in milliseconds, or empty if no deadline was set
+	 */
+	public Optional<Long> getRemainingMillis() {
+		return deadline == null ? Optional.empty() : Optional.of(deadline - System.currentTimeMillis());
+	}
+
 	/**
 	 * @return the filter
 	 */
@@ -187,6 +565,21 @@ public class MongoQuery<T> {
 		return this.dtoFilter;
 	}
 
+	/**
+	 * @return true if the query reads from a collection with joined data already
+	 *         embedded
+	 */
+	public boolean isMaterialized() {
+		return this.materializedCollection != null;
+	}
+
+	/**
+	 * @return the name of the collection the query should read from
+	 */
+	public String getCollectionName() {
+		return isMaterialized() ? materializedCollection : DtoTableNames.getTableName(getDocType());
+	}
+
 	/**
 	 * @return the docType
 	 */
@@ -194,6 +587,63 @@ public class MongoQuery<T> {
 		return dtoFilter.getType();
 	}
 
+	/**
+	 * Generates a normalized fingerprint of the shape of the aggregation pipeline
+	 * for this query. Values used to filter and page documents are masked, so that
+	 * queries that differ only in parameter values share a fingerprint.
+	 * 
+	 * @return the normalized fingerprint of the query
+	 */
+	public String getFingerprint() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("MongoQuery<").append(getDocType().getSimpleName());
+		sb.append(">[");
+		renderPipeline().forEach(stage -> {
+			BsonDocument masked = new BsonDocument();
+			stage.forEach((name, value) -> masked.append(name, MASKED_STAGES.contains(name) ? mask(value) : value));
+			sb.append(masked.toJson()).append(',');
+		});
+		sb.append(']');
+		return sb.toString();
+	}
+
+	/**
+	 * Masks the values within the given BSON value while retaining its structure.
+	 * Arrays of values are collapsed to a single value so that the number of
+	 * values passed doesn't change the shape.
+	 * 
+	 * @param value the value to mask
+	 * @return the masked value
+	 */
+	private static BsonValue mask(BsonValue value) {
+		if (value.isDocument()) {
+			BsonDocument out = new BsonDocument();
+			value.asDocument().forEach((k, v) -> out.append(k, mask(v)));
+			return out;
+		} else if (value.isArray()) {
+			BsonArray out = new BsonArray();
+			for (BsonValue v : value.asArray()) {
+				BsonValue masked = mask(v);
+				if (!out.contains(masked)) {
+					out.add(masked);
+				}
+			}
+			return out;
+		}
+		return MASK;
+	}
+
+	/**
+	 * Renders each stage of the aggregation pipeline as a BSON document.
+	 * 
+	 * @return the list of rendered stages
+	 */
+	private List<BsonDocument> renderPipeline() {
+		return getPipeline(1).stream()
+				.map(bson -> bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()))
+				.collect(Collectors.toList());
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -203,8 +653,8 @@ public class MongoQuery<T> {
 			sb.append(filter.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).toJson());
 		}
 		sb.append(",aggregates=");
-		getPipeline(1).forEach(bson -> {
-			sb.append(bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).toJson());
+		renderPipeline().forEach(stage -> {
+			sb.append(stage.toJson());
 			sb.append(',');
 		});
 
@@ -0,0 +1,82 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Snapshot of the usage of the cache of IDs known not to exist.
+ *
+ * @author Martin Lowe
+ */
+public class NegativeCacheStats {
+	private final long entries;
+	private final long maxEntries;
+	private final long ttlSeconds;
+	private final long hits;
+	private final long filterRejections;
+	private final boolean filterReady;
+
+	/**
+	 * @param entries          the number of IDs recorded as missing
+	 * @param maxEntries       the maximum number of IDs recorded as missing
+	 * @param ttlSeconds       the time in seconds that an ID is recorded as missing
+	 * @param hits             the number of lookups answered by a recorded ID
+	 * @param filterRejections the number of lookups answered by the filter of
+	 *                         known IDs
+	 * @param filterReady      whether the filter of known IDs is in use
+	 */
+	public NegativeCacheStats(long entries, long maxEntries, long ttlSeconds, long hits, long filterRejections,
+			boolean filterReady) {
+		this.entries = entries;
+		this.maxEntries = maxEntries;
+		this.ttlSeconds = ttlSeconds;
+		this.hits = hits;
+		this.filterRejections = filterRejections;
+		this.filterReady = filterReady;
+	}
+
+	/**
+	 * @return the number of IDs recorded as missing
+	 */
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the maximum number of IDs recorded as missing
+	 */
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * @return the time in seconds that an ID is recorded as missing
+	 */
+	public long getTtlSeconds() {
+		return ttlSeconds;
+	}
+
+	/**
+	 * @return the number of lookups answered by a recorded ID
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups answered by the filter of known IDs
+	 */
+	public long getFilterRejections() {
+		return filterRejections;
+	}
+
+	/**
+	 * @return whether the filter of known IDs is in use
+	 */
+	public boolean isFilterReady() {
+		return filterReady;
+	}
+}
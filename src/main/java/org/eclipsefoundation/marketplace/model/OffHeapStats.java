@@ -0,0 +1,91 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+/**
+ * Snapshot of the usage of the off-heap cache tier.
+ *
+ * @author Martin Lowe
+ */
+public class OffHeapStats {
+	private final long entries;
+	private final long bytes;
+	private final long maxBytes;
+	private final long hits;
+	private final long misses;
+	private final long demotions;
+	private final long evictions;
+
+	/**
+	 * @param entries   the number of entries in the tier
+	 * @param bytes     the size of the stored entries in bytes
+	 * @param maxBytes  the size of the memory reserved for the tier in bytes
+	 * @param hits      the number of entries loaded from the tier
+	 * @param misses    the number of lookups that found no entry
+	 * @param demotions the number of entries moved into the tier
+	 * @param evictions the number of entries overwritten to make space
+	 */
+	public OffHeapStats(long entries, long bytes, long maxBytes, long hits, long misses, long demotions,
+			long evictions) {
+		this.entries = entries;
+		this.bytes = bytes;
+		this.maxBytes = maxBytes;
+		this.hits = hits;
+		this.misses = misses;
+		this.demotions = demotions;
+		this.evictions = evictions;
+	}
+
+	/**
+	 * @return the number of entries in the tier
+	 */
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the size of the stored entries in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the size of the memory reserved for the tier in bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of entries loaded from the tier
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that found no entry
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries moved into the tier
+	 */
+	public long getDemotions() {
+		return demotions;
+	}
+
+	/**
+	 * @return the number of entries overwritten to make space
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+}
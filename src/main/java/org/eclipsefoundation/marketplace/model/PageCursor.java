@@ -0,0 +1,136 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.json.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opaque cursor used for keyset pagination. Contains the sort field and order
+ * of the query that generated it, as well as the sort value and document ID of
+ * the last result on the page to use as a range start for the next page.
+ * 
+ * @author Martin Lowe
+ */
+public class PageCursor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PageCursor.class);
+
+	private static final String FIELD_KEY = "f";
+	private static final String ORDER_KEY = "o";
+	private static final String VALUE_KEY = "v";
+	private static final String ID_KEY = "id";
+
+	private final String field;
+	private final SortOrder order;
+	private final String value;
+	private final String lastId;
+
+	/**
+	 * Creates a cursor pointing to the position after the given document.
+	 * 
+	 * @param field  the name of the sortable field, or null if ordered by ID
+	 * @param order  the sort order of the query
+	 * @param value  the string value of the sort field for the last document
+	 * @param lastId the ID of the last document
+	 */
+	public PageCursor(String field, SortOrder order, String value, String lastId) {
+		this.field = field;
+		this.order = Objects.requireNonNull(order);
+		this.value = value;
+		this.lastId = Objects.requireNonNull(lastId);
+	}
+
+	/**
+	 * Encodes the cursor into a URL safe token.
+	 * 
+	 * @return the encoded cursor token
+	 */
+	public String encode() {
+		BsonDocument doc = new BsonDocument();
+		doc.put(FIELD_KEY, field == null ? BsonNull.VALUE : new BsonString(field));
+		doc.put(ORDER_KEY, new BsonString(order.name()));
+		doc.put(VALUE_KEY, value == null ? BsonNull.VALUE : new BsonString(value));
+		doc.put(ID_KEY, new BsonString(lastId));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(doc.toJson().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor token generated by {@link PageCursor#encode()}.
+	 * 
+	 * @param token the cursor token to decode
+	 * @return the decoded cursor, or empty if the token is blank or malformed.
+	 */
+	public static Optional<PageCursor> decode(String token) {
+		if (StringUtils.isBlank(token)) {
+			return Optional.empty();
+		}
+		try {
+			BsonDocument doc = BsonDocument
+					.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+			SortOrder order = SortOrder.valueOf(doc.getString(ORDER_KEY).getValue());
+			return Optional.of(new PageCursor(getNullableString(doc, FIELD_KEY), order,
+					getNullableString(doc, VALUE_KEY), doc.getString(ID_KEY).getValue()));
+		} catch (IllegalArgumentException | JsonParseException | BsonInvalidOperationException e) {
+			LOGGER.debug("Could not decode cursor token '{}'", token, e);
+			return Optional.empty();
+		}
+	}
+
+	private static String getNullableString(BsonDocument doc, String key) {
+		return doc.isString(key) ? doc.getString(key).getValue() : null;
+	}
+
+	/**
+	 * @return the name of the sort field, or null if ordered by ID
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @return the order
+	 */
+	public SortOrder getOrder() {
+		return order;
+	}
+
+	/**
+	 * @return the sort value of the last document
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the ID of the last document
+	 */
+	public String getLastId() {
+		return lastId;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("PageCursor [field=").append(field);
+		sb.append(", order=").append(order);
+		sb.append(", value=").append(value);
+		sb.append(", lastId=").append(lastId);
+		sb.append(']');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,80 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Represents a single page of results along with the total number of documents
+ * that match the filters used to retrieve the page.
+ * 
+ * @author Martin Lowe
+ * @param <T> the type of document contained in the page of results
+ */
+public class PaginatedResult<T> {
+	private final Supplier<List<T>> reader;
+	private final long total;
+	private volatile List<T> results;
+
+	/**
+	 * @param results the current page of results
+	 * @param total   the number of documents matching the query across all pages
+	 */
+	public PaginatedResult(List<T> results, long total) {
+		this.reader = null;
+		this.results = new ArrayList<>(Objects.requireNonNull(results));
+		this.total = total;
+	}
+
+	/**
+	 * Creates a page whose results are only read when first requested, such as a
+	 * page kept in its serialized form that can be served without reading it.
+	 * 
+	 * @param reader reads the current page of results
+	 * @param total  the number of documents matching the query across all pages
+	 */
+	public PaginatedResult(Supplier<List<T>> reader, long total) {
+		this.reader = Objects.requireNonNull(reader);
+		this.total = total;
+	}
+
+	/**
+	 * @return the current page of results
+	 */
+	public List<T> getResults() {
+		List<T> current = results;
+		if (current == null) {
+			synchronized (this) {
+				if (results == null) {
+					results = new ArrayList<>(Objects.requireNonNull(reader.get()));
+				}
+				current = results;
+			}
+		}
+		return Collections.unmodifiableList(current);
+	}
+
+	/**
+	 * @return the number of documents matching the query across all pages
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("PaginatedResult [results=").append(results == null ? "unread" : results.size());
+		sb.append(", total=").append(total);
+		sb.append(']');
+		return sb.toString();
+	}
+}
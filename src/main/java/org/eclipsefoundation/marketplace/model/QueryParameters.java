@@ -3,9 +3,11 @@ package org.eclipsefoundation.marketplace.model;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Container for query parameters, using a map allowing for multiple values set
@@ -16,6 +18,8 @@ import java.util.Optional;
  */
 public class QueryParameters {
 	private final Map<String, List<String>> parameters;
+	// names of the parameters that have been read, whether or not they are set
+	private final Set<String> readKeys;
 
 	/**
 	 * Generates an empty internal parameter map
@@ -31,6 +35,7 @@ public class QueryParameters {
 	 */
 	public QueryParameters(Map<String, List<String>> parameters) {
 		this.parameters = new HashMap<>(parameters);
+		this.readKeys = new HashSet<>();
 	}
 
 	/**
@@ -40,6 +45,7 @@ public class QueryParameters {
 	 * @return list of values if set, or an empty list.
 	 */
 	public List<String> getValues(String key) {
+		readKeys.add(key);
 		return parameters.getOrDefault(key, Collections.emptyList());
 	}
 
@@ -52,6 +58,7 @@ public class QueryParameters {
 	 * @return value wrapped in optional if present, otherwise empty optional.
 	 */
 	public Optional<String> getFirstIfPresent(String key) {
+		readKeys.add(key);
 		List<String> vals = parameters.get(key);
 		if (vals != null && !vals.isEmpty()) {
 			return Optional.ofNullable(vals.get(0));
@@ -67,6 +74,16 @@ public class QueryParameters {
 		this.parameters.remove(key);
 	}
 
+	/**
+	 * Returns the names of the parameters that have been read, including ones that
+	 * were read but not set.
+	 * 
+	 * @return unmodifiable set of the names of parameters that have been read
+	 */
+	public Set<String> getReadKeys() {
+		return Collections.unmodifiableSet(readKeys);
+	}
+
 	public Map<String, List<String>> asMap() {
 		return new HashMap<>(parameters);
 	}
@@ -0,0 +1,71 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.helper.SortableHelper;
+import org.eclipsefoundation.marketplace.helper.SortableHelper.Sortable;
+
+/**
+ * Holds the parts of a query that are the same for every request for a given
+ * type. Join stages are rendered to BSON once and sortable fields are indexed
+ * by name, leaving only the request filters, sort, and paging to be built for
+ * each query.
+ *
+ * @author Martin Lowe
+ */
+public final class QueryTemplate {
+	private static final Map<Class<?>, QueryTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+	private final List<JoinStage> joins;
+	private final Map<String, Sortable<?>> sortableFields;
+
+	private QueryTemplate(DtoFilter<?> dtoFilter) {
+		this.joins = Collections.unmodifiableList(
+				dtoFilter.getJoins().stream().map(JoinStage::render).collect(Collectors.toList()));
+		// keep the first field for each name, matching SortableHelper lookups
+		Map<String, Sortable<?>> fields = new HashMap<>();
+		SortableHelper.getSortableFields(dtoFilter.getType()).forEach(f -> fields.putIfAbsent(f.getName(), f));
+		this.sortableFields = Collections.unmodifiableMap(fields);
+	}
+
+	/**
+	 * Retrieves the template for the type of the given filter, building it on
+	 * first use.
+	 *
+	 * @param dtoFilter the filter for the type being queried
+	 * @return the template for the type
+	 */
+	public static QueryTemplate forFilter(DtoFilter<?> dtoFilter) {
+		return TEMPLATES.computeIfAbsent(dtoFilter.getType(), k -> new QueryTemplate(dtoFilter));
+	}
+
+	/**
+	 * @return the rendered joins for the type, without any filters
+	 */
+	public List<JoinStage> getJoins() {
+		return joins;
+	}
+
+	/**
+	 * Retrieves the sortable field with the given name if it exists.
+	 *
+	 * @param name the name of the sortable field
+	 * @return the sortable field if it exists, otherwise empty
+	 */
+	public Optional<Sortable<?>> getSortableField(String name) {
+		return Optional.ofNullable(sortableFields.get(name));
+	}
+}
@@ -6,18 +6,23 @@
  */
 package org.eclipsefoundation.marketplace.model;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.enterprise.context.RequestScoped;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.lang3.StringUtils;
@@ -38,13 +43,18 @@ import org.jboss.resteasy.core.ResteasyContext;
 @RequestScoped
 public class RequestWrapper {
 	private static final String EMPTY_KEY_MESSAGE = "Key must not be null or blank";
+	private static final String ADMIN_ROLE = "marketplace_admin_access";
 
 	private QueryParameters params;
+	// names of parameters read by the filters of queries for the current request
+	private Set<String> filterParameters = new HashSet<>();
 
 	private UriInfo uriInfo;
 	private HttpServletRequest request;
 	private HttpServletResponse response;
+	private SecurityContext securityContext;
 	private UserAgent userAgent;
+	private Optional<Long> deadline;
 
 	/**
 	 * Generates a wrapper around the
@@ -55,6 +65,7 @@ public class RequestWrapper {
 		this.uriInfo = ResteasyContext.getContextData(UriInfo.class);
 		this.request = ResteasyContext.getContextData(HttpServletRequest.class);
 		this.response = ResteasyContext.getContextData(HttpServletResponse.class);
+		this.securityContext = ResteasyContext.getContextData(SecurityContext.class);
 		this.userAgent = null;
 	}
 
@@ -135,6 +146,27 @@ public class RequestWrapper {
 				.collect(Collectors.toList());
 	}
 
+	/**
+	 * Records the names of parameters read by the filters of a query for the
+	 * current request, so that they are included in cache keys for the request.
+	 * 
+	 * @param names the names of the parameters read by the filters
+	 */
+	public void addFilterParameters(Collection<String> names) {
+		filterParameters.addAll(names);
+	}
+
+	/**
+	 * Checks whether the parameter has been read by the filters of a query for the
+	 * current request.
+	 * 
+	 * @param name the name of the parameter
+	 * @return true if the parameter is used to filter results, otherwise false
+	 */
+	public boolean isFilterParameter(String name) {
+		return filterParameters.contains(name);
+	}
+
 	/**
 	 * Returns this QueryParams object as a Map of param values indexed by the param
 	 * name.
@@ -165,6 +197,16 @@ public class RequestWrapper {
 		return uriInfo.getPath();
 	}
 
+	/**
+	 * Returns a URI builder initialized with the full request URI, including the
+	 * current query string parameters.
+	 * 
+	 * @return a URI builder for the current request
+	 */
+	public UriBuilder getRequestUriBuilder() {
+		return uriInfo.getRequestUriBuilder();
+	}
+
 	/**
 	 * Retrieve a request attribute
 	 * 
@@ -186,6 +228,18 @@ public class RequestWrapper {
 		return attr instanceof Boolean ? (boolean) attr : Boolean.FALSE;
 	}
 
+	/**
+	 * Check whether the current request asks for the query plan rather than the
+	 * results. Only available to administrators.
+	 * 
+	 * @return true if the query should be explained, otherwise false
+	 */
+	public boolean isExplain() {
+		Optional<String> explain = getFirstParam(UrlParameterNames.EXPLAIN);
+		return explain.isPresent() && Boolean.parseBoolean(explain.get()) && securityContext != null
+				&& securityContext.isUserInRole(ADMIN_ROLE);
+	}
+
 	/**
 	 * Retrieve a request header value.
 	 * 
@@ -196,6 +250,30 @@ public class RequestWrapper {
 		return request.getHeader(key);
 	}
 
+	/**
+	 * Retrieve the deadline set by the client in the
+	 * {@link RequestHeaderNames#REQUEST_TIMEOUT} header as a number of
+	 * milliseconds. The timeout is counted from the first time the deadline is
+	 * retrieved for the request.
+	 * 
+	 * @return the deadline in millis since epoch, or empty if no valid timeout was
+	 *         set
+	 */
+	public Optional<Long> getDeadline() {
+		if (deadline == null) {
+			String timeout = request == null ? null : request.getHeader(RequestHeaderNames.REQUEST_TIMEOUT);
+			deadline = Optional.empty();
+			if (StringUtils.isNumeric(timeout)) {
+				try {
+					deadline = Optional.of(System.currentTimeMillis() + Long.parseLong(timeout));
+				} catch (NumberFormatException e) {
+					// timeouts that are out of range are treated as unset
+				}
+			}
+		}
+		return deadline;
+	}
+
 	/**
 	 * Retrieve the request version from the
 	 * 
@@ -228,6 +306,19 @@ public class RequestWrapper {
 		response.setHeader(DeprecatedHeader.NAME, DeprecatedHeader.getValue(d, msg));
 	}
 
+	/**
+	 * Set a header in the response object for the client.
+	 * 
+	 * @param key   the name of the header
+	 * @param value the value of the header
+	 */
+	public void setResponseHeader(String key, String value) {
+		if (StringUtils.isBlank(key)) {
+			throw new IllegalArgumentException(EMPTY_KEY_MESSAGE);
+		}
+		response.setHeader(key, value);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
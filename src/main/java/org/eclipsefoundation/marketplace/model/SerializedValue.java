@@ -0,0 +1,83 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Response body for a value as serialized JSON, along with the ETag of the
+ * body. The gzip encoded copy of the body is created on first use, so that the
+ * body is only compressed once for as long as the value is cached.
+ *
+ * @author Martin Lowe
+ */
+public class SerializedValue {
+	private final byte[] json;
+	private final String etag;
+	private volatile byte[] gzip;
+
+	/**
+	 * @param json the value serialized as JSON
+	 */
+	public SerializedValue(byte[] json) {
+		this.json = Objects.requireNonNull(json);
+		this.etag = hash(json);
+	}
+
+	/**
+	 * @return the value serialized as JSON
+	 */
+	public byte[] getJson() {
+		return json;
+	}
+
+	/**
+	 * @return the gzip encoded JSON for the value
+	 */
+	public byte[] getGzip() {
+		byte[] encoded = gzip;
+		if (encoded == null) {
+			// concurrent first uses may both compress, which gives the same result
+			encoded = compress(json);
+			gzip = encoded;
+		}
+		return encoded;
+	}
+
+	/**
+	 * @return the strong ETag of the JSON body
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	private static String hash(byte[] content) {
+		try {
+			return DatatypeConverter.printHexBinary(MessageDigest.getInstance("md5").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Could not create an MD5 hash digest", e);
+		}
+	}
+
+	private static byte[] compress(byte[] content) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, content.length / 4));
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(content);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,121 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Date;
+
+import org.eclipsefoundation.marketplace.helper.DateTimeHelper;
+
+/**
+ * Aggregated timings for a single DAO operation and query shape that has
+ * exceeded the slow query threshold.
+ * 
+ * @author Martin Lowe
+ */
+public class SlowQuery {
+	private final String operation;
+	private final String fingerprint;
+	private long count;
+	private long totalMillis;
+	private long maxMillis;
+	private long lastMillis;
+	private long lastSeen;
+	// longest recent execution, which decays from the time it was last updated
+	private double peakMillis;
+
+	/**
+	 * @param operation   the DAO operation that was run
+	 * @param fingerprint the normalized fingerprint of the query
+	 */
+	public SlowQuery(String operation, String fingerprint) {
+		this.operation = operation;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Records a single slow execution of the query.
+	 * 
+	 * @param millis         the duration of the execution in milliseconds
+	 * @param now            the current time in milliseconds
+	 * @param halfLifeMillis the time over which the recent peak halves, or 0 if it
+	 *                       doesn't decay
+	 */
+	public synchronized void record(long millis, long now, long halfLifeMillis) {
+		this.peakMillis = Math.max(millis, getPeakMillis(now, halfLifeMillis));
+		this.count++;
+		this.totalMillis += millis;
+		this.maxMillis = Math.max(maxMillis, millis);
+		this.lastMillis = millis;
+		this.lastSeen = now;
+	}
+
+	/**
+	 * Calculates the longest recent execution, which halves for every half-life
+	 * passed since it was last updated so that queries that were slow in the past
+	 * give way to queries that are slow now.
+	 * 
+	 * @param now            the current time in milliseconds
+	 * @param halfLifeMillis the time over which the peak halves, or 0 if it doesn't
+	 *                       decay
+	 * @return the decayed peak duration in milliseconds
+	 */
+	public synchronized double getPeakMillis(long now, long halfLifeMillis) {
+		if (halfLifeMillis <= 0 || count == 0) {
+			return peakMillis;
+		}
+		return peakMillis * Math.pow(0.5, Math.max(0, now - lastSeen) / (double) halfLifeMillis);
+	}
+
+	/**
+	 * @return the DAO operation that was run
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the normalized fingerprint of the query
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the number of slow executions recorded
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the longest recorded execution in milliseconds
+	 */
+	public synchronized long getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * @return the average duration of recorded executions in milliseconds
+	 */
+	public synchronized long getAverageMillis() {
+		return count == 0 ? 0 : totalMillis / count;
+	}
+
+	/**
+	 * @return the duration of the last recorded execution in milliseconds
+	 */
+	public synchronized long getLastMillis() {
+		return lastMillis;
+	}
+
+	/**
+	 * @return the time of the last recorded execution as an RFC 3339 date string
+	 */
+	public synchronized String getLastSeen() {
+		return DateTimeHelper.toRFC3339(new Date(lastSeen));
+	}
+}
@@ -13,7 +13,9 @@ import java.lang.annotation.Target;
 
 /**
  * Allows fields to be designated as sortable, providing ability to override
- * path locations as well as the name of the field.
+ * path locations as well as the name of the field. Fields that are represented
+ * as RFC 3339 strings on the object but stored as dates within the database
+ * should be flagged using the date property.
  * 
  * @author Martin Lowe
  */
@@ -22,4 +24,5 @@ import java.lang.annotation.Target;
 public @interface SortableField {
 	String name() default "";
 	String path() default "";
+	boolean date() default false;
 }
@@ -29,6 +29,8 @@ public final class DatabaseFieldNames {
 	public static final String LISTING_BODY = "body";
 	public static final String LISTING_AUTHORS = "authors";
 	public static final String LISTING_STATUS = "status";
+	public static final String LISTING_LOGO = "logo";
+	public static final String PROJECTED_FIELDS = "projected_fields";
 	public static final String LISTING_ORGANIZATIONS = "organization";
 	public static final String RECENT_INSTALLS = "installs_recent";
 	public static final String TOTAL_INSTALLS = "installs_total";
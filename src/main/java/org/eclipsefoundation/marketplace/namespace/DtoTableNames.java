@@ -49,4 +49,8 @@ public enum DtoTableNames {
 	public String getTableName() {
 		return this.tableName;
 	}
+
+	public Class<?> getBaseClass() {
+		return this.baseClass;
+	}
 }
@@ -0,0 +1,25 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.namespace;
+
+/**
+ * Namespace for media types used in application that are not present in
+ * {@link javax.ws.rs.core.MediaType}.
+ * 
+ * @author Martin Lowe
+ */
+public class MediaTypeNames {
+
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+	/**
+	 * Newline delimited JSON with a lower server quality, so that JSON is preferred
+	 * for requests that accept any type.
+	 */
+	public static final String APPLICATION_NDJSON_STREAM = APPLICATION_NDJSON + ";qs=0.5";
+
+	private MediaTypeNames() {}
+}
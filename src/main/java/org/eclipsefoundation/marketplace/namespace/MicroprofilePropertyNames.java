@@ -9,12 +9,38 @@ package org.eclipsefoundation.marketplace.namespace;
 public class MicroprofilePropertyNames {
 	public static final String PROMO_WEIGHT_DEFAULT = "eclipse.promotion.weighting.default";
 	public static final String PROMO_SERVE_COUNT = "eclipse.promotion.serve-count";
+	public static final String LISTINGS_EXPANDED_ENABLED = "eclipse.listings.expanded.enabled";
 	public static final String CACHE_TTL_MAX_SECONDS = "cache.ttl.write.seconds";
 	public static final String CACHE_SIZE_MAX = "cache.max.size";
+	public static final String CACHE_SIZE_MAX_BYTES = "cache.max.bytes";
+	public static final String CACHE_STALE_MAX_SECONDS = "cache.stale.max.seconds";
+	public static final String CACHE_REFRESH_SECONDS = "cache.refresh.write.seconds";
+	public static final String CACHE_PROVIDER = "cache.provider";
+	public static final String CACHE_INVALIDATION_ENABLED = "cache.invalidation.enabled";
+	public static final String CACHE_INVALIDATION_COLLECTION = "cache.invalidation.collection";
+	public static final String CACHE_INVALIDATION_SIZE_BYTES = "cache.invalidation.size.bytes";
+	public static final String CACHE_SNAPSHOT_ENABLED = "cache.snapshot.enabled";
+	public static final String CACHE_SNAPSHOT_PATH = "cache.snapshot.path";
+	public static final String CACHE_OFFHEAP_SIZE_BYTES = "cache.offheap.size.bytes";
+	public static final String CACHE_OFFHEAP_SLAB_BYTES = "cache.offheap.slab.bytes";
+	public static final String CACHE_STATS_HOT_KEYS = "cache.stats.hot-keys";
+	public static final String CACHE_NEGATIVE_TTL_SECONDS = "cache.negative.ttl.seconds";
+	public static final String CACHE_NEGATIVE_SIZE_MAX = "cache.negative.max.size";
+	public static final String CACHE_NEGATIVE_FILTER_ENABLED = "cache.negative.filter.enabled";
+	public static final String CACHE_NEGATIVE_FILTER_EXPECTED_IDS = "cache.negative.filter.expected-ids";
 	public static final String MONGODB_DB_NAME = "mongodb.database";
 	public static final String MONGODB_RETURN_LIMIT = "mongodb.default.limit";
 	public static final String MONGODB_RETURN_LIMIT_MAX = "mongodb.default.limit.max";
 	public static final String MONGODB_MAINTENANCE_FLAG = "mongodb.maintenance";
+	public static final String MONGODB_BULK_CHUNK_SIZE = "mongodb.bulk.chunk-size";
+	public static final String MONGODB_INDEXES_CREATE = "mongodb.indexes.create";
+	public static final String MONGODB_SLOW_QUERY_THRESHOLD = "mongodb.slow-query.threshold-ms";
+	public static final String MONGODB_SLOW_QUERY_MAX_ENTRIES = "mongodb.slow-query.max-entries";
+	public static final String MONGODB_SLOW_QUERY_HALF_LIFE = "mongodb.slow-query.half-life-seconds";
+	public static final String MONGODB_READ_PREFERENCE = "mongodb.read-preference";
+	public static final String MONGODB_MAX_STALENESS = "max-staleness";
+	public static final String MONGODB_COALESCE_ENABLED = "mongodb.coalesce.enabled";
+	public static final String MONGODB_MAX_TIME = "mongodb.max-time-ms";
 	
 	private MicroprofilePropertyNames() {
 	}
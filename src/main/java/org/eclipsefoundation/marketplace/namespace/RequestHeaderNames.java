@@ -15,6 +15,7 @@ public class RequestHeaderNames {
 
 	public static final String ACCESS_TOKEN = "Eclipse-Access-Token";
 	public static final String ACCESS_VERSION = "Access-Version";
+	public static final String REQUEST_TIMEOUT = "Request-Timeout";
 	
 	private RequestHeaderNames() {}
 }
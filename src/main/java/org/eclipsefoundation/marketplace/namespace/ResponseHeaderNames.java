@@ -0,0 +1,21 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.namespace;
+
+/**
+ * Namespace for custom response header names used in application.
+ * 
+ * @author Martin Lowe
+ */
+public class ResponseHeaderNames {
+
+	public static final String AGE = "Age";
+	public static final String NEXT_CURSOR = "X-Next-Cursor";
+	public static final String TOTAL_COUNT = "X-Total-Count";
+
+	private ResponseHeaderNames() {}
+}
@@ -18,8 +18,11 @@ public enum UrlParameterNames {
 
 	QUERY_STRING("q"),
 	PAGE("page"),
+	CURSOR("cursor"),
 	LIMIT("limit"),
 	SORT("sort"),
+	FIELDS("fields"),
+	EXPLAIN("explain"),
 	OS("os"),
 	ECLIPSE_VERSION("eclipse_version"),
 	JAVA_VERSION("min_java_version"),
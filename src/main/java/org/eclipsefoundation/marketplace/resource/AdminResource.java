@@ -0,0 +1,131 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.resource;
+
+import java.util.concurrent.CompletionStage;
+
+import javax.annotation.security.RolesAllowed;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
+import org.eclipsefoundation.marketplace.service.IndexService;
+import org.eclipsefoundation.marketplace.service.QueryCoalescingService;
+import org.eclipsefoundation.marketplace.service.SlowQueryService;
+
+/**
+ * Resource for administrative insight into the state of the database used by
+ * the application.
+ * 
+ * @author Martin Lowe
+ */
+@Path("/admin")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed("marketplace_admin_access")
+@RequestScoped
+public class AdminResource {
+
+	@Inject
+	IndexService indexService;
+	@Inject
+	SlowQueryService slowQueryService;
+	@Inject
+	ExpandedListingService expandedListingService;
+	@Inject
+	QueryCoalescingService coalescingService;
+
+	/**
+	 * Endpoint for /admin/indexes to retrieve the declared, existing, and missing
+	 * indexes for each collection.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@Path("/indexes")
+	public CompletionStage<Response> getIndexes() {
+		return indexService.getReports().thenApply(reports -> Response.ok(reports).build());
+	}
+
+	/**
+	 * Endpoint for /admin/indexes to create any declared indexes that are missing.
+	 * 
+	 * @return response for the browser
+	 */
+	@POST
+	@Path("/indexes")
+	public CompletionStage<Response> createIndexes() {
+		return indexService.createIndexes().thenCompose(v -> indexService.getReports())
+				.thenApply(reports -> Response.ok(reports).build());
+	}
+
+	/**
+	 * Endpoint for /admin/slow-queries to retrieve the slowest recorded queries.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@Path("/slow-queries")
+	public Response getSlowQueries() {
+		return Response.ok(slowQueryService.getSlowest()).build();
+	}
+
+	/**
+	 * Endpoint for /admin/slow-queries to clear the recorded slow queries.
+	 * 
+	 * @return response for the browser
+	 */
+	@DELETE
+	@Path("/slow-queries")
+	public Response clearSlowQueries() {
+		slowQueryService.clear();
+		return Response.ok().build();
+	}
+
+	/**
+	 * Endpoint for /admin/coalescing to retrieve the counts of executed queries and
+	 * of calls collapsed into identical queries already in flight.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@Path("/coalescing")
+	public Response getCoalescingStats() {
+		return Response.ok(coalescingService.getStats()).build();
+	}
+
+	/**
+	 * Endpoint for /admin/listings-expanded to retrieve the state of the expanded
+	 * listings collection.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@Path("/listings-expanded")
+	public Response getExpandedListings() {
+		return Response.ok(expandedListingService.getStatus()).build();
+	}
+
+	/**
+	 * Endpoint for /admin/listings-expanded to rebuild the expanded listings
+	 * collection from the source collections.
+	 * 
+	 * @return response for the browser
+	 */
+	@POST
+	@Path("/listings-expanded")
+	public Response rebuildExpandedListings() {
+		expandedListingService.rebuild();
+		return Response.ok(expandedListingService.getStatus()).build();
+	}
+}
@@ -14,17 +14,25 @@ import javax.annotation.security.RolesAllowed;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
 import org.eclipsefoundation.marketplace.namespace.RequestHeaderNames;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
 import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
+import org.eclipsefoundation.marketplace.service.OffHeapCacheService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
 
 /**
@@ -43,6 +51,12 @@ public class CacheResource {
 
 	@Inject
 	Instance<CachingService<?>> cacheServices;
+	@Inject
+	CacheInvalidationService cacheInvalidation;
+	@Inject
+	OffHeapCacheService offHeap;
+	@Inject
+	NegativeCacheService negativeCache;
 
 	@GET
 	public Response getActiveCacheEntries() {
@@ -53,6 +67,48 @@ public class CacheResource {
 		return Response.ok(cacheEntries).build();
 	}
 
+	@GET
+	@Path("/usage")
+	public Response getCacheUsage() {
+		List<CacheUsage> usage = new ArrayList<>();
+		for (CachingService<?> cs : cacheServices) {
+			usage.add(cs.getUsage());
+		}
+		return Response.ok(usage).build();
+	}
+
+	@GET
+	@Path("/stats")
+	public Response getCacheStats() {
+		List<CacheStatistics> stats = new ArrayList<>();
+		for (CachingService<?> cs : cacheServices) {
+			stats.add(cs.getStats());
+		}
+		return Response.ok(stats).build();
+	}
+
+	@GET
+	@Path("/hot")
+	public Response getHotKeys(@DefaultValue("20") @QueryParam("limit") int limit) {
+		List<List<HotKey>> hotKeys = new ArrayList<>();
+		for (CachingService<?> cs : cacheServices) {
+			hotKeys.add(cs.getHotKeys(Math.max(1, limit)));
+		}
+		return Response.ok(hotKeys).build();
+	}
+
+	@GET
+	@Path("/offheap")
+	public Response getOffHeapStats() {
+		return Response.ok(offHeap.getStats()).build();
+	}
+
+	@GET
+	@Path("/negative")
+	public Response getNegativeCacheStats() {
+		return Response.ok(negativeCache.getStats()).build();
+	}
+
 	@DELETE
 	@Path("/{key}")
 	public Response removeCacheEntry(@PathParam("key") String key,
@@ -60,7 +116,8 @@ public class CacheResource {
 		if (!this.token.equals(token)) {
 			return Response.status(Status.UNAUTHORIZED).build();
 		}
-		cacheServices.forEach(cs -> cs.remove(key));
+		// remove the entry on every instance of the application
+		cacheInvalidation.remove(key);
 		return Response.ok().build();
 	}
 
@@ -70,7 +127,7 @@ public class CacheResource {
 		if (!this.token.equals(token)) {
 			return Response.status(Status.UNAUTHORIZED).build();
 		}
-		cacheServices.forEach(CachingService::removeAll);
+		cacheInvalidation.removeAll();
 		return Response.ok().build();
 	}
 }
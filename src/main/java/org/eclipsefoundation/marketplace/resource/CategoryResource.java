@@ -8,7 +8,7 @@ package org.eclipsefoundation.marketplace.resource;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
@@ -28,17 +28,12 @@ import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.Category;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.mongodb.client.result.DeleteResult;
 
 /**
  * @author martin
@@ -49,8 +44,6 @@ import com.mongodb.client.result.DeleteResult;
 @Consumes(MediaType.APPLICATION_JSON)
 @RequestScoped
 public class CategoryResource {
-	private static final Logger LOGGER = LoggerFactory.getLogger(CategoryResource.class);
-
 	@Inject
 	MongoDao dao;
 	@Inject
@@ -64,18 +57,11 @@ public class CategoryResource {
 
 	@GET
 	@PermitAll
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<Category> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve the possible cached object
-		Optional<List<Category>> cachedResults = cachingService.get("all", params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached Categorys");
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build("all", params, cachedResults.get());
+		return responseBuider.buildAsync("all", params,
+				cachingService.getAsync("all", params, null, () -> dao.get(q)));
 	}
 
 	/**
@@ -86,16 +72,20 @@ public class CategoryResource {
 	 */
 	@PUT
 	@RolesAllowed({"marketplace_category_put", "marketplace_admin_access"})
-	public Response putCategory(Category category) {
+	public CompletionStage<Response> putCategory(Category category) {
 		if (category.getId() != null) {
 			params.addParam(UrlParameterNames.ID.getParameterName(), category.getId());
 		}
 		MongoQuery<Category> q = new MongoQuery<>(params, dtoFilter);
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(category)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(category)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -107,20 +97,13 @@ public class CategoryResource {
 	 */
 	@GET
 	@Path("/{categoryId}")
-	public Response select(@PathParam("categoryId") String categoryId) {
+	public CompletionStage<Response> select(@PathParam("categoryId") String categoryId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), categoryId);
 
 		MongoQuery<Category> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve a cached version of the value for the current listing
-		Optional<List<Category>> cachedResults = cachingService.get(categoryId, params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", categoryId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(categoryId, params, cachedResults.get());
+		return responseBuider.buildAsync(categoryId, params,
+				cachingService.getAsync(categoryId, params, null, () -> dao.get(q)));
 	}
 
 	/**
@@ -133,16 +116,17 @@ public class CategoryResource {
 	@DELETE
 	@RolesAllowed({ "marketplace_category_delete", "marketplace_admin_access" })
 	@Path("/{categoryId}")
-	public Response delete(@PathParam("categoryId") String categoryId) {
+	public CompletionStage<Response> delete(@PathParam("categoryId") String categoryId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), categoryId);
 
 		MongoQuery<Category> q = new MongoQuery<>(params, dtoFilter);
 		// delete the currently selected asset
-		DeleteResult result = StreamHelper.awaitCompletionStage(dao.delete(q));
-		if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
-			return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
-		}
-		// return the results as a response
-		return Response.ok().build();
+		return dao.delete(q).thenApply(result -> {
+			if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
+				return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 }
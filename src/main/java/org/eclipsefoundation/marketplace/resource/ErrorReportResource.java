@@ -7,12 +7,17 @@
 package org.eclipsefoundation.marketplace.resource;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.security.PermitAll;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.json.bind.Jsonb;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -20,19 +25,25 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.ErrorReport;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
 import org.eclipsefoundation.marketplace.helper.StreamHelper;
+import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.namespace.MediaTypeNames;
+import org.eclipsefoundation.marketplace.namespace.ResponseHeaderNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Resource for retrieving {@linkplain ErrorReport} from the MongoDB instance.
@@ -44,18 +55,26 @@ import org.slf4j.LoggerFactory;
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ErrorReportResource {
-	private static final Logger LOGGER = LoggerFactory.getLogger(ErrorReportResource.class);
-
 	@Inject
 	MongoDao dao;
 	@Inject
 	CachingService<List<ErrorReport>> cachingService;
 	@Inject
+	CachingService<PaginatedResult<ErrorReport>> pageCache;
+	@Inject
+	CachingService<Long> countCache;
+	@Inject
+	NegativeCacheService negativeCache;
+	@Inject
 	RequestWrapper params;
 	@Inject
 	DtoFilter<ErrorReport> dtoFilter;
 	@Inject
 	ResponseHelper responseBuider;
+	@Inject
+	ManagedExecutor executor;
+	@Inject
+	Jsonb jsonb;
 
 	/**
 	 * Endpoint for /error/ to retrieve all ErrorReports from the database along with
@@ -66,18 +85,69 @@ public class ErrorReportResource {
 	 */
 	@GET
 	@PermitAll
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<ErrorReport> q = new MongoQuery<>(params, dtoFilter);
-		// retrieve the possible cached object
-		Optional<List<ErrorReport>> cachedResults = cachingService.get("all", params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached ErrorReports");
-			return Response.serverError().build();
+		// return the query plan in place of results when requested by an admin
+		if (params.isExplain()) {
+			return dao.explain(q).thenApply(plan -> Response.ok(plan.toJson()).build());
 		}
+		// retrieve the page and the total for the current filters as a single cached
+		// value. Requests that bypass the cache load a fresh page, which is returned
+		// without being stored by clients
+		CompletionStage<Optional<PaginatedResult<ErrorReport>>> page = StreamHelper
+				.withContext(executor, pageCache.getAsync("all", params, null, () -> loadPage(q)))
+				.thenApplyAsync(results -> {
+					// attach a cursor for the next page of results if available
+					results.flatMap(r -> q.getNextCursor(r.getResults()))
+							.ifPresent(cursor -> params.setResponseHeader(ResponseHeaderNames.NEXT_CURSOR, cursor));
+					return results;
+				});
 
 		// return the results as a response
-		return responseBuider.build("all", params, cachedResults.get());
+		return responseBuider.buildAsync("all", params, page);
+	}
+
+	/**
+	 * Loads the page of results for the query along with the total for its
+	 * filters. The total is cached by the fingerprint of the filters, so that every
+	 * page, sort and cursor of the same filters shares one count. When the total
+	 * is missing, the page and total are read in one call and the page is reused.
+	 * 
+	 * @param q the query for the current page
+	 * @return a stage that completes with the page of results and the total
+	 */
+	private CompletionStage<PaginatedResult<ErrorReport>> loadPage(MongoQuery<ErrorReport> q) {
+		AtomicReference<PaginatedResult<ErrorReport>> loaded = new AtomicReference<>();
+		CompletionStage<Optional<Long>> total = countCache.getAsync("total", params,
+				Collections.singletonMap("filter", Collections.singletonList(q.getFilterFingerprint())),
+				() -> dao.getWithTotal(q).thenApply(result -> {
+					loaded.set(result);
+					return result.getTotal();
+				}));
+		return total.thenCompose(t -> {
+			if (loaded.get() != null) {
+				return CompletableFuture.completedFuture(loaded.get());
+			} else if (!t.isPresent()) {
+				return dao.getWithTotal(q);
+			}
+			// the total is cached, so only the page is read
+			return dao.get(q).thenApply(results -> new PaginatedResult<>(results, t.get()));
+		});
+	}
+
+	/**
+	 * Endpoint for /error/ to stream all ErrorReports from the database along with the
+	 * given query string parameters as newline delimited JSON. Results are written
+	 * as they are retrieved and are not cached.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@PermitAll
+	@Produces(MediaTypeNames.APPLICATION_NDJSON_STREAM)
+	public Response selectStream() {
+		MongoQuery<ErrorReport> q = new MongoQuery<>(params, dtoFilter);
+		return Response.ok(StreamHelper.toStreamingOutput(dao.stream(q), jsonb)).build();
 	}
 
 	/**
@@ -88,18 +158,23 @@ public class ErrorReportResource {
 	 */
 	@POST
 	@PermitAll
-	public Response putErrorReport(ErrorReport errorReport) {
+	public CompletionStage<Response> putErrorReport(ErrorReport errorReport) {
 		// attach ID if present for update
 		if (errorReport.getId() != null) {
 			params.addParam(UrlParameterNames.ID.getParameterName(), errorReport.getId());
 		}
 		MongoQuery<ErrorReport> q = new MongoQuery<>(params, dtoFilter);
 
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(errorReport)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(errorReport)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			summary.getWrittenIds().forEach(id -> negativeCache.recordExisting(DtoTableNames.ERRORREPORT, id));
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -112,19 +187,23 @@ public class ErrorReportResource {
 	@GET
 	@PermitAll
 	@Path("/{errorReportId}")
-	public Response select(@PathParam("errorReportId") String errorReportId) {
+	public CompletionStage<Response> select(@PathParam("errorReportId") String errorReportId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), errorReportId);
+		// ErrorReports known not to exist are answered without a lookup
+		if (negativeCache.isMissing(DtoTableNames.ERRORREPORT, errorReportId)) {
+			return CompletableFuture
+					.completedFuture(responseBuider.buildMissing(errorReportId, params, Collections.emptyList(),
+							negativeCache.getMaxAge()));
+		}
 
 		MongoQuery<ErrorReport> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve a cached version of the value for the current ErrorReport
-		Optional<List<ErrorReport>> cachedResults = cachingService.get(errorReportId, params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached ErrorReport for ID {}", errorReportId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(errorReportId, params, cachedResults.get());
+		return responseBuider.buildLookupAsync(errorReportId, params,
+				cachingService.getAsync(errorReportId, params, null, () -> dao.get(q).thenApply(results -> {
+					if (results.isEmpty()) {
+						negativeCache.recordMissing(DtoTableNames.ERRORREPORT, errorReportId);
+					}
+					return results;
+				})), negativeCache.getMaxAge());
 	}
 }
@@ -9,10 +9,9 @@ package org.eclipsefoundation.marketplace.resource;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,12 +37,13 @@ import org.eclipsefoundation.marketplace.dto.MetricPeriod;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.DateTimeHelper;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,6 +66,8 @@ public class InstallResource {
 	RequestWrapper wrapper;
 	@Inject
 	ResponseHelper responseBuider;
+	@Inject
+	NegativeCacheService negativeCache;
 
 	// insert required filters for different objects + states
 	@Inject
@@ -91,18 +93,17 @@ public class InstallResource {
 	@GET
 	@PermitAll
 	@Path("/{listingId}")
-	public Response selectInstallCount(@PathParam("listingId") String listingId) {
+	public CompletionStage<Response> selectInstallCount(@PathParam("listingId") String listingId) {
 		wrapper.addParam(UrlParameterNames.ID.getParameterName(), listingId);
-		MongoQuery<Install> q = new MongoQuery<>(wrapper, dtoFilter);
-		Optional<Long> cachedResults = countCache.get(listingId, wrapper,
-				null, () -> StreamHelper.awaitCompletionStage(dao.count(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached install metrics for ID {}", listingId);
-			return Response.serverError().build();
+		// listings known not to exist have no installs
+		if (negativeCache.isMissing(DtoTableNames.LISTING, listingId)) {
+			return CompletableFuture
+					.completedFuture(responseBuider.buildMissing(listingId, wrapper, 0L, negativeCache.getMaxAge()));
 		}
-
-		// return the results as a response
-		return responseBuider.build(listingId, wrapper, cachedResults.get());
+		MongoQuery<Install> q = new MongoQuery<>(wrapper, dtoFilter);
+		// return the results as a response once available
+		return responseBuider.buildAsync(listingId, wrapper,
+				countCache.getAsync(listingId, wrapper, null, () -> dao.count(q)));
 	}
 
 	/**
@@ -117,19 +118,14 @@ public class InstallResource {
 	@GET
 	@PermitAll
 	@Path("/{listingId}/{version}")
-	public Response selectInstallCount(@PathParam("listingId") String listingId, @PathParam("version") String version) {
+	public CompletionStage<Response> selectInstallCount(@PathParam("listingId") String listingId,
+			@PathParam("version") String version) {
 		wrapper.addParam(UrlParameterNames.ID.getParameterName(), listingId);
 		wrapper.addParam(UrlParameterNames.VERSION.getParameterName(), version);
 		MongoQuery<Install> q = new MongoQuery<>(wrapper, dtoFilter);
-		Optional<Long> cachedResults = countCache.get(getCompositeKey(listingId, version), wrapper,
-				null, () -> StreamHelper.awaitCompletionStage(dao.count(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", listingId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(getCompositeKey(listingId, version), wrapper, cachedResults.get());
+		// return the results as a response once available
+		String key = getCompositeKey(listingId, version);
+		return responseBuider.buildAsync(key, wrapper, countCache.getAsync(key, wrapper, null, () -> dao.count(q)));
 	}
 
 	/**
@@ -142,18 +138,17 @@ public class InstallResource {
 	@GET
 	@PermitAll
 	@Path("/{listingId}/metrics")
-	public Response selectInstallMetrics(@PathParam("listingId") String listingId) {
+	public CompletionStage<Response> selectInstallMetrics(@PathParam("listingId") String listingId) {
 		wrapper.addParam(UrlParameterNames.ID.getParameterName(), listingId);
 		MongoQuery<InstallMetrics> q = new MongoQuery<>(wrapper, metricFilter);
-		Optional<List<InstallMetrics>> cachedResults = installCache.get(listingId, wrapper,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached install metrics for ID {}", listingId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return Response.ok(cachedResults.get()).build();
+		return installCache.getAsync(listingId, wrapper, null, () -> dao.get(q)).thenApply(cachedResults -> {
+			if (!cachedResults.isPresent()) {
+				LOGGER.error("Error while retrieving cached install metrics for ID {}", listingId);
+				return Response.serverError().build();
+			}
+			// return the results as a response
+			return Response.ok(cachedResults.get()).build();
+		});
 	}
 
 	/**
@@ -167,7 +162,7 @@ public class InstallResource {
 	@POST
 	@PermitAll
 	@Path("/{listingId}/{version}")
-	public Response postInstallMetrics(@PathParam("listingId") String listingId, @PathParam("version") String version,
+	public CompletionStage<Response> postInstallMetrics(@PathParam("listingId") String listingId, @PathParam("version") String version,
 			Install installDetails) {
 		Install record = null;
 
@@ -177,13 +172,15 @@ public class InstallResource {
 			record = wrapper.getUserAgent().generateInstallRecord();
 		} else if (wrapper.getUserAgent().isFromMPC()) {
 			if (installDetails == null) {
-				return new Error(Status.BAD_REQUEST, "Install data could not be read from request body").asResponse();
+				return CompletableFuture.completedFuture(
+						new Error(Status.BAD_REQUEST, "Install data could not be read from request body").asResponse());
 			}
 			record = installDetails;
 		} else {
 			LOGGER.warn("Rebuffed request to post install from request: {}", wrapper);
-			return new Error(Status.FORBIDDEN, "Installs cannot be posted directly from consumer applications")
-					.asResponse();
+			return CompletableFuture.completedFuture(
+					new Error(Status.FORBIDDEN, "Installs cannot be posted directly from consumer applications")
+							.asResponse());
 		}
 
 		// update the install details to reflect the current request
@@ -193,11 +190,15 @@ public class InstallResource {
 		// create the query wrapper to pass to DB dao
 		MongoQuery<Install> q = new MongoQuery<>(wrapper, dtoFilter);
 
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(record)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(record)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -214,22 +215,22 @@ public class InstallResource {
 	@GET
 	@RolesAllowed("marketplace_admin_access")
 	@Path("/generate_metrics")
-	public Response generateInstallStats() {
-		List<CompletionStage<List<MetricPeriod>>> stages = new ArrayList<>();
-		// get total install count for all listings available
-		Map<String, Integer> overallCounts = new HashMap<>();
-		CompletionStage<List<MetricPeriod>> stage = dao.get(new MongoQuery<>(wrapper, periodFilter));
-		stage.whenComplete((metrics, e) -> {
-			// if theres an error, immediately stop processing
-			if (e != null) {
-				throw new RuntimeException(e);
-			}
+	public CompletionStage<Response> generateInstallStats() {
+		List<CompletionStage<Void>> stages = new ArrayList<>();
+		// get total install count for all listings available, using thread safe map
+		// impl as results are recorded as they arrive
+		Map<String, Integer> overallCounts = new ConcurrentHashMap<>();
+		// metrics are rebuilt from the source of truth, so read them from the primary
+		MongoQuery<MetricPeriod> totalQuery = new MongoQuery<>(wrapper, periodFilter);
+		totalQuery.setPrimaryRequired(true);
+		stages.add(dao.get(totalQuery).thenAccept(metrics -> {
 			// for each metric, insert total count into the map
 			for (MetricPeriod metric : metrics) {
-				overallCounts.put(metric.getListingId(), metric.getCount());
+				if (metric.getCount() != null) {
+					overallCounts.put(metric.getListingId(), metric.getCount());
+				}
 			}
-		});
-		stages.add(stage);
+		}));
 
 		// use thread safe map impl for storing metrics
 		Map<String, List<MetricPeriod>> r = new ConcurrentHashMap<>();
@@ -246,32 +247,36 @@ public class InstallResource {
 			// create the query wrapper to pass to DB dao. No cache needed as this info
 			// won't be cached
 			MongoQuery<MetricPeriod> q = new MongoQuery<>(wrapper, periodFilter);
-			// run query, and set up a completion activity to record data
-			CompletionStage<List<MetricPeriod>> statStage = dao.get(q);
-			statStage.whenComplete((metrics, e) -> {
-				// if theres an error, immediately stop processing
-				if (e != null) {
-					throw new RuntimeException(e);
-				}
+			q.setPrimaryRequired(true);
+			// run query, and record data as it arrives. Errors stop processing as they
+			// propagate to the combined stage
+			stages.add(dao.get(q).thenAccept(metrics -> {
 				// for each metric, insert into the map
 				for (MetricPeriod metric : metrics) {
-					r.computeIfAbsent(metric.getListingId(), k -> new ArrayList<MetricPeriod>()).add(metric);
+					r.computeIfAbsent(metric.getListingId(), k -> Collections.synchronizedList(new ArrayList<>()))
+							.add(metric);
 				}
-			});
-			// keep stage reference to check when complete
-			stages.add(statStage);
+			}));
 		}
-		// wrap futures and await all calls to finish
-		StreamHelper.awaitCompletionStage(CompletableFuture.allOf(stages.toArray(new CompletableFuture[] {})));
-
-		// convert the map to a list of install metric objects, adding in total count
-		List<InstallMetrics> installMetrics = r.entrySet().stream().map(entry -> new InstallMetrics(entry.getKey(),
-				entry.getValue(), overallCounts.getOrDefault(entry.getKey(), 0))).collect(Collectors.toList());
-
-		// push the content to the database, and await for it to finish
-		StreamHelper.awaitCompletionStage(dao.add(new MongoQuery<>(wrapper, metricFilter), installMetrics));
-		// return the results as a response
-		return Response.ok().build();
+		MongoQuery<InstallMetrics> metricQuery = new MongoQuery<>(wrapper, metricFilter);
+		// wrap futures and push the results once all calls finish
+		return CompletableFuture
+				.allOf(stages.stream().map(CompletionStage::toCompletableFuture).toArray(CompletableFuture[]::new))
+				.thenCompose(v -> {
+					// convert the map to a list of install metric objects, adding in total count
+					List<InstallMetrics> installMetrics = r.entrySet().stream()
+							.map(entry -> new InstallMetrics(entry.getKey(), entry.getValue(),
+									overallCounts.getOrDefault(entry.getKey(), 0)))
+							.collect(Collectors.toList());
+					// push the content to the database
+					return dao.add(metricQuery, installMetrics);
+				}).thenApply(summary -> {
+					if (summary.hasFailures()) {
+						LOGGER.warn("Install metrics were only partially written: {}", summary);
+					}
+					// return the summary of the write as a response
+					return Response.ok(summary).build();
+				});
 	}
 
 	private String getCompositeKey(String listingId, String version) {
@@ -9,15 +9,19 @@
 */
 package org.eclipsefoundation.marketplace.resource;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.json.bind.Jsonb;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -28,24 +32,30 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.Listing;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.helper.CacheTagHelper;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
 import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.model.SortOrder;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.namespace.MediaTypeNames;
+import org.eclipsefoundation.marketplace.namespace.ResponseHeaderNames;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
 import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
 import org.eclipsefoundation.marketplace.service.PromotionService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mongodb.client.result.DeleteResult;
-
 /**
  * Resource for retrieving listings from the MongoDB instance.
  * 
@@ -64,6 +74,14 @@ public class ListingResource {
 	DtoFilter<Listing> dtoFilter;
 	@Inject
 	CachingService<List<Listing>> cachingService;
+	@Inject
+	CachingService<PaginatedResult<Listing>> pageCache;
+	@Inject
+	CachingService<Long> countCache;
+	@Inject
+	CacheInvalidationService cacheInvalidation;
+	@Inject
+	NegativeCacheService negativeCache;
 
 	@Inject
 	PromotionService promoService;
@@ -72,6 +90,10 @@ public class ListingResource {
 	RequestWrapper params;
 	@Inject
 	ResponseHelper responseBuider;
+	@Inject
+	ManagedExecutor executor;
+	@Inject
+	Jsonb jsonb;
 
 	/**
 	 * Endpoint for /listings/ to retrieve all listings from the database along with
@@ -82,18 +104,67 @@ public class ListingResource {
 	 */
 	@GET
 	@PermitAll
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<Listing> q = new MongoQuery<>(params, dtoFilter);
-		// retrieve the possible cached object
-		Optional<List<Listing>> cachedResults = cachingService.get("all", params, null,
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listings");
-			return Response.serverError().build();
+		// return the query plan in place of results when requested by an admin
+		if (params.isExplain()) {
+			return dao.explain(q).thenApply(plan -> Response.ok(plan.toJson()).build());
 		}
-		// make a copy to inject promotions and not affect cached copies
-		List<Listing> listings = new ArrayList<>(cachedResults.get());
+		// retrieve the page and the total for the current filters as a single cached value
+		CompletionStage<Optional<PaginatedResult<Listing>>> page = pageCache.getAsync("all", params, null,
+				() -> loadPage(q));
+		return StreamHelper.withContext(executor, page).thenComposeAsync(cachedResults -> {
+			if (!cachedResults.isPresent()) {
+				LOGGER.error("Error while retrieving results for ID {}", "all");
+				return CompletableFuture.completedFuture(Response.serverError().build());
+			}
+			PaginatedResult<Listing> results = cachedResults.get();
+			// attach a cursor for the next page before promotions are injected
+			q.getNextCursor(results.getResults())
+					.ifPresent(cursor -> params.setResponseHeader(ResponseHeaderNames.NEXT_CURSOR, cursor));
+			// promotions are joined to the serialized page, so the cached page isn't serialized again
+			return StreamHelper.withContext(executor, getPromotions(results.getResults()))
+					.thenApplyAsync(promoted -> responseBuider.build("all", params, results, promoted));
+		});
+	}
 
+	/**
+	 * Loads the page of results for the query along with the total for its
+	 * filters. The total is cached by the fingerprint of the filters, so that every
+	 * page, sort and cursor of the same filters shares one count. When the total
+	 * is missing, the page and total are read in one call and the page is reused.
+	 * 
+	 * @param q the query for the current page
+	 * @return a stage that completes with the page of results and the total
+	 */
+	private CompletionStage<PaginatedResult<Listing>> loadPage(MongoQuery<Listing> q) {
+		AtomicReference<PaginatedResult<Listing>> loaded = new AtomicReference<>();
+		CompletionStage<Optional<Long>> total = countCache.getAsync("total", params,
+				Collections.singletonMap("filter", Collections.singletonList(q.getFilterFingerprint())),
+				() -> dao.getWithTotal(q).thenApply(result -> {
+					loaded.set(result);
+					return result.getTotal();
+				}));
+		return total.thenCompose(t -> {
+			if (loaded.get() != null) {
+				return CompletableFuture.completedFuture(loaded.get());
+			} else if (!t.isPresent()) {
+				return dao.getWithTotal(q);
+			}
+			// the total is cached, so only the page is read
+			return dao.get(q).thenApply(results -> new PaginatedResult<>(results, t.get()));
+		});
+	}
+
+	/**
+	 * Retrieves the promotions to show with the passed listings when the current
+	 * request is for the first page of unfiltered, unsorted results.
+	 * 
+	 * @param listings the listings for the current request
+	 * @return a stage that completes with the promoted listings to show before the
+	 *         listings, or an empty list if promotions aren't shown
+	 */
+	private CompletionStage<List<Listing>> getPromotions(List<Listing> listings) {
 		// check if promotions should be injected
 		List<UrlParameterNames> active = params.getActiveParameters();
 		Optional<String> pageOpt = params.getFirstParam(UrlParameterNames.PAGE);
@@ -106,11 +177,24 @@ public class ListingResource {
 		} else if (sortOpt.isPresent() && !SortOrder.getOrderFromValue(sortOpt.get()).equals(SortOrder.RANDOM)) {
 			LOGGER.debug("Not injecting promotions, promotions are only injected in unsorted results");
 		} else {
-			listings = promoService.retrievePromotions(params, listings);
+			return promoService.getPromotedListings(params, listings);
 		}
+		return CompletableFuture.completedFuture(Collections.emptyList());
+	}
 
-		// return the results as a response
-		return responseBuider.build("all", params, listings);
+	/**
+	 * Endpoint for /listings/ to stream all listings from the database along with the
+	 * given query string parameters as newline delimited JSON. Results are written
+	 * as they are retrieved and are not cached.
+	 * 
+	 * @return response for the browser
+	 */
+	@GET
+	@PermitAll
+	@Produces(MediaTypeNames.APPLICATION_NDJSON_STREAM)
+	public Response selectStream() {
+		MongoQuery<Listing> q = new MongoQuery<>(params, dtoFilter);
+		return Response.ok(StreamHelper.toStreamingOutput(dao.stream(q), jsonb)).build();
 	}
 
 	/**
@@ -121,17 +205,47 @@ public class ListingResource {
 	 */
 	@PUT
 	@RolesAllowed({ "marketplace_listing_put", "marketplace_admin_access" })
-	public Response putListing(Listing listing) {
-		if (listing.getId() != null) {
-			params.addParam(UrlParameterNames.ID.getParameterName(), listing.getId());
+	public CompletionStage<Response> putListing(Listing listing) {
+		String listingId = listing.getId();
+		if (listingId != null) {
+			params.addParam(UrlParameterNames.ID.getParameterName(), listingId);
 		}
 		MongoQuery<Listing> q = new MongoQuery<>(params, dtoFilter);
+		// read back updated listings from the source data, as the expanded listings
+		// and secondaries are updated asynchronously
+		MongoQuery<Listing> updated = new MongoQuery<>(params, dtoFilter);
+		updated.skipMaterialized();
+		updated.setPrimaryRequired(true);
 
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(listing)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(listing)).thenCompose(summary -> {
+			if (summary.hasFailures()) {
+				return CompletableFuture.completedFuture(
+						new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+								.asResponse());
+			}
+			if (listingId == null || summary.getInserted() + summary.getUpserted() > 0) {
+				// new listings can appear in any cached listing results. The IDs of new
+				// listings are generated while writing, so they are read from the summary
+				summary.getWrittenIds().forEach(id -> negativeCache.recordExisting(DtoTableNames.LISTING, id));
+				cacheInvalidation.removeByPrefix(CachingService.getEndpointPrefix("/listings"));
+				return CompletableFuture.completedFuture(Response.ok().build());
+			}
+			// remove the results containing the listing, and write through the new value
+			removeCached(listingId);
+			return dao.get(updated).handle((results, e) -> {
+				if (e != null) {
+					LOGGER.warn("Could not write through updated listing '{}' to the cache", listingId, e);
+				} else if (!results.isEmpty()) {
+					cachingService.put(CachingService.getCacheKey("/listings/" + listingId, listingId,
+							Collections.singletonMap(UrlParameterNames.ID.getParameterName(),
+									Collections.singletonList(listingId))),
+							results);
+				}
+				// return the results as a response
+				return Response.ok().build();
+			});
+		});
 	}
 
 	/**
@@ -144,20 +258,24 @@ public class ListingResource {
 	@GET
 	@PermitAll
 	@Path("/{listingId}")
-	public Response select(@PathParam("listingId") String listingId) {
+	public CompletionStage<Response> select(@PathParam("listingId") String listingId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), listingId);
+		// listings known not to exist are answered without a lookup
+		if (negativeCache.isMissing(DtoTableNames.LISTING, listingId)) {
+			return CompletableFuture
+					.completedFuture(responseBuider.buildMissing(listingId, params, Collections.emptyList(),
+							negativeCache.getMaxAge()));
+		}
 
 		MongoQuery<Listing> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve a cached version of the value for the current listing
-		Optional<List<Listing>> cachedResults = cachingService.get(listingId, params, null,
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", listingId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(listingId, params, cachedResults.get());
+		return responseBuider.buildLookupAsync(listingId, params,
+				cachingService.getAsync(listingId, params, null, () -> dao.get(q).thenApply(results -> {
+					if (results.isEmpty()) {
+						negativeCache.recordMissing(DtoTableNames.LISTING, listingId);
+					}
+					return results;
+				})), negativeCache.getMaxAge());
 	}
 
 	/**
@@ -170,15 +288,33 @@ public class ListingResource {
 	@DELETE
 	@RolesAllowed({ "marketplace_listing_delete", "marketplace_admin_access" })
 	@Path("/{listingId}")
-	public Response delete(@PathParam("listingId") String listingId) {
+	public CompletionStage<Response> delete(@PathParam("listingId") String listingId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), listingId);
 		MongoQuery<Listing> q = new MongoQuery<>(params, dtoFilter);
 		// delete the currently selected asset
-		DeleteResult result = StreamHelper.awaitCompletionStage(dao.delete(q));
-		if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
-			return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
-		}
-		// return the results as a response
-		return Response.ok().build();
+		return dao.delete(q).thenApply(result -> {
+			if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
+				return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
+			}
+			// remove the results containing the listing
+			removeCached(listingId);
+			// return the results as a response
+			return Response.ok().build();
+		});
+	}
+
+	/**
+	 * Removes the cached results containing the listing after it was changed or
+	 * deleted. Pages of listings are removed whether or not they contain the
+	 * listing, as the change can move the listing in or out of filtered pages and
+	 * change the totals stored with each page. Cached single listings are only
+	 * removed for the changed listing.
+	 * 
+	 * @param listingId the ID of the changed listing
+	 */
+	void removeCached(String listingId) {
+		cacheInvalidation.removeByPrefix(CachingService.getEndpointPrefix("/listings"));
+		// other endpoints can also include the listing, such as promotions
+		cacheInvalidation.removeByTag(CacheTagHelper.getTag(Listing.class, listingId));
 	}
 }
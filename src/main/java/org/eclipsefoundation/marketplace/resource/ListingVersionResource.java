@@ -8,7 +8,7 @@ package org.eclipsefoundation.marketplace.resource;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.security.RolesAllowed;
 import javax.enterprise.context.RequestScoped;
@@ -27,7 +27,6 @@ import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.ListingVersion;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
@@ -37,8 +36,6 @@ import org.jboss.resteasy.annotations.jaxrs.PathParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mongodb.client.result.DeleteResult;
-
 /**
  * Resource for retrieving {@linkplain ListingVersion}s from the MongoDB
  * instance.
@@ -64,18 +61,17 @@ public class ListingVersionResource {
 	ResponseHelper responseBuider;
 
 	@GET
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<ListingVersion> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve the possible cached object
-		Optional<List<ListingVersion>> cachedResults = cachingService.get("all", params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached ListingVersions");
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return Response.ok(cachedResults.get()).build();
+		return cachingService.getAsync("all", params, null, () -> dao.get(q)).thenApply(cachedResults -> {
+			if (!cachedResults.isPresent()) {
+				LOGGER.error("Error while retrieving cached ListingVersions");
+				return Response.serverError().build();
+			}
+			// return the results as a response
+			return Response.ok(cachedResults.get()).build();
+		});
 	}
 
 	/**
@@ -86,16 +82,20 @@ public class ListingVersionResource {
 	 */
 	@PUT
 	@RolesAllowed({ "marketplace_version_put", "marketplace_admin_access" })
-	public Response putListingVersion(ListingVersion listingVersion) {
+	public CompletionStage<Response> putListingVersion(ListingVersion listingVersion) {
 		if (listingVersion.getId() != null) {
 			params.addParam(UrlParameterNames.ID.getParameterName(), listingVersion.getId());
 		}
 		MongoQuery<ListingVersion> q = new MongoQuery<>(params, dtoFilter);
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(listingVersion)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(listingVersion)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -107,20 +107,19 @@ public class ListingVersionResource {
 	 */
 	@GET
 	@Path("/{listingVersionId}")
-	public Response select(@PathParam("listingVersionId") String listingVersionId) {
+	public CompletionStage<Response> select(@PathParam("listingVersionId") String listingVersionId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), listingVersionId);
 
 		MongoQuery<ListingVersion> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve a cached version of the value for the current listing
-		Optional<List<ListingVersion>> cachedResults = cachingService.get(listingVersionId, params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", listingVersionId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return Response.ok(cachedResults.get()).build();
+		return cachingService.getAsync(listingVersionId, params, null, () -> dao.get(q)).thenApply(cachedResults -> {
+			if (!cachedResults.isPresent()) {
+				LOGGER.error("Error while retrieving cached listing for ID {}", listingVersionId);
+				return Response.serverError().build();
+			}
+			// return the results as a response
+			return Response.ok(cachedResults.get()).build();
+		});
 	}
 
 	/**
@@ -133,16 +132,17 @@ public class ListingVersionResource {
 	@DELETE
 	@RolesAllowed({ "marketplace_version_delete", "marketplace_admin_access" })
 	@Path("/{listingVersionId}")
-	public Response delete(@PathParam("listingVersionId") String listingVersionId) {
+	public CompletionStage<Response> delete(@PathParam("listingVersionId") String listingVersionId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), listingVersionId);
 
 		MongoQuery<ListingVersion> q = new MongoQuery<>(params, dtoFilter);
 		// delete the currently selected asset
-		DeleteResult result = StreamHelper.awaitCompletionStage(dao.delete(q));
-		if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
-			return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
-		}
-		// return the results as a response
-		return Response.ok().build();
+		return dao.delete(q).thenApply(result -> {
+			if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
+				return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 }
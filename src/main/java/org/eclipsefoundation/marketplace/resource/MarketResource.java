@@ -8,7 +8,7 @@ package org.eclipsefoundation.marketplace.resource;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
@@ -28,17 +28,12 @@ import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.Market;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.mongodb.client.result.DeleteResult;
 
 /**
  * @author martin
@@ -49,8 +44,6 @@ import com.mongodb.client.result.DeleteResult;
 @Consumes(MediaType.APPLICATION_JSON)
 @RequestScoped
 public class MarketResource {
-	private static final Logger LOGGER = LoggerFactory.getLogger(MarketResource.class);
-
 	@Inject
 	MongoDao dao;
 	@Inject
@@ -64,18 +57,11 @@ public class MarketResource {
 	
 	@GET
 	@PermitAll
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<Market> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve the possible cached object
-		Optional<List<Market>> cachedResults = cachingService.get("all", params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached Categorys");
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build("all", params, cachedResults.get());
+		return responseBuider.buildAsync("all", params,
+				cachingService.getAsync("all", params, null, () -> dao.get(q)));
 	}
 
 	/**
@@ -86,17 +72,21 @@ public class MarketResource {
 	 */
 	@PUT
 	@RolesAllowed({ "marketplace_market_put", "marketplace_admin_access" })
-	public Response putMarket(Market market) {
+	public CompletionStage<Response> putMarket(Market market) {
 		if (market.getId() != null) {
 			params.addParam(UrlParameterNames.ID.getParameterName(), market.getId());
 		}
 		MongoQuery<Market> q = new MongoQuery<>(params, dtoFilter);
 
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(market)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(market)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -109,20 +99,13 @@ public class MarketResource {
 	@GET
 	@PermitAll
 	@Path("/{marketId}")
-	public Response select(@PathParam("marketId") String marketId) {
+	public CompletionStage<Response> select(@PathParam("marketId") String marketId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), marketId);
 
 		MongoQuery<Market> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve a cached version of the value for the current listing
-		Optional<List<Market>> cachedResults = cachingService.get(marketId, params,
-				null, () -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", marketId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(marketId, params, cachedResults.get());
+		return responseBuider.buildAsync(marketId, params,
+				cachingService.getAsync(marketId, params, null, () -> dao.get(q)));
 	}
 
 	/**
@@ -135,16 +118,17 @@ public class MarketResource {
 	@DELETE
 	@RolesAllowed({ "marketplace_market_delete", "marketplace_admin_access" })
 	@Path("/{marketId}")
-	public Response delete(@PathParam("marketId") String marketId) {
+	public CompletionStage<Response> delete(@PathParam("marketId") String marketId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), marketId);
 
 		MongoQuery<Market> q = new MongoQuery<>(params, dtoFilter);
 		// delete the currently selected asset
-		DeleteResult result = StreamHelper.awaitCompletionStage(dao.delete(q));
-		if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
-			return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
-		}
-		// return the results as a response
-		return Response.ok().build();
+		return dao.delete(q).thenApply(result -> {
+			if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
+				return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 }
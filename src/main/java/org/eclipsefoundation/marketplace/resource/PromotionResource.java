@@ -3,7 +3,7 @@ package org.eclipsefoundation.marketplace.resource;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import javax.annotation.security.RolesAllowed;
 import javax.enterprise.context.RequestScoped;
@@ -22,17 +22,12 @@ import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.Promotion;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
 import org.eclipsefoundation.marketplace.helper.ResponseHelper;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.Error;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 import org.eclipsefoundation.marketplace.service.CachingService;
 import org.jboss.resteasy.annotations.jaxrs.PathParam;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.mongodb.client.result.DeleteResult;
 
 /**
  * Resource for interacting with promotions within the API.
@@ -45,8 +40,6 @@ import com.mongodb.client.result.DeleteResult;
 @Consumes(MediaType.APPLICATION_JSON)
 @RequestScoped
 public class PromotionResource {
-	private static final Logger LOGGER = LoggerFactory.getLogger(PromotionResource.class);
-
 	@Inject
 	MongoDao dao;
 	@Inject
@@ -67,18 +60,11 @@ public class PromotionResource {
 	 */
 	@GET
 	@RolesAllowed({ "marketplace_promotion_get", "marketplace_admin_access" })
-	public Response select() {
+	public CompletionStage<Response> select() {
 		MongoQuery<Promotion> q = new MongoQuery<>(params, dtoFilter);
 		// retrieve the possible cached object
-		Optional<List<Promotion>> cachedResults = cachingService.get("all", params, Collections.emptyMap(),
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached promotions");
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build("all", params, cachedResults.get());
+		return responseBuider.buildAsync("all", params,
+				cachingService.getAsync("all", params, Collections.emptyMap(), () -> dao.get(q)));
 	}
 
 	/**
@@ -89,16 +75,20 @@ public class PromotionResource {
 	 */
 	@PUT
 	@RolesAllowed({ "marketplace_promotion_put", "marketplace_admin_access" })
-	public Response putPromotion(Promotion promotion) {
+	public CompletionStage<Response> putPromotion(Promotion promotion) {
 		if (promotion.getId() != null) {
 			params.addParam(UrlParameterNames.ID.getParameterName(), promotion.getId());
 		}
 		MongoQuery<Promotion> q = new MongoQuery<>(params, null, dtoFilter);
-		// add the object, and await the result
-		StreamHelper.awaitCompletionStage(dao.add(q, Arrays.asList(promotion)));
-
-		// return the results as a response
-		return Response.ok().build();
+		// add the object, responding once the write completes
+		return dao.add(q, Arrays.asList(promotion)).thenApply(summary -> {
+			if (summary.hasFailures()) {
+				return new Error(Status.INTERNAL_SERVER_ERROR, "Could not write the document to the database")
+						.asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 
 	/**
@@ -111,20 +101,13 @@ public class PromotionResource {
 	@GET
 	@RolesAllowed({ "marketplace_promotion_get", "marketplace_admin_access" })
 	@Path("/{promotionId}")
-	public Response select(@PathParam("promotionId") String promotionId) {
+	public CompletionStage<Response> select(@PathParam("promotionId") String promotionId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), promotionId);
 
 		MongoQuery<Promotion> q = new MongoQuery<>(params, null, dtoFilter);
 		// retrieve a cached version of the value for the current listing
-		Optional<List<Promotion>> cachedResults = cachingService.get(promotionId, params, Collections.emptyMap(),
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached listing for ID {}", promotionId);
-			return Response.serverError().build();
-		}
-
-		// return the results as a response
-		return responseBuider.build(promotionId, params, cachedResults.get());
+		return responseBuider.buildAsync(promotionId, params,
+				cachingService.getAsync(promotionId, params, Collections.emptyMap(), () -> dao.get(q)));
 	}
 
 	/**
@@ -137,16 +120,17 @@ public class PromotionResource {
 	@DELETE
 	@RolesAllowed({ "marketplace_promotion_delete", "marketplace_admin_access" })
 	@Path("/{promotionId}")
-	public Response delete(@PathParam("promotionId") String promotionId) {
+	public CompletionStage<Response> delete(@PathParam("promotionId") String promotionId) {
 		params.addParam(UrlParameterNames.ID.getParameterName(), promotionId);
 
 		MongoQuery<Promotion> q = new MongoQuery<>(params, null, dtoFilter);
 		// delete the currently selected asset
-		DeleteResult result = StreamHelper.awaitCompletionStage(dao.delete(q));
-		if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
-			return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
-		}
-		// return the results as a response
-		return Response.ok().build();
+		return dao.delete(q).thenApply(result -> {
+			if (result.getDeletedCount() == 0 || !result.wasAcknowledged()) {
+				return new Error(Status.NOT_FOUND, "Did not find an asset to delete for current call").asResponse();
+			}
+			// return the results as a response
+			return Response.ok().build();
+		});
 	}
 }
@@ -0,0 +1,39 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.resource.mapper;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import org.eclipsefoundation.marketplace.exception.QueryTimeoutException;
+import org.eclipsefoundation.marketplace.model.Error;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Returns a gateway timeout when the deadline set by the client has passed, and
+ * service unavailable when an operation exceeded its configured time budget.
+ * 
+ * @author Martin Lowe
+ */
+@Provider
+public class QueryTimeoutMapper implements ExceptionMapper<QueryTimeoutException> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(QueryTimeoutMapper.class);
+
+	@Override
+	public Response toResponse(QueryTimeoutException exception) {
+		LOGGER.warn(exception.getMessage());
+		if (exception.isDeadlineExceeded()) {
+			return new Error(Status.GATEWAY_TIMEOUT, "The request could not be completed before the requested deadline")
+					.asResponse();
+		}
+		return new Error(Status.SERVICE_UNAVAILABLE, "The request could not be completed in the allotted time")
+				.asResponse();
+	}
+}
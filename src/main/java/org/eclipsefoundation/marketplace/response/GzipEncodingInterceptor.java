@@ -0,0 +1,53 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.response;
+
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.eclipsefoundation.marketplace.helper.ResponseHelper;
+
+/**
+ * Compresses response bodies for clients that accept gzip encoded responses.
+ * Responses that already have a Content-Encoding, such as cached bodies that
+ * were compressed ahead of time, are written as is.
+ *
+ * @author Martin Lowe
+ */
+@Provider
+public class GzipEncodingInterceptor implements WriterInterceptor {
+
+	@Context
+	HttpHeaders requestHeaders;
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+		if (context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+				|| !ResponseHelper.acceptsGzip(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING))) {
+			context.proceed();
+			return;
+		}
+		context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+		context.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		// the length of the compressed body isn't known ahead of time
+		context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+		GZIPOutputStream gzip = new GZIPOutputStream(context.getOutputStream());
+		context.setOutputStream(gzip);
+		try {
+			context.proceed();
+		} finally {
+			gzip.finish();
+		}
+	}
+}
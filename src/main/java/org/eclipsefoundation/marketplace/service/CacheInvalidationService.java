@@ -0,0 +1,65 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.Optional;
+
+import org.bson.BsonDocument;
+
+/**
+ * Interface for removing cache entries on every instance of the application.
+ * Removals are applied to the local cache immediately and published for the
+ * other instances to apply once received.
+ *
+ * @author Martin Lowe
+ */
+public interface CacheInvalidationService {
+
+	/**
+	 * Removes the cache entry with the given key on all instances.
+	 *
+	 * @param key cache entry key
+	 */
+	void remove(String key);
+
+	/**
+	 * Removes all cache entries containing the entity with the given tag on all
+	 * instances.
+	 *
+	 * @param tag the tag of the entity, as generated by
+	 *            {@link org.eclipsefoundation.marketplace.helper.CacheTagHelper}
+	 */
+	void removeByTag(String tag);
+
+	/**
+	 * Removes all cache entries with keys starting with the given prefix on all
+	 * instances.
+	 *
+	 * @param prefix the start of the cache entry keys to remove
+	 */
+	void removeByPrefix(String prefix);
+
+	/**
+	 * Removes all cache entries on all instances.
+	 */
+	void removeAll();
+
+	/**
+	 * @return true if removals from other instances are being received, otherwise
+	 *         false
+	 */
+	boolean isListening();
+
+	/**
+	 * Returns the position in the stream of removals from other instances, which
+	 * can be saved along with the cache to resume receiving removals from the same
+	 * point after a restart.
+	 *
+	 * @return the current position, or empty if removals haven't been received
+	 */
+	Optional<BsonDocument> getPosition();
+}
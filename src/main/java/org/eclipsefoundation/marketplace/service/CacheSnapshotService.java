@@ -0,0 +1,54 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+import org.bson.BsonDocument;
+
+/**
+ * Interface for saving the contents of the cache to disk and restoring them
+ * when the application starts, so that new instances start with a warm cache.
+ *
+ * @author Martin Lowe
+ */
+public interface CacheSnapshotService {
+
+	/**
+	 * Writes the current cache entries to the snapshot file, replacing any
+	 * previous snapshot. The position in the stream of cache removals is saved
+	 * with the entries, so removals made after the snapshot can be applied to the
+	 * restored entries.
+	 *
+	 * @return the number of entries written
+	 */
+	int save();
+
+	/**
+	 * Loads the entries in the snapshot file into the cache, skipping entries that
+	 * have expired since they were saved.
+	 *
+	 * @return the number of entries restored
+	 */
+	int restore();
+
+	/**
+	 * @return true once the cache has been restored or there is nothing to
+	 *         restore, otherwise false
+	 */
+	boolean isWarm();
+
+	/**
+	 * Returns a stage that completes once the cache has been restored on startup,
+	 * or immediately if snapshots are disabled.
+	 *
+	 * @return a stage that completes with the position in the stream of cache
+	 *         removals saved with the restored snapshot, or empty if there is none
+	 */
+	CompletionStage<Optional<BsonDocument>> whenRestored();
+}
@@ -6,14 +6,24 @@
  */
 package org.eclipsefoundation.marketplace.service;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
 
 /**
  * Interface defining the caching service to be used within the application.
@@ -37,6 +47,35 @@ public interface CachingService<T> {
 	Optional<T> get(String id, RequestWrapper wrapper, Map<String, List<String>> params,
 			Callable<? extends T> callable);
 
+	/**
+	 * Asynchronous variant of
+	 * {@link #get(String, RequestWrapper, Map, Callable)}. Returns a stage that
+	 * completes with the cached object if available, otherwise with the value of
+	 * the stage returned by the loader once it has been stored in the cache.
+	 * Concurrent requests for a missing entry share a single call to the loader.
+	 * If the loader runs out of time, a stale value for the entry is returned when
+	 * available, otherwise the stage completes with the timeout.
+	 * 
+	 * @param id      the ID of the object to be stored in cache
+	 * @param wrapper the query parameters for the current request
+	 * @param params  parameters to use in place of wrapper parameters when set
+	 * @param loader  a supplier for a stage that completes with an object of type T
+	 * @return a stage that completes with the cached result, or empty if the value
+	 *         could not be loaded
+	 */
+	CompletionStage<Optional<T>> getAsync(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Supplier<CompletionStage<? extends T>> loader);
+
+	/**
+	 * Returns the cache entry for the request, holding the cached value along with
+	 * the load time, expiration, and usage of the value.
+	 * 
+	 * @param id      the ID of the object stored in cache
+	 * @param wrapper the query parameters for the current request
+	 * @return the entry for the current request if there is one, otherwise empty
+	 */
+	Optional<CacheEntry<T>> getEntry(String id, RequestWrapper wrapper);
+
 	/**
 	 * Returns the expiration date in millis since epoch.
 	 * 
@@ -45,13 +84,40 @@ public interface CachingService<T> {
 	 * @return an Optional expiration date for the current object if its set. If
 	 *         there is no underlying data, then empty would be returned
 	 */
-	Optional<Long> getExpiration(String id, RequestWrapper params);
+	default Optional<Long> getExpiration(String id, RequestWrapper params) {
+		return getEntry(id, params).map(CacheEntry::getExpiresAt);
+	}
 
 	/**
 	 * @return the max age of cache entries
 	 */
 	long getMaxAge();
 
+	/**
+	 * Returns the number of entries in the cache and their estimated size, along
+	 * with the configured limits.
+	 * 
+	 * @return the current usage of the cache
+	 */
+	CacheUsage getUsage();
+
+	/**
+	 * Returns the statistics recorded since the cache was created, covering
+	 * requests, loads, and evictions.
+	 * 
+	 * @return the current statistics of the cache
+	 */
+	CacheStatistics getStats();
+
+	/**
+	 * Returns the most requested cache keys, as estimated from a fixed number of
+	 * tracked keys.
+	 * 
+	 * @param limit the maximum number of keys to return
+	 * @return the most requested keys, ordered by their estimated count
+	 */
+	List<HotKey> getHotKeys(int limit);
+
 	/**
 	 * Retrieves a set of cache keys available to the current cache.
 	 * 
@@ -66,14 +132,71 @@ public interface CachingService<T> {
 	 */
 	void remove(String key);
 
+	/**
+	 * Retrieves a copy of the entries currently in the cache.
+	 * 
+	 * @return map of cache entry keys to the current entries
+	 */
+	Map<String, CacheEntry<T>> getEntries();
+
+	/**
+	 * Restores an entry saved by an earlier instance of the cache. The entry keeps
+	 * its original load time and expiration, and is skipped if it has expired or
+	 * if the cache already has an entry for the key.
+	 * 
+	 * @param key   cache entry key
+	 * @param entry the saved entry
+	 */
+	void restore(String key, CacheEntry<T> entry);
+
+	/**
+	 * Stores the value for the given cache key, replacing any current entry. Used
+	 * to write values through to the cache once they have been updated.
+	 * 
+	 * @param key   cache entry key
+	 * @param value the value to cache
+	 */
+	void put(String key, T value);
+
+	/**
+	 * Removes all cache entries containing the entity with the given tag.
+	 * 
+	 * @param tag the tag of the entity, as generated by
+	 *            {@link org.eclipsefoundation.marketplace.helper.CacheTagHelper}
+	 */
+	void removeByTag(String tag);
+
+	/**
+	 * Removes all cache entries with keys starting with the given prefix.
+	 * 
+	 * @param prefix the start of the cache entry keys to remove
+	 */
+	void removeByPrefix(String prefix);
+
 	/**
 	 * Removes all cache entries.
 	 */
 	void removeAll();
 
+	/**
+	 * Generates the prefix shared by the keys of all entries cached for the given
+	 * endpoint. Entries for endpoints below it, such as single entities under a
+	 * listing endpoint, don't share the prefix.
+	 * 
+	 * @param endpoint the path of the endpoint, as returned by
+	 *                 {@link RequestWrapper#getEndpoint()}
+	 * @return the prefix of cache keys for the endpoint
+	 */
+	static String getEndpointPrefix(String endpoint) {
+		return "[" + endpoint + ']';
+	}
+
 	/**
 	 * Generates a unique key based on the id of the item/set of items to be stored,
-	 * as well as any passed parameters.
+	 * as well as any passed parameters. Request parameters that aren't known URL
+	 * parameters and weren't read by the filters of a query for the request don't
+	 * change the results, and are left out of the key so that they don't create
+	 * duplicate entries.
 	 * 
 	 * @param id      identity string of the item to cache
 	 * @param wrapper parameters associated with the request for information
@@ -81,16 +204,36 @@ public interface CachingService<T> {
 	 * @return the unique cache key for the request.
 	 */
 	default String getCacheKey(String id, RequestWrapper wrapper, Map<String, List<String>> params) {
+		if (params != null) {
+			return getCacheKey(wrapper.getEndpoint(), id, params);
+		}
+		// get the used set of parameters for filtering data
+		Map<String, List<String>> used = wrapper.asMap();
+		used.keySet().removeIf(name -> !wrapper.isFilterParameter(name) && Arrays.stream(UrlParameterNames.values())
+				.noneMatch(p -> p.getParameterName().equals(name)));
+		return getCacheKey(wrapper.getEndpoint(), id, used);
+	}
+
+	/**
+	 * Generates the key for an item requested from the given endpoint, for use
+	 * outside of a request to that endpoint. Parameters and their values are
+	 * sorted, so the same set of parameters always generates the same key.
+	 * 
+	 * @param endpoint the path of the endpoint, as returned by
+	 *                 {@link RequestWrapper#getEndpoint()}
+	 * @param id       identity string of the item to cache
+	 * @param params   parameters associated with the request for information
+	 * @return the unique cache key for the request.
+	 */
+	static String getCacheKey(String endpoint, String id, Map<String, List<String>> params) {
 		StringBuilder sb = new StringBuilder();
-		sb.append('[').append(wrapper.getEndpoint()).append(']');
+		sb.append('[').append(endpoint).append(']');
 		sb.append("id:").append(id);
 
-		// get the used set of parameters for filtering data
-		Map<String, List<String>> actual = params == null ? wrapper.asMap() : params;
 		// join all the non-empty params to the key to create distinct entries for
 		// filtered values
-		actual.entrySet().stream().filter(e -> !e.getValue().isEmpty())
-				.map(e -> e.getKey() + '=' + StringUtils.join(e.getValue(), ','))
+		new TreeMap<>(params).entrySet().stream().filter(e -> !e.getValue().isEmpty())
+				.map(e -> e.getKey() + '=' + StringUtils.join(new TreeSet<>(e.getValue()), ','))
 				.forEach(s -> sb.append('|').append(s));
 
 		return sb.toString();
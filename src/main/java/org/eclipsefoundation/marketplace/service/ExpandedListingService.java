@@ -0,0 +1,59 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.List;
+
+import org.eclipsefoundation.marketplace.model.MaterializedViewStatus;
+
+import com.mongodb.client.model.IndexModel;
+
+/**
+ * Interface for maintaining the collection of expanded listings, which holds
+ * each listing with its versions, categories, and install counts embedded so
+ * that listings can be read without joining data on each request.
+ * 
+ * @author Martin Lowe
+ */
+public interface ExpandedListingService {
+
+	/**
+	 * Name of the collection containing the expanded listings.
+	 */
+	public static final String COLLECTION = "listings_expanded";
+
+	/**
+	 * Checks whether the expanded listings are complete and being kept up to date,
+	 * and can be used to serve listing queries.
+	 * 
+	 * @return true if listings can be read from the expanded collection
+	 */
+	boolean isAvailable();
+
+	/**
+	 * Rebuilds the collection of expanded listings from the source collections,
+	 * and starts watching the source collections for changes if not already doing
+	 * so. This call blocks until the rebuild is complete. Only one instance
+	 * maintains the collection at a time, other instances request the rebuild
+	 * from it and return immediately.
+	 */
+	void rebuild();
+
+	/**
+	 * Retrieves the indexes maintained on the collection of expanded listings.
+	 * 
+	 * @return the indexes of the expanded listings
+	 */
+	List<IndexModel> getIndexes();
+
+	/**
+	 * Retrieves the current state of the expanded listings collection.
+	 * 
+	 * @return the status of the expanded listings
+	 */
+	MaterializedViewStatus getStatus();
+}
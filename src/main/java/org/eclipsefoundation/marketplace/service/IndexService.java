@@ -0,0 +1,40 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import org.eclipsefoundation.marketplace.model.IndexReport;
+
+/**
+ * Interface for managing the indexes declared by the application for each of
+ * the collections in the database.
+ * 
+ * @author Martin Lowe
+ */
+public interface IndexService {
+
+	/**
+	 * Creates any declared indexes that are missing from the database. Indexes that
+	 * already exist are left as is, so this can safely be called multiple times.
+	 * The indexes of each collection are built at the same time, and failures are
+	 * logged without failing the returned stage.
+	 * 
+	 * @return a stage that completes once every collection has been handled
+	 */
+	CompletionStage<Void> createIndexes();
+
+	/**
+	 * Retrieves a report for each collection used by the application, comparing
+	 * the declared indexes to those that exist in the database. Collections
+	 * without declared indexes are included with the indexes they have.
+	 * 
+	 * @return future list of index reports, one per collection
+	 */
+	CompletionStage<List<IndexReport>> getReports();
+}
@@ -0,0 +1,58 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import org.eclipsefoundation.marketplace.model.NegativeCacheStats;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+
+/**
+ * Interface for tracking IDs that are known not to exist, so that lookups for
+ * them can be answered without querying the database. Missing IDs are kept
+ * separately from the main cache with a shorter TTL, so that lookups for
+ * unknown IDs don't push other entries out of the cache.
+ *
+ * @author Martin Lowe
+ */
+public interface NegativeCacheService {
+
+	/**
+	 * Checks whether the ID is known not to exist in the given table.
+	 *
+	 * @param table the table of the looked up entity
+	 * @param id    the ID of the entity
+	 * @return true if the entity is known not to exist, otherwise false
+	 */
+	boolean isMissing(DtoTableNames table, String id);
+
+	/**
+	 * Records that a lookup for the ID found no results.
+	 *
+	 * @param table the table of the looked up entity
+	 * @param id    the ID of the entity
+	 */
+	void recordMissing(DtoTableNames table, String id);
+
+	/**
+	 * Records that an entity with the ID was written, so that it is no longer
+	 * reported as missing.
+	 *
+	 * @param table the table of the written entity
+	 * @param id    the ID of the entity
+	 */
+	void recordExisting(DtoTableNames table, String id);
+
+	/**
+	 * @return the number of seconds that IDs are reported as missing for, used as
+	 *         the max age of responses for missing entities
+	 */
+	long getMaxAge();
+
+	/**
+	 * @return the current usage of the negative cache
+	 */
+	NegativeCacheStats getStats();
+}
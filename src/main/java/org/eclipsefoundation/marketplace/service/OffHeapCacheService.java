@@ -0,0 +1,72 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.Optional;
+
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.OffHeapStats;
+
+/**
+ * Interface for the second tier of the cache, holding the serialized bodies of
+ * entries evicted from the heap outside of the heap. Entries found in this tier
+ * are moved back into the heap cache rather than loaded again.
+ *
+ * @author Martin Lowe
+ */
+public interface OffHeapCacheService {
+
+	/**
+	 * Stores an entry evicted from the heap cache. Entries that have expired or
+	 * have not been serialized as a response body are skipped.
+	 *
+	 * @param entry the evicted entry
+	 */
+	void store(CacheEntry<?> entry);
+
+	/**
+	 * Removes the entry for the key from this tier and reads it back, keeping the
+	 * serialized body along with the value.
+	 *
+	 * @param <T> the type of the cached value
+	 * @param key cache entry key
+	 * @return the entry for the key if there is a fresh one, otherwise empty
+	 */
+	<T> Optional<CacheEntry<T>> load(String key);
+
+	/**
+	 * Removes the entry for the given key.
+	 *
+	 * @param key cache entry key
+	 */
+	void remove(String key);
+
+	/**
+	 * Removes all entries containing the entity with the given tag.
+	 *
+	 * @param tag the tag of the entity, as generated by
+	 *            {@link org.eclipsefoundation.marketplace.helper.CacheTagHelper}
+	 */
+	void removeByTag(String tag);
+
+	/**
+	 * Removes all entries with keys starting with the given prefix.
+	 *
+	 * @param prefix the start of the cache entry keys to remove
+	 */
+	void removeByPrefix(String prefix);
+
+	/**
+	 * Removes all entries.
+	 */
+	void removeAll();
+
+	/**
+	 * @return the current usage of the tier
+	 */
+	OffHeapStats getStats();
+}
@@ -1,6 +1,7 @@
 package org.eclipsefoundation.marketplace.service;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipsefoundation.marketplace.dto.Listing;
 import org.eclipsefoundation.marketplace.dto.Promotion;
@@ -19,19 +20,30 @@ public interface PromotionService {
 	 * 
 	 * @param wrapper wrapper for the current request
 	 * @param promos  list of promotions to retrieve listings for
-	 * @return a list of listings for the list of promos, where data could be found,
-	 *         or an empty list if no corresponding listings could be found for the
-	 *         passed promotions.
+	 * @return a stage that completes with the listings for the list of promos,
+	 *         where data could be found, or an empty list if no corresponding
+	 *         listings could be found for the passed promotions.
 	 */
-	List<Listing> getListingsForPromotions(RequestWrapper wrapper, List<Promotion> promos);
+	CompletionStage<List<Listing>> getListingsForPromotions(RequestWrapper wrapper, List<Promotion> promos);
 
 	/**
 	 * Adds a number of promotions into the given listing set.
 	 * 
 	 * @param wrapper  wrapper for the current request
 	 * @param listings listings to inject promotions into
-	 * @return a list containing the new promotions, if any are found, along with
-	 *         the original listings.
+	 * @return a stage that completes with a list containing the new promotions, if
+	 *         any are found, along with the original listings.
 	 */
-	List<Listing> retrievePromotions(RequestWrapper wrapper, List<Listing> listings);
+	CompletionStage<List<Listing>> retrievePromotions(RequestWrapper wrapper, List<Listing> listings);
+
+	/**
+	 * Retrieves the promoted listings to show at the start of the given listing
+	 * set, leaving out promotions for listings that are already in the set.
+	 * 
+	 * @param wrapper  wrapper for the current request
+	 * @param listings listings that promotions will be shown with
+	 * @return a stage that completes with the promoted listings in the order they
+	 *         should be shown, or an empty list if there are no promotions to show.
+	 */
+	CompletionStage<List<Listing>> getPromotedListings(RequestWrapper wrapper, List<Listing> listings);
 }
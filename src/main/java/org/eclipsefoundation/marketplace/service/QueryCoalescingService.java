@@ -0,0 +1,39 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import org.eclipsefoundation.marketplace.model.CoalescingStats;
+
+/**
+ * Interface for collapsing identical concurrent DAO operations into a single
+ * call, sharing the result between all callers.
+ * 
+ * @author Martin Lowe
+ */
+public interface QueryCoalescingService {
+
+	/**
+	 * Runs the operation if there is no operation in flight for the given key,
+	 * otherwise returns the result of the operation already in flight.
+	 * 
+	 * @param key       canonical key of the operation, including everything that
+	 *                  affects its result
+	 * @param operation supplier that starts the operation
+	 * @return the future result of the operation
+	 */
+	<R> CompletionStage<R> coalesce(String key, Supplier<CompletionStage<R>> operation);
+
+	/**
+	 * Retrieves the current counts of executed and collapsed operations.
+	 * 
+	 * @return the current coalescing counts
+	 */
+	CoalescingStats getStats();
+}
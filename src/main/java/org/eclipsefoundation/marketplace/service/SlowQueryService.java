@@ -0,0 +1,44 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service;
+
+import java.util.List;
+
+import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.SlowQuery;
+
+/**
+ * Interface for recording DAO operations that take longer than the configured
+ * threshold, grouped by the fingerprint of the query that was run.
+ * 
+ * @author Martin Lowe
+ */
+public interface SlowQueryService {
+
+	/**
+	 * Records the duration of a DAO operation. Operations under the slow query
+	 * threshold are ignored.
+	 * 
+	 * @param operation the name of the DAO operation
+	 * @param q         the query that was run
+	 * @param millis    the duration of the operation in milliseconds
+	 */
+	void record(String operation, MongoQuery<?> q, long millis);
+
+	/**
+	 * Retrieves the slowest recent queries, ordered by their longest recent
+	 * execution.
+	 * 
+	 * @return list of the slowest recent queries
+	 */
+	List<SlowQuery> getSlowest();
+
+	/**
+	 * Removes all recorded slow queries.
+	 */
+	void clear();
+}
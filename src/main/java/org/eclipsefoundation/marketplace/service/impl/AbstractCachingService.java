@@ -0,0 +1,359 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.exception.QueryTimeoutException;
+import org.eclipsefoundation.marketplace.helper.CacheTagHelper;
+import org.eclipsefoundation.marketplace.helper.CacheValueHelper;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
+import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.model.SerializedValue;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.OffHeapCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * <p>
+ * Base for the caching services, holding the configuration, statistics and
+ * off-heap tier shared by the cache implementations. Operations that only need
+ * a map view of the cache are implemented here, while retrievals are left to
+ * the implementations as they depend on how each cache loads values.
+ * </p>
+ *
+ * <p>
+ * Values are stored in a {@link CacheEntry} holding the expiration and usage
+ * of the value, so that the metadata for a value is removed along with it.
+ * Entries are stored under a 128-bit hash of the cache key, with the readable
+ * key kept on the entry.
+ * </p>
+ *
+ * @author Martin Lowe
+ * @param <K> the type of the keys entries are stored under in the cache
+ * @param <T> the type of object cached by this instance of the service
+ */
+public abstract class AbstractCachingService<K, T> implements CachingService<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractCachingService.class);
+	private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_SIZE_MAX, defaultValue = "10000")
+	long maxSize;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_SIZE_MAX_BYTES, defaultValue = "0")
+	long maxBytes;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_TTL_MAX_SECONDS, defaultValue = "900")
+	long ttlWrite;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_STALE_MAX_SECONDS, defaultValue = "0")
+	long staleMax;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_STATS_HOT_KEYS, defaultValue = "256")
+	int hotKeys;
+
+	@Inject
+	Jsonb jsonb;
+	@Inject
+	OffHeapCacheService offHeap;
+
+	CacheStatsRecorder stats;
+
+	/**
+	 * @return a map view of the completed entries in the cache
+	 */
+	protected abstract ConcurrentMap<K, CacheEntry<T>> asMap();
+
+	/**
+	 * Converts the readable cache key into the key the entry is stored under.
+	 *
+	 * @param cacheKey the readable cache key
+	 * @return the key of the entry in the cache
+	 */
+	protected abstract K toKey(String cacheKey);
+
+	/**
+	 * Sets up the state shared by the implementations, called before the cache is
+	 * built.
+	 *
+	 * @throws IllegalStateException if no JSON-B instance was set for the service
+	 */
+	protected void initState() {
+		if (jsonb == null) {
+			throw new IllegalStateException("A JSON-B instance is required to serialize cached values");
+		}
+		this.stats = new CacheStatsRecorder(hotKeys);
+	}
+
+	/**
+	 * Records a request for the key as a hit if the cache has a value or a load in
+	 * progress for the key, otherwise as a miss.
+	 *
+	 * @param cacheKey the requested key
+	 * @param hit      true if the request is served by the current entry
+	 */
+	protected void recordRequest(String cacheKey, boolean hit) {
+		if (hit) {
+			stats.recordHit(cacheKey);
+		} else {
+			stats.recordMiss(cacheKey);
+		}
+	}
+
+	/**
+	 * Calls the loader, copying the result into a new future. Null values can't be
+	 * cached, and complete the future exceptionally.
+	 *
+	 * @param loader the loader for the value
+	 * @return a future that completes with the loaded value
+	 */
+	protected CompletableFuture<T> call(Supplier<CompletionStage<? extends T>> loader) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			loader.get().whenComplete((data, e) -> {
+				if (e != null) {
+					future.completeExceptionally(e);
+				} else if (data == null) {
+					future.completeExceptionally(new IllegalStateException("Loader returned a null value"));
+				} else {
+					future.complete(data);
+				}
+			});
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Handles a failed load. Loads that ran out of time fall back to the given
+	 * entry if there is one, and otherwise rethrow the timeout so that it can be
+	 * reported to the client. Other failures result in an empty value.
+	 *
+	 * @param cacheKey the key of the entry being loaded
+	 * @param fallback the entry to serve if the load ran out of time, or null if
+	 *                 there is none
+	 * @param e        the error thrown by the load
+	 * @return the value of the fallback entry, or empty if there is no value to
+	 *         return
+	 */
+	protected Optional<T> getFallback(String cacheKey, CacheEntry<T> fallback, Throwable e) {
+		stats.recordLoadFailure();
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		if (cause instanceof QueryTimeoutException) {
+			if (fallback != null) {
+				LOGGER.warn("Serving cached value for cachekey '{}' as a fresh value could not be loaded in time",
+						cacheKey);
+				fallback.recordHit();
+				return Optional.of(fallback.getValue());
+			}
+			throw new CompletionException(cause);
+		}
+		LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, e);
+		return Optional.empty();
+	}
+
+	/**
+	 * Creates the cache entry for a freshly loaded value, recording the time taken
+	 * by the load.
+	 *
+	 * @param key   the cache key of the entry
+	 * @param value the loaded value
+	 * @param start the value of {@link System#nanoTime()} when the load started
+	 * @return the entry for the value
+	 */
+	protected CacheEntry<T> newEntry(String key, T value, long start) {
+		long loadNanos = System.nanoTime() - start;
+		stats.recordLoad(loadNanos);
+		return createEntry(key, value, loadNanos);
+	}
+
+	/**
+	 * Creates the cache entry for a value.
+	 *
+	 * @param key       the cache key of the entry
+	 * @param value     the value
+	 * @param loadNanos the time taken to load the value in nanoseconds
+	 * @return the entry for the value
+	 */
+	protected CacheEntry<T> createEntry(String key, T value, long loadNanos) {
+		// the response body is created with the entry, giving the size of the value
+		// without serializing it again when it is first served
+		SerializedValue body = serialize(value);
+		CacheEntry<T> entry = new CacheEntry<>(key, value, System.currentTimeMillis(),
+				TimeUnit.SECONDS.toMillis(ttlWrite), loadNanos, body == null ? -1 : body.getJson().length,
+				CacheTagHelper.getTags(value));
+		if (body != null) {
+			entry.getSerialized(v -> body);
+		}
+		return entry;
+	}
+
+	/**
+	 * Serializes the value into the body of the responses for the value.
+	 *
+	 * @param value the value to serialize
+	 * @return the response body, or null if the value can't be serialized
+	 */
+	private SerializedValue serialize(T value) {
+		try {
+			return CacheValueHelper.toResponseBody(jsonb, value);
+		} catch (JsonbException e) {
+			LOGGER.debug("Could not serialize cached value, it will be weighed without its size", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Moves the entry for the key back from the off-heap tier if it is stored
+	 * there.
+	 *
+	 * @param cacheKey the key of the entry
+	 * @return the entry if it was stored off-heap, otherwise empty
+	 */
+	protected Optional<CacheEntry<T>> promote(String cacheKey) {
+		return offHeap == null ? Optional.<CacheEntry<T>>empty() : offHeap.<T>load(cacheKey);
+	}
+
+	/**
+	 * Logs an entry removed from the cache to make space or after it expired.
+	 *
+	 * @param entry the removed entry
+	 * @param cause the name of the cause of the removal
+	 */
+	protected void recordEviction(CacheEntry<T> entry, String cause) {
+		stats.recordEviction(cause);
+		if (entry != null && LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Evicted cachekey '{}' ({}) after {}s with {} hits, {} bytes, loaded in {}ms", entry.getKey(),
+					cause, entry.getAge(System.currentTimeMillis()), entry.getHits(), entry.getSize(),
+					entry.getLoadTime());
+		}
+	}
+
+	/**
+	 * Hashes the readable cache key into the key used to store the entry.
+	 *
+	 * @param key the readable cache key
+	 * @return the hash of the key
+	 */
+	protected static HashCode hash(String key) {
+		return KEY_HASH.hashString(key, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public Optional<CacheEntry<T>> getEntry(String id, RequestWrapper wrapper) {
+		return Optional.ofNullable(
+				asMap().get(toKey(getCacheKey(Objects.requireNonNull(id), Objects.requireNonNull(wrapper), null))));
+	}
+
+	@Override
+	public CacheUsage getUsage() {
+		Collection<CacheEntry<T>> entries = asMap().values();
+		return new CacheUsage(entries.size(), entries.stream().mapToLong(CacheEntry::getWeight).sum(),
+				maxBytes > 0 ? -1 : maxSize, maxBytes > 0 ? maxBytes : -1);
+	}
+
+	@Override
+	public CacheStatistics getStats() {
+		return stats.getStatistics(getUsage());
+	}
+
+	@Override
+	public List<HotKey> getHotKeys(int limit) {
+		return stats.getHotKeys(limit);
+	}
+
+	@Override
+	public Set<String> getCacheKeys() {
+		return Collections
+				.unmodifiableSet(asMap().values().stream().map(CacheEntry::getKey).collect(Collectors.toSet()));
+	}
+
+	@Override
+	public void remove(String key) {
+		asMap().remove(toKey(key));
+		if (offHeap != null) {
+			offHeap.remove(key);
+		}
+	}
+
+	@Override
+	public Map<String, CacheEntry<T>> getEntries() {
+		Map<String, CacheEntry<T>> entries = new HashMap<>();
+		asMap().values().forEach(e -> entries.put(e.getKey(), e));
+		return entries;
+	}
+
+	@Override
+	public void restore(String key, CacheEntry<T> entry) {
+		if (entry.isFresh(System.currentTimeMillis())) {
+			asMap().putIfAbsent(toKey(key), entry);
+		}
+	}
+
+	@Override
+	public void put(String key, T value) {
+		asMap().put(toKey(key), createEntry(key, value, 0));
+		if (offHeap != null) {
+			offHeap.remove(key);
+		}
+	}
+
+	@Override
+	public void removeByTag(String tag) {
+		asMap().values().removeIf(e -> e.getTags().contains(tag));
+		if (offHeap != null) {
+			offHeap.removeByTag(tag);
+		}
+	}
+
+	@Override
+	public void removeByPrefix(String prefix) {
+		asMap().values().removeIf(e -> e.getKey().startsWith(prefix));
+		if (offHeap != null) {
+			offHeap.removeByPrefix(prefix);
+		}
+	}
+
+	@Override
+	public void removeAll() {
+		asMap().clear();
+		if (offHeap != null) {
+			offHeap.removeAll();
+		}
+	}
+
+	@Override
+	public long getMaxAge() {
+		return ttlWrite;
+	}
+}
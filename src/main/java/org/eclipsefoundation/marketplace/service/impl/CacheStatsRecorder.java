@@ -0,0 +1,256 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
+
+/**
+ * <p>
+ * Records the statistics shared by the caching service implementations. Load
+ * times are kept in a histogram of exponentially sized buckets, each split
+ * into 8 linear sub-buckets, so that percentiles are accurate to within 12.5%
+ * while using a fixed amount of memory.
+ * </p>
+ *
+ * <p>
+ * The most requested keys are tracked using the Space-Saving algorithm, which
+ * keeps counts for a fixed number of keys. When a key that isn't tracked is
+ * requested, it replaces the key with the lowest count and takes over that
+ * count as its possible error. Tracked keys are grouped into a list of
+ * buckets ordered by count, as in the Stream-Summary structure, so that both
+ * counting a request and finding the lowest count take constant time.
+ * </p>
+ *
+ * @author Martin Lowe
+ */
+class CacheStatsRecorder {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+	private final AtomicLongArray loadTimes = new AtomicLongArray(BUCKETS);
+	private final Map<String, LongAdder> evictions = new ConcurrentHashMap<>();
+
+	private final int hotKeyCapacity;
+	// counters of the tracked keys, guarded by the map along with the buckets
+	private final Map<String, Counter> hotKeys;
+	// bucket holding the keys with the lowest count
+	private Bucket lowest;
+
+	/**
+	 * @param hotKeyCapacity the number of keys to track counts for
+	 */
+	CacheStatsRecorder(int hotKeyCapacity) {
+		this.hotKeyCapacity = Math.max(1, hotKeyCapacity);
+		this.hotKeys = new HashMap<>(this.hotKeyCapacity * 2);
+	}
+
+	void recordHit(String key) {
+		hits.increment();
+		recordRequest(key);
+	}
+
+	void recordMiss(String key) {
+		misses.increment();
+		recordRequest(key);
+	}
+
+	void recordLoad(long nanos) {
+		loads.increment();
+		loadNanos.add(nanos);
+		loadTimes.incrementAndGet(getBucket(Math.max(0, nanos)));
+	}
+
+	void recordLoadFailure() {
+		loadFailures.increment();
+	}
+
+	void recordEviction(String cause) {
+		evictions.computeIfAbsent(cause, c -> new LongAdder()).increment();
+	}
+
+	/**
+	 * @param usage the current usage of the cache
+	 * @return the statistics recorded so far
+	 */
+	CacheStatistics getStatistics(CacheUsage usage) {
+		long count = loads.sum();
+		double average = count == 0 ? 0 : (double) loadNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+		Map<String, Long> evicted = new TreeMap<>();
+		evictions.forEach((cause, adder) -> evicted.put(cause, adder.sum()));
+		return new CacheStatistics(hits.sum(), misses.sum(), count, loadFailures.sum(), average,
+				getPercentile(0.99) / (double) TimeUnit.MILLISECONDS.toNanos(1), evicted, usage);
+	}
+
+	/**
+	 * @param limit the maximum number of keys to return
+	 * @return the most requested keys, ordered by their count
+	 */
+	List<HotKey> getHotKeys(int limit) {
+		List<HotKey> keys = new ArrayList<>();
+		synchronized (hotKeys) {
+			hotKeys.forEach((key, counter) -> keys.add(new HotKey(key, counter.bucket.count, counter.error)));
+		}
+		return keys.stream().sorted(Comparator.comparingLong(HotKey::getCount).reversed()).limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	private void recordRequest(String key) {
+		synchronized (hotKeys) {
+			Counter counter = hotKeys.get(key);
+			if (counter == null) {
+				if (hotKeys.size() < hotKeyCapacity) {
+					counter = new Counter(key, 0);
+				} else {
+					// replace a key with the lowest count, taking over its count
+					counter = lowest.counters.iterator().next();
+					hotKeys.remove(counter.key);
+					counter.key = key;
+					counter.error = lowest.count;
+				}
+				hotKeys.put(key, counter);
+			}
+			increment(counter);
+		}
+	}
+
+	/**
+	 * Moves the counter to the bucket for the next count, creating the bucket if
+	 * needed and removing the previous bucket once it is empty.
+	 *
+	 * @param counter the counter to increment
+	 */
+	private void increment(Counter counter) {
+		Bucket from = counter.bucket;
+		long count = from == null ? 1 : from.count + 1;
+		Bucket next = from == null ? lowest : from.next;
+		Bucket to = next;
+		if (next == null || next.count != count) {
+			to = new Bucket(count);
+			to.prev = from;
+			to.next = next;
+			if (from == null) {
+				lowest = to;
+			} else {
+				from.next = to;
+			}
+			if (next != null) {
+				next.prev = to;
+			}
+		}
+		to.counters.add(counter);
+		counter.bucket = to;
+		if (from != null) {
+			from.counters.remove(counter);
+			if (from.counters.isEmpty()) {
+				unlink(from);
+			}
+		}
+	}
+
+	private void unlink(Bucket bucket) {
+		if (bucket.prev == null) {
+			lowest = bucket.next;
+		} else {
+			bucket.prev.next = bucket.next;
+		}
+		if (bucket.next != null) {
+			bucket.next.prev = bucket.prev;
+		}
+	}
+
+	/**
+	 * Finds the load time below which the given ratio of loads completed, using
+	 * the upper bound of the matching bucket.
+	 *
+	 * @param ratio the percentile as a ratio between 0 and 1
+	 * @return the load time in nanoseconds
+	 */
+	private long getPercentile(double ratio) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += loadTimes.get(i);
+		}
+		long target = (long) Math.ceil(total * ratio);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += loadTimes.get(i);
+			if (seen >= target && seen > 0) {
+				return getUpperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	private static int getBucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int msb = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		int shift = msb - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	private static long getUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	/**
+	 * Tracked key, along with the bucket of its current count.
+	 */
+	private static class Counter {
+		private String key;
+		private long error;
+		private Bucket bucket;
+
+		private Counter(String key, long error) {
+			this.key = key;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Keys sharing the same count, linked to the buckets of the next lower and
+	 * higher counts.
+	 */
+	private static class Bucket {
+		private final long count;
+		private final Set<Counter> counters = new LinkedHashSet<>();
+		private Bucket prev;
+		private Bucket next;
+
+		private Bucket(long count) {
+			this.count = count;
+		}
+	}
+}
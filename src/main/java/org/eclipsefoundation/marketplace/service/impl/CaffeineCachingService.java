@@ -0,0 +1,357 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.hash.HashCode;
+
+/**
+ * <p>
+ * Caching service backed by a Caffeine cache, which uses W-TinyLFU to decide
+ * which entries to keep when the cache is full. Used when the configured cache
+ * provider is caffeine.
+ * </p>
+ *
+ * <p>
+ * Entries are loaded using the loader of the request that missed. Entries that
+ * are read after the refresh time are reloaded in the background with the
+ * loader of the reading request while the current value continues to be
+ * served, so hot entries are replaced before they expire rather than making
+ * requests wait on the reload. The loader of a refresh is handed to the cache
+ * through a map that only holds it until the refresh starts, so loaders and
+ * the request state they capture aren't kept with the entries.
+ * </p>
+ *
+ * @author Martin Lowe
+ * @param <T> the type of object cached by this instance of the service
+ */
+@ApplicationScoped
+@Typed(CaffeineCachingService.class)
+public class CaffeineCachingService<T> extends AbstractCachingService<HashCode, T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CaffeineCachingService.class);
+
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_REFRESH_SECONDS, defaultValue = "600")
+	long refreshWrite;
+
+	@Inject
+	ManagedExecutor executor;
+
+	AsyncLoadingCache<HashCode, CacheEntry<T>> cache;
+	// loads for refreshes that are about to start, keyed by the entry to refresh
+	private final Map<HashCode, Supplier<CompletableFuture<CacheEntry<T>>>> refreshes = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		initState();
+		Caffeine<Object, Object> builder = Caffeine.newBuilder();
+		// bound by the estimated size of entries when set, otherwise by the count
+		if (maxBytes > 0) {
+			builder.maximumWeight(maxBytes).<HashCode, CacheEntry<T>>weigher((key, entry) -> entry.getWeight());
+		} else {
+			builder.maximumSize(maxSize);
+		}
+		this.cache = builder
+				// entries expire relative to their load time, which is kept when restored
+				.expireAfter(new Expiry<HashCode, CacheEntry<T>>() {
+					@Override
+					public long expireAfterCreate(HashCode key, CacheEntry<T> entry, long currentTime) {
+						return getRemainingNanos(entry);
+					}
+
+					@Override
+					public long expireAfterUpdate(HashCode key, CacheEntry<T> entry, long currentTime,
+							long currentDuration) {
+						return getRemainingNanos(entry);
+					}
+
+					@Override
+					public long expireAfterRead(HashCode key, CacheEntry<T> entry, long currentTime,
+							long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.<HashCode, CacheEntry<T>>removalListener((key, entry, cause) -> {
+					// entries evicted to make space are kept in the off-heap tier
+					if (cause == RemovalCause.SIZE && entry != null && offHeap != null) {
+						offHeap.store(entry);
+					}
+					if (cause.wasEvicted()) {
+						recordEviction(entry, cause.name());
+					}
+				})
+				.buildAsync(new AsyncCacheLoader<HashCode, CacheEntry<T>>() {
+					@Override
+					public CompletableFuture<CacheEntry<T>> asyncLoad(HashCode key, Executor executor) {
+						// entries removed before their refresh started are loaded again
+						return startRefresh(key);
+					}
+
+					@Override
+					public CompletableFuture<CacheEntry<T>> asyncReload(HashCode key, CacheEntry<T> oldValue,
+							Executor executor) {
+						// the current entry is kept when the refresh fails, and can be refreshed again
+						return startRefresh(key).whenComplete((entry, e) -> {
+							if (e != null) {
+								oldValue.endRefresh();
+							}
+						});
+					}
+				});
+	}
+
+	@Override
+	public Optional<T> get(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Callable<? extends T> callable) {
+		Objects.requireNonNull(id);
+		Objects.requireNonNull(wrapper);
+		Objects.requireNonNull(callable);
+
+		String cacheKey = getCacheKey(id, wrapper, params);
+		HashCode key = hash(cacheKey);
+		LOGGER.debug("Retrieving cache value for '{}'", cacheKey);
+		try {
+			// check if the cache is bypassed for the request
+			if (wrapper.isCacheBypass()) {
+				long start = System.nanoTime();
+				T result = callable.call();
+				// if the cache has a value for key, update it
+				if (asMap().containsKey(key)) {
+					cache.put(key, CompletableFuture.completedFuture(newEntry(cacheKey, result, start)));
+				}
+				return Optional.of(result);
+			}
+			CompletableFuture<CacheEntry<T>> existing = cache.getIfPresent(key);
+			recordRequest(cacheKey, existing != null);
+			if (existing == null) {
+				// load on the calling thread, sharing the load with concurrent requests
+				CompletableFuture<CacheEntry<T>> created = new CompletableFuture<>();
+				CompletableFuture<CacheEntry<T>> current = cache.get(key, (k, e) -> created);
+				if (current == created) {
+					try {
+						created.complete(loadNow(cacheKey, callable));
+					} catch (Exception e) {
+						// failed loads are removed from the cache once completed
+						created.completeExceptionally(e);
+					}
+				}
+				return Optional.of(current.join().getValue());
+			}
+			CacheEntry<T> entry = existing.join();
+			entry.recordHit();
+			refreshIfDue(key, entry, () -> loadInBackground(callable));
+			return Optional.of(entry.getValue());
+		} catch (Exception e) {
+			stats.recordLoadFailure();
+			LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, e);
+		}
+		return Optional.empty();
+	}
+
+	@Override
+	public CompletionStage<Optional<T>> getAsync(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Supplier<CompletionStage<? extends T>> loader) {
+		Objects.requireNonNull(id);
+		Objects.requireNonNull(wrapper);
+		Objects.requireNonNull(loader);
+
+		String cacheKey = getCacheKey(id, wrapper, params);
+		HashCode key = hash(cacheKey);
+		LOGGER.debug("Retrieving cache value asynchronously for '{}'", cacheKey);
+		// check if the cache is bypassed for the request
+		if (wrapper.isCacheBypass()) {
+			long start = System.nanoTime();
+			return call(loader).handle((result, e) -> {
+				if (e != null) {
+					return getFallback(cacheKey, asMap().get(key), e);
+				}
+				// if the cache has a value for key, update it
+				if (asMap().containsKey(key)) {
+					cache.put(key, CompletableFuture.completedFuture(newEntry(cacheKey, result, start)));
+				}
+				return Optional.of(result);
+			});
+		}
+		// concurrent loads for the same key are merged by the cache
+		CompletableFuture<CacheEntry<T>> existing = cache.getIfPresent(key);
+		recordRequest(cacheKey, existing != null);
+		return (existing != null ? existing : cache.get(key, (k, e) -> loadOrPromote(cacheKey, loader)))
+				.handle((entry, e) -> {
+				if (e != null) {
+					return getFallback(cacheKey, asMap().get(key), e);
+				}
+				if (existing != null) {
+					entry.recordHit();
+					refreshIfDue(key, entry, loader);
+				}
+				return Optional.of(entry.getValue());
+			});
+	}
+
+	/**
+	 * Starts reloading the entry in the background if it is older than the refresh
+	 * time, using the loader of the current request. Only one refresh is started
+	 * for an entry.
+	 *
+	 * @param key    the key of the entry
+	 * @param entry  the current entry
+	 * @param loader the loader of the current request
+	 */
+	private void refreshIfDue(HashCode key, CacheEntry<T> entry, Supplier<CompletionStage<? extends T>> loader) {
+		long refreshMillis = TimeUnit.SECONDS.toMillis(Math.max(1, Math.min(refreshWrite, ttlWrite)));
+		if (System.currentTimeMillis() - entry.getLoadedAt() < refreshMillis || !entry.startRefresh()) {
+			return;
+		}
+		Supplier<CompletableFuture<CacheEntry<T>>> refresh = () -> load(entry.getKey(), loader);
+		refreshes.put(key, refresh);
+		try {
+			cache.synchronous().refresh(key);
+		} finally {
+			// the cache takes the load when starting the refresh, remove it if it didn't
+			refreshes.remove(key, refresh);
+		}
+	}
+
+	/**
+	 * Takes the load handed over for a refresh of the key.
+	 *
+	 * @param key the key of the entry being refreshed
+	 * @return a future that completes with the loaded entry
+	 */
+	private CompletableFuture<CacheEntry<T>> startRefresh(HashCode key) {
+		Supplier<CompletableFuture<CacheEntry<T>>> refresh = refreshes.remove(key);
+		if (refresh == null) {
+			CompletableFuture<CacheEntry<T>> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("No loader available for cache entry " + key));
+			return future;
+		}
+		return refresh.get();
+	}
+
+	/**
+	 * Loads the entry for the key on the calling thread, moving it back from the
+	 * off-heap tier if it is stored there.
+	 *
+	 * @param cacheKey the readable cache key
+	 * @param callable the callable that loads the value
+	 * @return the loaded entry
+	 * @throws Exception if the value could not be loaded
+	 */
+	private CacheEntry<T> loadNow(String cacheKey, Callable<? extends T> callable) throws Exception {
+		Optional<CacheEntry<T>> demoted = promote(cacheKey);
+		if (demoted.isPresent()) {
+			return demoted.get();
+		}
+		long start = System.nanoTime();
+		T value = callable.call();
+		if (value == null) {
+			throw new IllegalStateException("Loader returned a null value");
+		}
+		return newEntry(cacheKey, value, start);
+	}
+
+	/**
+	 * Runs the callable of a synchronous retrieval on the managed executor, so
+	 * that refreshes don't block the request that started them. Manually created
+	 * services have no executor, and run the callable on the calling thread.
+	 *
+	 * @param callable the callable that loads the value
+	 * @return a stage that completes with the loaded value
+	 */
+	private CompletionStage<T> loadInBackground(Callable<? extends T> callable) {
+		Supplier<T> supplier = () -> {
+			try {
+				return callable.call();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		};
+		return executor != null ? executor.supplyAsync(supplier) : CompletableFuture.completedFuture(supplier.get());
+	}
+
+	/**
+	 * Loads the entry for the key, moving it back from the off-heap tier if it is
+	 * stored there.
+	 *
+	 * @param cacheKey the readable cache key
+	 * @param loader   the loader for the value
+	 * @return a future that completes with the loaded entry
+	 */
+	private CompletableFuture<CacheEntry<T>> loadOrPromote(String cacheKey,
+			Supplier<CompletionStage<? extends T>> loader) {
+		Optional<CacheEntry<T>> demoted = promote(cacheKey);
+		if (demoted.isPresent()) {
+			return CompletableFuture.completedFuture(demoted.get());
+		}
+		return load(cacheKey, loader);
+	}
+
+	/**
+	 * Loads the value for the key using the given loader.
+	 *
+	 * @param cacheKey the readable cache key
+	 * @param loader   the loader for the value
+	 * @return a future that completes with the loaded entry
+	 */
+	private CompletableFuture<CacheEntry<T>> load(String cacheKey, Supplier<CompletionStage<? extends T>> loader) {
+		long start = System.nanoTime();
+		return call(loader).thenApply(data -> newEntry(cacheKey, data, start));
+	}
+
+	/**
+	 * Calculates the time left before the entry is removed, including the time it
+	 * can be served while stale.
+	 *
+	 * @param entry the entry to check
+	 * @return the remaining time in nanoseconds
+	 */
+	private long getRemainingNanos(CacheEntry<T> entry) {
+		long remaining = entry.getExpiresAt() + TimeUnit.SECONDS.toMillis(staleMax) - System.currentTimeMillis();
+		return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+	}
+
+	@Override
+	protected ConcurrentMap<HashCode, CacheEntry<T>> asMap() {
+		// only completed entries are returned by the map view
+		return cache.synchronous().asMap();
+	}
+
+	@Override
+	protected HashCode toKey(String cacheKey) {
+		return hash(cacheKey);
+	}
+}
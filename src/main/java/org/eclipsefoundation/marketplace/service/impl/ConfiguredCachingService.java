@@ -0,0 +1,148 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
+import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caching service that passes all calls to the cache implementation selected
+ * by the {@link MicroprofilePropertyNames#CACHE_PROVIDER} property. Supported
+ * providers are guava, which is the default, and caffeine.
+ *
+ * @author Martin Lowe
+ * @param <T> the type of object cached by this instance of the service
+ */
+@ApplicationScoped
+public class ConfiguredCachingService<T> implements CachingService<T> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConfiguredCachingService.class);
+	private static final String CAFFEINE = "caffeine";
+
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_PROVIDER, defaultValue = "guava")
+	String provider;
+
+	@Inject
+	GuavaCachingService<Object> guava;
+	@Inject
+	CaffeineCachingService<Object> caffeine;
+
+	private CachingService<Object> delegate;
+
+	@PostConstruct
+	public void init() {
+		this.delegate = CAFFEINE.equalsIgnoreCase(provider) ? caffeine : guava;
+		LOGGER.info("Using {} cache provider", CAFFEINE.equalsIgnoreCase(provider) ? CAFFEINE : "guava");
+	}
+
+	@Override
+	public Optional<T> get(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Callable<? extends T> callable) {
+		return getDelegate().get(id, wrapper, params, callable);
+	}
+
+	@Override
+	public CompletionStage<Optional<T>> getAsync(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Supplier<CompletionStage<? extends T>> loader) {
+		return getDelegate().getAsync(id, wrapper, params, loader);
+	}
+
+	@Override
+	public Optional<CacheEntry<T>> getEntry(String id, RequestWrapper wrapper) {
+		return getDelegate().getEntry(id, wrapper);
+	}
+
+	@Override
+	public long getMaxAge() {
+		return delegate.getMaxAge();
+	}
+
+	@Override
+	public CacheUsage getUsage() {
+		return delegate.getUsage();
+	}
+
+	@Override
+	public CacheStatistics getStats() {
+		return delegate.getStats();
+	}
+
+	@Override
+	public List<HotKey> getHotKeys(int limit) {
+		return delegate.getHotKeys(limit);
+	}
+
+	@Override
+	public Set<String> getCacheKeys() {
+		return delegate.getCacheKeys();
+	}
+
+	@Override
+	public void remove(String key) {
+		delegate.remove(key);
+	}
+
+	@Override
+	public Map<String, CacheEntry<T>> getEntries() {
+		return getDelegate().getEntries();
+	}
+
+	@Override
+	public void restore(String key, CacheEntry<T> entry) {
+		getDelegate().restore(key, entry);
+	}
+
+	@Override
+	public void put(String key, T value) {
+		getDelegate().put(key, value);
+	}
+
+	@Override
+	public void removeByTag(String tag) {
+		delegate.removeByTag(tag);
+	}
+
+	@Override
+	public void removeByPrefix(String prefix) {
+		delegate.removeByPrefix(prefix);
+	}
+
+	@Override
+	public void removeAll() {
+		delegate.removeAll();
+	}
+
+	/**
+	 * The underlying caches are shared by all types of cached objects, matching
+	 * the single instance of the service.
+	 *
+	 * @return the selected cache, typed for the current injection
+	 */
+	@SuppressWarnings("unchecked")
+	private CachingService<T> getDelegate() {
+		return (CachingService<T>) (CachingService<?>) delegate;
+	}
+}
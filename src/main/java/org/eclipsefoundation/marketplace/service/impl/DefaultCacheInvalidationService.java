@@ -0,0 +1,324 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
+import org.eclipsefoundation.marketplace.service.CacheSnapshotService;
+import org.eclipsefoundation.marketplace.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import io.quarkus.mongodb.ChangeStreamOptions;
+import io.quarkus.mongodb.ReactiveMongoClient;
+import io.quarkus.mongodb.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Default implementation of the cache invalidation service. Removals are
+ * published as documents in a capped collection, which every instance watches
+ * through a change stream. Each removal is applied by the other instances as
+ * soon as the change is received, and the collection drops the oldest
+ * removals once full so it never needs to be cleaned up.
+ *
+ * <p>
+ * Change streams require a replica set. When connected to a standalone server,
+ * a warning is logged and removals only apply to the current instance. If the
+ * stream stops, it is reopened with increasing delays from the last removal
+ * received, so removals made in the meantime are still applied. The local
+ * cache is only cleared when the stream can't be resumed, as removals have
+ * then been missed.
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultCacheInvalidationService implements CacheInvalidationService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheInvalidationService.class);
+
+	private static final String ORIGIN = "origin";
+	private static final String KEY = "key";
+	private static final String TYPE = "type";
+	// types of removal, matching the removal methods of the caching service
+	private static final String TYPE_KEY = "key";
+	private static final String TYPE_PREFIX = "prefix";
+	private static final String TYPE_TAG = "tag";
+	private static final String CREATED = "created";
+	// fields of the saved position in the stream of removals
+	private static final String RESUME_TOKEN = "resume_token";
+	private static final String OPERATION_TIME = "operation_time";
+	private static final long RETRY_SECONDS = 10;
+	private static final long MAX_RETRY_SECONDS = 600;
+	// error code returned by MongoDB when creating a collection that exists
+	private static final int NAMESPACE_EXISTS = 48;
+	// error codes returned by MongoDB when a change stream can't be resumed
+	private static final Set<Integer> HISTORY_LOST = new HashSet<>(Arrays.asList(280, 286, 40576));
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_DB_NAME)
+	String databaseName;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_INVALIDATION_ENABLED, defaultValue = "true")
+	boolean enabled;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_INVALIDATION_COLLECTION,
+			defaultValue = "cache_invalidations")
+	String collection;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_INVALIDATION_SIZE_BYTES, defaultValue = "1048576")
+	long sizeBytes;
+
+	@Inject
+	ReactiveMongoClient mongoClient;
+	@Inject
+	CachingService<?> cachingService;
+	@Inject
+	CacheSnapshotService snapshotService;
+
+	// identifies removals published by this instance, which are already applied
+	private final String instanceId = UUID.randomUUID().toString();
+	private final AtomicBoolean listening = new AtomicBoolean();
+	private final AtomicInteger failures = new AtomicInteger();
+	private ScheduledExecutorService scheduler;
+	// position to resume the change stream from, either the resume token of the
+	// last change received or the time the stream was first opened
+	private volatile BsonDocument resumeToken;
+	private volatile BsonTimestamp startTime;
+
+	/**
+	 * Creates the removals collection if needed and starts listening for removals
+	 * once the application has started and the cache snapshot has been restored.
+	 * Listening starts from the position saved with the snapshot, so removals made
+	 * since the snapshot was saved are applied to the restored entries.
+	 *
+	 * @param event the startup event
+	 */
+	void onStart(@Observes StartupEvent event) {
+		if (!enabled) {
+			LOGGER.info("Cache invalidation is disabled, cache removals only apply to the current instance");
+			return;
+		}
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		snapshotService.whenRestored().thenAccept(position -> {
+			position.ifPresent(this::setPosition);
+			mongoClient.getDatabase(databaseName)
+					.createCollection(collection, new CreateCollectionOptions().capped(true).sizeInBytes(sizeBytes))
+					.whenComplete((v, e) -> {
+						if (e != null && !isNamespaceExists(e)) {
+							LOGGER.error("Could not create the cache invalidation collection '{}'", collection, e);
+						}
+						listen();
+					});
+		});
+	}
+
+	@PreDestroy
+	void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		cachingService.remove(key);
+		publish(key, TYPE_KEY);
+	}
+
+	@Override
+	public void removeByTag(String tag) {
+		cachingService.removeByTag(tag);
+		publish(tag, TYPE_TAG);
+	}
+
+	@Override
+	public void removeByPrefix(String prefix) {
+		cachingService.removeByPrefix(prefix);
+		publish(prefix, TYPE_PREFIX);
+	}
+
+	@Override
+	public void removeAll() {
+		cachingService.removeAll();
+		// every key starts with an empty prefix
+		publish("", TYPE_PREFIX);
+	}
+
+	@Override
+	public boolean isListening() {
+		return listening.get();
+	}
+
+	@Override
+	public Optional<BsonDocument> getPosition() {
+		BsonDocument token = resumeToken;
+		if (token != null) {
+			return Optional.of(new BsonDocument(RESUME_TOKEN, token));
+		}
+		BsonTimestamp time = startTime;
+		return time == null ? Optional.empty() : Optional.of(new BsonDocument(OPERATION_TIME, time));
+	}
+
+	private void setPosition(BsonDocument position) {
+		if (position.isDocument(RESUME_TOKEN)) {
+			this.resumeToken = position.getDocument(RESUME_TOKEN);
+		} else if (position.isTimestamp(OPERATION_TIME)) {
+			this.startTime = position.getTimestamp(OPERATION_TIME);
+		}
+	}
+
+	private void publish(String key, String type) {
+		if (!enabled) {
+			return;
+		}
+		Document removal = new Document(ORIGIN, instanceId).append(KEY, key).append(TYPE, type).append(CREATED,
+				new Date());
+		getCollection().insertOne(removal).whenComplete((v, e) -> {
+			if (e != null) {
+				LOGGER.error("Could not publish removal of cache key '{}', other instances may serve stale data", key,
+						e);
+			}
+		});
+	}
+
+	/**
+	 * Opens the change stream on the removals collection if not already open,
+	 * resuming from the last change received. The stream is not opened if the
+	 * server is not part of a replica set, as change streams are not available.
+	 */
+	private void listen() {
+		if (!listening.compareAndSet(false, true)) {
+			return;
+		}
+		mongoClient.getDatabase(databaseName).runCommand(new Document("isMaster", 1)).whenComplete((info, e) -> {
+			if (e != null) {
+				retry(e);
+			} else if (info.getString("setName") == null) {
+				LOGGER.warn("MongoDB is not a replica set, cache removals will only apply to the current instance");
+				listening.set(false);
+			} else {
+				watch(info.get("operationTime", BsonTimestamp.class));
+			}
+		});
+	}
+
+	private void watch(BsonTimestamp now) {
+		ChangeStreamOptions options = new ChangeStreamOptions();
+		if (resumeToken != null) {
+			options.resumeAfter(resumeToken);
+		} else {
+			// start from the first time the stream was opened, so removals made while
+			// the stream was down are still received
+			if (startTime == null) {
+				startTime = now;
+			}
+			if (startTime != null) {
+				options.startAtOperationTime(startTime);
+			}
+		}
+		long opened = System.currentTimeMillis();
+		getCollection().watch(options).forEach(change -> {
+			failures.set(0);
+			resumeToken = change.getResumeToken();
+			apply(change);
+		}).run().whenComplete((v, e) -> {
+			// a stream that ran for longer than the retry delay doesn't extend the delay
+			if (System.currentTimeMillis() - opened > TimeUnit.SECONDS.toMillis(getRetryDelay())) {
+				failures.set(0);
+			}
+			if (isHistoryLost(e)) {
+				// removals were made that can no longer be received
+				LOGGER.warn("Could not resume listening for cache removals, clearing the cache", e);
+				resumeToken = null;
+				startTime = null;
+				cachingService.removeAll();
+			}
+			retry(e);
+		});
+	}
+
+	/**
+	 * Schedules the stream to be reopened, waiting longer after each consecutive
+	 * failure.
+	 * 
+	 * @param e the error that stopped the stream, or null if it completed
+	 */
+	private void retry(Throwable e) {
+		long delay = getRetryDelay();
+		failures.incrementAndGet();
+		// change streams don't complete on their own, so any completion stops updates
+		LOGGER.warn("Stopped listening for cache removals, retrying in {} seconds", delay, e);
+		listening.set(false);
+		if (!scheduler.isShutdown()) {
+			scheduler.schedule(this::listen, delay, TimeUnit.SECONDS);
+		}
+	}
+
+	private long getRetryDelay() {
+		return Math.min(MAX_RETRY_SECONDS, RETRY_SECONDS << Math.min(failures.get(), 16));
+	}
+
+	private void apply(ChangeStreamDocument<Document> change) {
+		Document removal = change.getFullDocument();
+		if (change.getOperationType() != OperationType.INSERT || removal == null
+				|| instanceId.equals(removal.getString(ORIGIN))) {
+			return;
+		}
+		String key = removal.getString(KEY);
+		if (key == null) {
+			return;
+		}
+		LOGGER.debug("Applying cache removal for '{}' from instance {}", key, removal.getString(ORIGIN));
+		String type = removal.getString(TYPE);
+		if (TYPE_PREFIX.equals(type)) {
+			cachingService.removeByPrefix(key);
+		} else if (TYPE_TAG.equals(type)) {
+			cachingService.removeByTag(key);
+		} else {
+			cachingService.remove(key);
+		}
+	}
+
+	private static boolean isHistoryLost(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof MongoServerException
+				&& HISTORY_LOST.contains(((MongoServerException) cause).getCode());
+	}
+
+	private static boolean isNamespaceExists(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof MongoCommandException
+				&& ((MongoCommandException) cause).getErrorCode() == NAMESPACE_EXISTS;
+	}
+
+	private ReactiveMongoCollection<Document> getCollection() {
+		return mongoClient.getDatabase(databaseName).getCollection(collection);
+	}
+}
@@ -0,0 +1,286 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.helper.CacheTagHelper;
+import org.eclipsefoundation.marketplace.helper.CacheValueHelper;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
+import org.eclipsefoundation.marketplace.service.CacheSnapshotService;
+import org.eclipsefoundation.marketplace.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Default implementation of the cache snapshot service. The cache is saved
+ * when the application shuts down and restored in the background when it
+ * starts, with the application reporting as not ready until the restore
+ * completes. Removals from other instances are only received once the restore
+ * completes, starting from the position saved with the snapshot.
+ *
+ * <p>
+ * Snapshots are written in a binary format, with a header holding a magic
+ * number, format version and the position in the stream of cache removals,
+ * followed by a record for each entry. Each record
+ * holds the key, load time, expiration, load duration, and type of the value,
+ * followed by the value serialized as JSON. Values are only deserialized into
+ * DTOs and simple types, so a modified snapshot can't be used to create
+ * arbitrary objects.
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultCacheSnapshotService implements CacheSnapshotService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheSnapshotService.class);
+
+	// "MPCS" followed by the version of the format
+	private static final int MAGIC = 0x4d504353;
+	private static final int VERSION = 3;
+	// values in earlier versions weren't written with the property names of the API
+	private static final int VERSION_MIN = 3;
+	// markers that precede each record, and the end of the snapshot
+	private static final byte RECORD = 1;
+	private static final byte END = 0;
+
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_SNAPSHOT_ENABLED, defaultValue = "false")
+	boolean enabled;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_SNAPSHOT_PATH, defaultValue = "cache.snapshot")
+	String path;
+
+	@Inject
+	CachingService<Object> cachingService;
+	@Inject
+	CacheInvalidationService cacheInvalidation;
+	@Inject
+	Jsonb jsonb;
+
+	private final AtomicBoolean warm = new AtomicBoolean();
+	private final CompletableFuture<Optional<BsonDocument>> restored = new CompletableFuture<>();
+	// position in the stream of cache removals read from the last restored snapshot
+	private volatile BsonDocument position;
+
+	/**
+	 * Restores the cache in the background once the application has started.
+	 *
+	 * @param event the startup event
+	 */
+	void onStart(@Observes StartupEvent event) {
+		if (!enabled) {
+			warm.set(true);
+			restored.complete(Optional.empty());
+			return;
+		}
+		CompletableFuture.runAsync(() -> {
+			try {
+				restore();
+			} finally {
+				warm.set(true);
+				restored.complete(Optional.ofNullable(position));
+			}
+		});
+	}
+
+	/**
+	 * Saves the cache as the application shuts down.
+	 *
+	 * @param event the shutdown event
+	 */
+	void onStop(@Observes ShutdownEvent event) {
+		if (enabled) {
+			save();
+		}
+	}
+
+	@Override
+	public int save() {
+		long start = System.currentTimeMillis();
+		Path file = Paths.get(path);
+		// write to a temporary file so a failed save doesn't replace the last snapshot
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		int count = 0;
+		// the position is read before the entries, so removals received while saving
+		// are applied again on restore rather than missed
+		String current = cacheInvalidation.getPosition()
+				.map(p -> p.toJson(JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build())).orElse("");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, current);
+			for (Map.Entry<String, CacheEntry<Object>> e : cachingService.getEntries().entrySet()) {
+				if (write(out, e.getKey(), e.getValue(), start)) {
+					count++;
+				}
+			}
+			out.writeByte(END);
+		} catch (IOException e) {
+			LOGGER.error("Could not write cache snapshot to '{}'", tmp, e);
+			return 0;
+		}
+		try {
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.error("Could not replace cache snapshot '{}'", file, e);
+			return 0;
+		}
+		LOGGER.info("Saved {} cache entries to '{}' in {}ms", count, file, System.currentTimeMillis() - start);
+		return count;
+	}
+
+	@Override
+	public int restore() {
+		long start = System.currentTimeMillis();
+		Path file = Paths.get(path);
+		if (!Files.isRegularFile(file)) {
+			LOGGER.info("No cache snapshot found at '{}', starting with an empty cache", file);
+			return 0;
+		}
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			int version = buffer.getInt() == MAGIC ? buffer.getInt() : 0;
+			if (version < VERSION_MIN || version > VERSION) {
+				LOGGER.warn("Ignoring cache snapshot '{}' as it is not in a supported format", file);
+				return 0;
+			}
+			String saved = readString(buffer);
+			this.position = saved.isEmpty() ? null : BsonDocument.parse(saved);
+			while (buffer.get() == RECORD) {
+				if (read(buffer, start)) {
+					count++;
+				}
+			}
+		} catch (IOException | BufferUnderflowException | IllegalStateException | BsonInvalidOperationException
+				| JsonParseException e) {
+			LOGGER.error("Could not read cache snapshot '{}', {} entries were restored", file, count, e);
+			return count;
+		}
+		LOGGER.info("Restored {} cache entries from '{}' in {}ms", count, file, System.currentTimeMillis() - start);
+		return count;
+	}
+
+	@Override
+	public boolean isWarm() {
+		return warm.get();
+	}
+
+	@Override
+	public CompletionStage<Optional<BsonDocument>> whenRestored() {
+		return restored;
+	}
+
+	private boolean write(DataOutputStream out, String key, CacheEntry<Object> entry, long now) throws IOException {
+		if (!entry.isFresh(now)) {
+			return false;
+		}
+		// lists and pages are recorded along with the type of their items
+		Object value = entry.getValue();
+		String type = CacheValueHelper.getType(value);
+		String itemType = CacheValueHelper.getItemType(value);
+		if (!CacheValueHelper.isAllowed(type, itemType)) {
+			return false;
+		}
+		byte[] payload;
+		try {
+			payload = CacheValueHelper.serialize(jsonb, value).getBytes(StandardCharsets.UTF_8);
+		} catch (JsonbException e) {
+			LOGGER.warn("Could not serialize cache entry '{}' for the snapshot", key, e);
+			return false;
+		}
+		out.writeByte(RECORD);
+		writeString(out, key);
+		out.writeLong(entry.getLoadedAt());
+		out.writeLong(entry.getExpiresAt());
+		out.writeLong(entry.getLoadTime());
+		writeString(out, type);
+		writeString(out, itemType);
+		out.writeInt(payload.length);
+		out.write(payload);
+		return true;
+	}
+
+	private boolean read(MappedByteBuffer buffer, long now) {
+		String key = readString(buffer);
+		long loadedAt = buffer.getLong();
+		long expiresAt = buffer.getLong();
+		long loadMillis = buffer.getLong();
+		String type = readString(buffer);
+		String itemType = readString(buffer);
+		byte[] payload = readBytes(buffer);
+		if (expiresAt <= now) {
+			return false;
+		}
+		Object value;
+		try {
+			value = CacheValueHelper.deserialize(jsonb, type, itemType, new String(payload, StandardCharsets.UTF_8));
+		} catch (JsonbException | ClassNotFoundException e) {
+			LOGGER.warn("Could not restore cache entry '{}' from the snapshot", key, e);
+			return false;
+		}
+		if (value == null) {
+			LOGGER.warn("Skipping cache entry '{}' as type '{}' can't be restored", key, type);
+			return false;
+		}
+		cachingService.restore(key, new CacheEntry<>(key, value, loadedAt, expiresAt - loadedAt,
+				loadMillis * 1_000_000L, payload.length, CacheTagHelper.getTags(value)));
+		return true;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(MappedByteBuffer buffer) {
+		return new String(readBytes(buffer), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readBytes(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IllegalStateException("Record length " + length + " is outside of the snapshot");
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,643 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.helper.DateTimeHelper;
+import org.eclipsefoundation.marketplace.helper.IndexHelper;
+import org.eclipsefoundation.marketplace.helper.StreamHelper;
+import org.eclipsefoundation.marketplace.model.JoinStage;
+import org.eclipsefoundation.marketplace.model.MaterializedViewStatus;
+import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+import io.quarkus.mongodb.ChangeStreamOptions;
+import io.quarkus.mongodb.ReactiveMongoClient;
+import io.quarkus.mongodb.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Default implementation of the expanded listing service. The collection is
+ * built in full using the joins declared by the listing filter, and is then
+ * kept up to date by watching the change streams of the listings, listing
+ * versions, categories, and install metrics collections. Changes are collected
+ * by listing ID and applied one batch at a time so that updates to the same
+ * listing are never written out of order. Batches that fail to be written are
+ * retried, and the collection is only rebuilt once a batch has failed several
+ * times in a row.
+ *
+ * <p>
+ * Only one instance maintains the collection at a time. Instances compete for
+ * a lease document that expires unless renewed, and the holder of the lease
+ * builds the collection and watches for changes. The holder publishes whether
+ * the collection is available on the lease, which other instances read to
+ * decide whether to serve listings from it. Rebuilds requested on other
+ * instances are flagged on the lease and picked up by the holder when it next
+ * renews.
+ *
+ * <p>
+ * Change streams require a replica set. Each stream is tracked separately, and
+ * is reopened with increasing delays from the last change received if it
+ * stops. While any stream is closed, or if changes can't be resumed or
+ * resolved, the collection is marked as unavailable and listing queries fall
+ * back to joining the data on read until the collection is rebuilt.
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultExpandedListingService implements ExpandedListingService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultExpandedListingService.class);
+	private static final int MAX_UPDATE_ATTEMPTS = 3;
+	private static final long RETRY_SECONDS = 5;
+	private static final long MAX_RETRY_SECONDS = 600;
+	// the lease is renewed well before it expires, so a slow renewal isn't lost
+	private static final long LEASE_SECONDS = 30;
+	private static final long RENEW_SECONDS = 10;
+	// fields of the lease document
+	private static final String LEASE_COLLECTION = COLLECTION + "_lease";
+	private static final String LEASE_ID = "writer";
+	private static final String OWNER = "owner";
+	private static final String EXPIRES = "expires";
+	private static final String AVAILABLE = "available";
+	private static final String REBUILD_REQUESTED = "rebuild_requested";
+	// error code returned by MongoDB when inserting a document with an existing ID
+	private static final int DUPLICATE_KEY = 11000;
+	// error codes returned by MongoDB when a change stream can't be resumed
+	private static final Set<Integer> HISTORY_LOST = new HashSet<>(Arrays.asList(280, 286, 40576));
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_DB_NAME)
+	String databaseName;
+
+	@ConfigProperty(name = MicroprofilePropertyNames.LISTINGS_EXPANDED_ENABLED, defaultValue = "true")
+	boolean enabled;
+
+	@Inject
+	ReactiveMongoClient mongoClient;
+
+	@Inject
+	DtoFilter<Listing> listingFilter;
+
+	// identifies the lease held by this instance
+	private final String instanceId = UUID.randomUUID().toString();
+	private final AtomicBoolean writer = new AtomicBoolean();
+	private final AtomicBoolean built = new AtomicBoolean();
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+	private final AtomicInteger rebuildFailures = new AtomicInteger();
+	private final AtomicBoolean updating = new AtomicBoolean();
+	private final AtomicReference<Set<String>> pending = new AtomicReference<>(ConcurrentHashMap.newKeySet());
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicLong applied = new AtomicLong();
+	private final List<SourceStream> streams = new ArrayList<>();
+	private volatile long leaseRenewed;
+	// time until which the collection is available as published by the lease
+	// holder, when this instance isn't the holder
+	private volatile long availableUntil;
+	private volatile String lastRebuild;
+	private volatile long lastRebuildMillis;
+	private volatile String lastError;
+	private ScheduledExecutorService scheduler;
+
+	@PostConstruct
+	public void init() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		streams.add(new SourceStream(DtoTableNames.LISTING.getTableName(), this::getListingIds));
+		streams.add(new SourceStream(DtoTableNames.INSTALL_METRIC.getTableName(), this::getListingIds));
+		streams.add(new SourceStream(DtoTableNames.LISTING_VERSION.getTableName(), this::getVersionListingIds));
+		streams.add(new SourceStream(DtoTableNames.CATEGORY.getTableName(), this::getCategoryListingIds));
+	}
+
+	@PreDestroy
+	void destroy() {
+		scheduler.shutdownNow();
+		if (writer.getAndSet(false)) {
+			// release the lease so that another instance can take over without waiting
+			// for it to expire
+			getCollection(LEASE_COLLECTION)
+					.deleteOne(Filters.and(Filters.eq(DatabaseFieldNames.DOCID, LEASE_ID), Filters.eq(OWNER, instanceId)));
+		}
+	}
+
+	/**
+	 * Starts competing for the lease on the expanded listings once the application
+	 * has started. The instance that gains the lease builds the collection in the
+	 * background.
+	 *
+	 * @param event the startup event
+	 */
+	void onStart(@Observes StartupEvent event) {
+		if (!enabled) {
+			LOGGER.info("Expanded listings are disabled, listings will be joined on read");
+			return;
+		}
+		// expired leases are removed by the server, though they can be taken over
+		// before that
+		getCollection(LEASE_COLLECTION)
+				.createIndex(Indexes.ascending(EXPIRES), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS))
+				.whenComplete((v, e) -> {
+					if (e != null) {
+						LOGGER.warn("Could not create the expiry index for the expanded listings lease", e);
+					}
+				});
+		scheduler.scheduleWithFixedDelay(this::renewLease, 0, RENEW_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public boolean isAvailable() {
+		if (!enabled) {
+			return false;
+		}
+		return writer.get() ? isBuilt() : System.currentTimeMillis() < availableUntil;
+	}
+
+	@Override
+	public void rebuild() {
+		if (!enabled) {
+			return;
+		}
+		if (!writer.get()) {
+			LOGGER.info("Expanded listings are maintained by another instance, requesting a rebuild");
+			StreamHelper.awaitCompletionStage(getCollection(LEASE_COLLECTION).updateOne(
+					Filters.eq(DatabaseFieldNames.DOCID, LEASE_ID), Updates.set(REBUILD_REQUESTED, true)));
+			return;
+		}
+		StreamHelper.awaitCompletionStage(rebuildAsync());
+	}
+
+	@Override
+	public MaterializedViewStatus getStatus() {
+		MaterializedViewStatus status = new MaterializedViewStatus();
+		status.setCollection(COLLECTION);
+		status.setEnabled(enabled);
+		status.setAvailable(isAvailable());
+		status.setWriter(writer.get());
+		status.setWatching(isWatching());
+		status.setLastRebuild(lastRebuild);
+		status.setLastRebuildMillis(lastRebuildMillis);
+		status.setPendingUpdates(pending.get().size());
+		status.setAppliedUpdates(applied.get());
+		status.setLastError(lastError);
+		return status;
+	}
+
+	private boolean isBuilt() {
+		return built.get() && isWatching() && !rebuilding.get();
+	}
+
+	private boolean isWatching() {
+		return writer.get() && streams.stream().allMatch(s -> s.open.get());
+	}
+
+	/**
+	 * Takes or renews the lease on the expanded listings, publishing whether the
+	 * collection is available to the other instances. The lease can only be taken
+	 * when it is held by no other instance, or when it has expired.
+	 */
+	private void renewLease() {
+		long now = System.currentTimeMillis();
+		Bson filter = Filters.and(Filters.eq(DatabaseFieldNames.DOCID, LEASE_ID),
+				Filters.or(Filters.eq(OWNER, instanceId), Filters.lt(EXPIRES, new Date(now))));
+		Bson update = Updates.combine(Updates.set(OWNER, instanceId),
+				Updates.set(EXPIRES, new Date(now + TimeUnit.SECONDS.toMillis(LEASE_SECONDS))),
+				Updates.set(AVAILABLE, writer.get() && isBuilt()), Updates.unset(REBUILD_REQUESTED));
+		getCollection(LEASE_COLLECTION).findOneAndUpdate(filter, update,
+				new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE))
+				.whenComplete((previous, e) -> {
+					if (e == null) {
+						this.leaseRenewed = now;
+						if (writer.compareAndSet(false, true)) {
+							LOGGER.info("Took the lease on the expanded listings, rebuilding");
+							rebuildAsync();
+						} else if (previous != null && Boolean.TRUE.equals(previous.getBoolean(REBUILD_REQUESTED))) {
+							LOGGER.info("Rebuild of the expanded listings requested by another instance");
+							rebuildAsync();
+						}
+					} else if (isDuplicateKey(e)) {
+						// the lease is held by another instance
+						if (writer.compareAndSet(true, false)) {
+							LOGGER.warn("Lost the lease on the expanded listings to another instance");
+							built.set(false);
+						}
+						readLease();
+					} else {
+						LOGGER.error("Could not renew the lease on the expanded listings", e);
+						this.lastError = e.getMessage();
+						availableUntil = 0;
+						// stop writing once another instance may have taken the lease
+						if (System.currentTimeMillis() - leaseRenewed > TimeUnit.SECONDS.toMillis(LEASE_SECONDS)
+								&& writer.compareAndSet(true, false)) {
+							built.set(false);
+						}
+					}
+				});
+	}
+
+	/**
+	 * Reads whether the collection is available from the lease held by another
+	 * instance. The collection is treated as available until the lease expires.
+	 */
+	private void readLease() {
+		getCollection(LEASE_COLLECTION).find(Filters.eq(DatabaseFieldNames.DOCID, LEASE_ID)).findFirst().run()
+				.whenComplete((lease, e) -> {
+					if (e != null || !lease.isPresent() || !Boolean.TRUE.equals(lease.get().getBoolean(AVAILABLE))
+							|| lease.get().getDate(EXPIRES) == null) {
+						availableUntil = 0;
+					} else {
+						availableUntil = lease.get().getDate(EXPIRES).getTime();
+					}
+				});
+	}
+
+	/**
+	 * Rebuilds the collection without blocking, if this instance holds the lease.
+	 * Failed rebuilds are retried with increasing delays.
+	 *
+	 * @return a stage that completes once the rebuild has finished
+	 */
+	private CompletionStage<Void> rebuildAsync() {
+		if (!writer.get()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		if (!rebuilding.compareAndSet(false, true)) {
+			LOGGER.info("Expanded listings are already being rebuilt, skipping");
+			return CompletableFuture.completedFuture(null);
+		}
+		// start watching first so that changes made during the rebuild aren't lost
+		watch();
+		long start = System.currentTimeMillis();
+		List<Bson> pipeline = new ArrayList<>(getExpansionPipeline());
+		pipeline.add(Aggregates.out(COLLECTION));
+		// $out replaces the collection once the aggregation completes, only the first
+		// result is read to trigger the aggregation
+		return getCollection(DtoTableNames.LISTING.getTableName()).aggregate(pipeline).findFirst().run()
+				.thenCompose(v -> getCollection(COLLECTION).createIndexes(getIndexes())).handle((v, e) -> {
+					if (e == null) {
+						this.lastRebuildMillis = System.currentTimeMillis() - start;
+						this.lastRebuild = DateTimeHelper.toRFC3339(new Date());
+						rebuildFailures.set(0);
+						built.set(true);
+						LOGGER.info("Rebuilt expanded listings in {}ms", lastRebuildMillis);
+					} else {
+						built.set(false);
+						this.lastError = e.getMessage();
+						LOGGER.error("Could not rebuild the expanded listings, listings will be joined on read", e);
+					}
+					rebuilding.set(false);
+					if (e != null) {
+						scheduleRebuild(getRetryDelay(rebuildFailures.getAndIncrement()));
+					}
+					// apply any changes that were received while rebuilding
+					update();
+					return null;
+				});
+	}
+
+	/**
+	 * Schedules a rebuild after the given delay, unless one is already scheduled.
+	 *
+	 * @param delay the number of seconds to wait before rebuilding
+	 */
+	private void scheduleRebuild(long delay) {
+		if (rebuildScheduled.compareAndSet(false, true) && !scheduler.isShutdown()) {
+			LOGGER.info("Rebuilding expanded listings in {} seconds", delay);
+			scheduler.schedule(() -> {
+				rebuildScheduled.set(false);
+				rebuildAsync();
+			}, delay, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Opens the change streams on each of the source collections that aren't
+	 * already open.
+	 */
+	private void watch() {
+		streams.forEach(this::watch);
+	}
+
+	/**
+	 * Opens the change stream on a source collection if not already open,
+	 * resuming from the last change received. Each change is mapped to the IDs of
+	 * the listings it affects. The stream closes once this instance no longer
+	 * holds the lease.
+	 *
+	 * @param stream the stream to open
+	 */
+	private void watch(SourceStream stream) {
+		if (!writer.get() || !stream.open.compareAndSet(false, true)) {
+			return;
+		}
+		ChangeStreamOptions options = new ChangeStreamOptions();
+		if (stream.resumeToken != null) {
+			options.resumeAfter(stream.resumeToken);
+		}
+		long opened = System.currentTimeMillis();
+		getCollection(stream.collection).watch(options).takeWhile(change -> writer.get()).forEach(change -> {
+			stream.failures.set(0);
+			stream.resumeToken = change.getResumeToken();
+			resolve(stream, change);
+		}).run().whenComplete((v, e) -> {
+			stream.open.set(false);
+			if (!writer.get()) {
+				LOGGER.info("Stopped watching '{}' for changes, expanded listings are maintained by another instance",
+						stream.collection);
+				return;
+			}
+			// a stream that ran for longer than the retry delay doesn't extend the delay
+			if (System.currentTimeMillis() - opened > TimeUnit.SECONDS.toMillis(getRetryDelay(stream.failures.get()))) {
+				stream.failures.set(0);
+			}
+			long delay = getRetryDelay(stream.failures.getAndIncrement());
+			// change streams don't complete on their own, so any completion stops updates
+			LOGGER.warn("Stopped watching '{}' for changes, retrying in {} seconds", stream.collection, delay, e);
+			this.lastError = e == null ? "Change stream for '" + stream.collection + "' closed" : e.getMessage();
+			if (stream.resumeToken == null || isHistoryLost(e)) {
+				// changes made while the stream is closed can't be received, so the
+				// collection is rebuilt once the stream is reopened
+				stream.resumeToken = null;
+				built.set(false);
+				scheduleRebuild(delay);
+			} else if (!scheduler.isShutdown()) {
+				scheduler.schedule(() -> watch(stream), delay, TimeUnit.SECONDS);
+			}
+		});
+	}
+
+	/**
+	 * Resolves the listings affected by a change and adds them to the pending
+	 * updates. If they can't be resolved, the change is lost and the collection is
+	 * rebuilt.
+	 *
+	 * @param stream the stream that received the change
+	 * @param change the change to resolve
+	 */
+	private void resolve(SourceStream stream, ChangeStreamDocument<Document> change) {
+		stream.ids.apply(change).whenComplete((listingIds, e) -> {
+			if (e != null) {
+				LOGGER.error("Could not resolve listings for change to '{}', collection will be rebuilt",
+						stream.collection, e);
+				this.lastError = e.getMessage();
+				built.set(false);
+				scheduleRebuild(RETRY_SECONDS);
+			} else if (!listingIds.isEmpty()) {
+				addPending(listingIds);
+				update();
+			}
+		});
+	}
+
+	private static long getRetryDelay(int failures) {
+		return Math.min(MAX_RETRY_SECONDS, RETRY_SECONDS << Math.min(failures, 16));
+	}
+
+	/**
+	 * Applies pending changes to the expanded listings, one batch at a time. Calls
+	 * made while a batch is being written, waiting to be retried or while
+	 * rebuilding are picked up once the current operation finishes.
+	 */
+	private void update() {
+		if (!writer.get() || rebuilding.get() || pending.get().isEmpty() || !updating.compareAndSet(false, true)) {
+			return;
+		}
+		// swap in a new set so changes received while writing are kept for the next batch
+		Set<String> ids = new HashSet<>(pending.getAndSet(ConcurrentHashMap.newKeySet()));
+		refresh(ids).whenComplete((count, e) -> {
+			if (e == null) {
+				failures.set(0);
+				applied.addAndGet(count);
+				updating.set(false);
+				update();
+			} else if (failures.incrementAndGet() < MAX_UPDATE_ATTEMPTS) {
+				LOGGER.warn("Could not update expanded listings {}, retrying in {} seconds", ids, RETRY_SECONDS, e);
+				this.lastError = e.getMessage();
+				// keep the batch pending, and hold further updates until the retry
+				addPending(ids);
+				scheduler.schedule(() -> {
+					updating.set(false);
+					update();
+				}, RETRY_SECONDS, TimeUnit.SECONDS);
+			} else {
+				LOGGER.error("Could not update expanded listings {} after {} attempts, collection will be rebuilt", ids,
+						MAX_UPDATE_ATTEMPTS, e);
+				this.lastError = e.getMessage();
+				failures.set(0);
+				built.set(false);
+				updating.set(false);
+				// rebuild so that stale data isn't served indefinitely
+				rebuildAsync();
+			}
+		});
+	}
+
+	/**
+	 * Adds the IDs of changed listings to the pending set. If the set was swapped
+	 * out for a batch while adding, the IDs may have been missed by the batch, so
+	 * they are added to the new set as well.
+	 *
+	 * @param ids the IDs of the changed listings
+	 */
+	private void addPending(Set<String> ids) {
+		Set<String> current = pending.get();
+		current.addAll(ids);
+		while (pending.get() != current) {
+			current = pending.get();
+			current.addAll(ids);
+		}
+	}
+
+	/**
+	 * Regenerates the expanded documents for the given listings, removing any
+	 * listings that no longer exist.
+	 *
+	 * @param ids the IDs of the listings to regenerate
+	 * @return the number of listings that were regenerated or removed
+	 */
+	private CompletionStage<Integer> refresh(Set<String> ids) {
+		List<Bson> pipeline = new ArrayList<>();
+		pipeline.add(Aggregates.match(Filters.in(DatabaseFieldNames.DOCID, ids)));
+		pipeline.addAll(getExpansionPipeline());
+		return getCollection(DtoTableNames.LISTING.getTableName()).aggregate(pipeline).toList().run()
+				.thenCompose(docs -> {
+					List<WriteModel<Document>> writes = new ArrayList<>();
+					Set<String> removed = new HashSet<>(ids);
+					for (Document doc : docs) {
+						String id = doc.get(DatabaseFieldNames.DOCID).toString();
+						removed.remove(id);
+						writes.add(new ReplaceOneModel<>(Filters.eq(DatabaseFieldNames.DOCID, id), doc,
+								new ReplaceOptions().upsert(true)));
+					}
+					if (!removed.isEmpty()) {
+						writes.add(new DeleteManyModel<>(Filters.in(DatabaseFieldNames.DOCID, removed)));
+					}
+					return getCollection(COLLECTION).bulkWrite(writes, new BulkWriteOptions().ordered(false))
+							.thenApply(r -> ids.size());
+				});
+	}
+
+	private CompletionStage<Set<String>> getListingIds(ChangeStreamDocument<Document> change) {
+		Set<String> ids = new HashSet<>();
+		String id = getKey(change);
+		if (id != null) {
+			ids.add(id);
+		}
+		return CompletableFuture.completedFuture(ids);
+	}
+
+	private CompletionStage<Set<String>> getVersionListingIds(ChangeStreamDocument<Document> change) {
+		Set<String> ids = new HashSet<>();
+		// inserts and replacements have the listing ID available on the document
+		Document doc = change.getFullDocument();
+		if (doc != null && doc.get(DatabaseFieldNames.LISTING_ID) != null) {
+			ids.add(doc.get(DatabaseFieldNames.LISTING_ID).toString());
+		}
+		// include listings that currently embed the version for updates, deletions,
+		// and versions that moved between listings
+		return findExpanded(Filters.eq(DatabaseFieldNames.LISTING_VERSIONS + '.' + DatabaseFieldNames.DOCID,
+				getKey(change))).thenApply(found -> {
+					ids.addAll(found);
+					return ids;
+				});
+	}
+
+	private CompletionStage<Set<String>> getCategoryListingIds(ChangeStreamDocument<Document> change) {
+		return findExpanded(Filters.eq(DatabaseFieldNames.CATEGORY_IDS, getKey(change)));
+	}
+
+	private CompletionStage<Set<String>> findExpanded(Bson filter) {
+		return getCollection(COLLECTION).find(filter).map(d -> d.get(DatabaseFieldNames.DOCID).toString()).toList()
+				.run().thenApply(HashSet::new);
+	}
+
+	private static String getKey(ChangeStreamDocument<Document> change) {
+		if (change.getDocumentKey() == null) {
+			return null;
+		}
+		BsonValue key = change.getDocumentKey().get(DatabaseFieldNames.DOCID);
+		if (key == null) {
+			return null;
+		}
+		return key.isString() ? key.asString().getValue() : key.toString();
+	}
+
+	/**
+	 * Generates the stages that embed the data of each listing join, using the
+	 * joins declared by the listing filter without any request filters.
+	 *
+	 * @return the stages that expand a listing document
+	 */
+	private List<Bson> getExpansionPipeline() {
+		List<Bson> out = new ArrayList<>();
+		for (JoinStage join : listingFilter.getJoins()) {
+			out.addAll(join.getStages());
+		}
+		return out;
+	}
+
+	/**
+	 * Retrieves the indexes for the expanded collection, which includes the indexes
+	 * for listings as well as indexes on the embedded data. Sortable fields are
+	 * indexed along with the ID, which breaks ties when paging through the sorted
+	 * results.
+	 *
+	 * @return the indexes for the expanded collection
+	 */
+	@Override
+	public List<IndexModel> getIndexes() {
+		List<IndexModel> indexes = new ArrayList<>(listingFilter.getIndexes());
+		indexes.addAll(Arrays.asList(
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.TOTAL_INSTALLS, DatabaseFieldNames.DOCID)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.RECENT_INSTALLS, DatabaseFieldNames.DOCID)),
+				IndexHelper.create(Indexes.ascending(DatabaseFieldNames.LISTING_CATEGORIES + ".market_ids")),
+				IndexHelper.create(
+						Indexes.ascending(DatabaseFieldNames.LISTING_VERSIONS + '.' + DatabaseFieldNames.DOCID))));
+		return indexes;
+	}
+
+	private ReactiveMongoCollection<Document> getCollection(String name) {
+		return mongoClient.getDatabase(databaseName).getCollection(name);
+	}
+
+	private static boolean isHistoryLost(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof MongoServerException
+				&& HISTORY_LOST.contains(((MongoServerException) cause).getCode());
+	}
+
+	private static boolean isDuplicateKey(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof MongoServerException && ((MongoServerException) cause).getCode() == DUPLICATE_KEY;
+	}
+
+	/**
+	 * State of the change stream on one of the source collections.
+	 */
+	private static class SourceStream {
+		private final String collection;
+		private final Function<ChangeStreamDocument<Document>, CompletionStage<Set<String>>> ids;
+		private final AtomicBoolean open = new AtomicBoolean();
+		private final AtomicInteger failures = new AtomicInteger();
+		private volatile BsonDocument resumeToken;
+
+		private SourceStream(String collection,
+				Function<ChangeStreamDocument<Document>, CompletionStage<Set<String>>> ids) {
+			this.collection = collection;
+			this.ids = ids;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.dao.MongoDao;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.model.IndexReport;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
+import org.eclipsefoundation.marketplace.service.IndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.client.model.IndexModel;
+
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Default implementation of the index service. Indexes are declared by the
+ * {@link DtoFilter} for each type, and are created in the background on
+ * startup when {@link MicroprofilePropertyNames#MONGODB_INDEXES_CREATE} is
+ * enabled. Reports also cover the expanded listings, whose indexes are
+ * created by the {@link ExpandedListingService} when it is rebuilt.
+ * 
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultIndexService implements IndexService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultIndexService.class);
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_INDEXES_CREATE, defaultValue = "true")
+	boolean createOnStartup;
+
+	@Inject
+	@Any
+	Instance<DtoFilter<?>> filters;
+
+	@Inject
+	MongoDao dao;
+
+	@Inject
+	ExpandedListingService expandedListingService;
+
+	/**
+	 * Starts creating the declared indexes once the application has started,
+	 * without holding up the startup while they are built.
+	 * 
+	 * @param event the startup event
+	 */
+	void onStart(@Observes StartupEvent event) {
+		if (createOnStartup) {
+			createIndexes();
+		} else {
+			LOGGER.info("Index creation on startup is disabled, skipping");
+		}
+	}
+
+	@Override
+	public CompletionStage<Void> createIndexes() {
+		List<CompletableFuture<Void>> builds = new ArrayList<>();
+		for (Declaration declaration : getDeclarations().values()) {
+			long start = System.currentTimeMillis();
+			builds.add(run(() -> dao.createIndexes(declaration.type, new ArrayList<>(declaration.indexes.values())))
+					.handle((created, e) -> {
+						// continue on to other collections, a single failure shouldn't stop the others
+						if (e != null) {
+							LOGGER.error("Could not create indexes for collection '{}'", declaration.collection, e);
+						} else {
+							LOGGER.info("Ensured indexes {} for collection '{}' in {}ms", created,
+									declaration.collection, System.currentTimeMillis() - start);
+						}
+						return null;
+					}));
+		}
+		return CompletableFuture.allOf(builds.toArray(new CompletableFuture<?>[0]));
+	}
+
+	@Override
+	public CompletionStage<List<IndexReport>> getReports() {
+		// report on every collection, so that collections without declared indexes are
+		// listed along with the indexes they have
+		Map<String, Set<String>> declared = new TreeMap<>();
+		for (DtoTableNames table : DtoTableNames.values()) {
+			declared.put(table.getTableName(), Collections.emptySet());
+		}
+		getDeclarations().forEach((collection, declaration) -> declared.put(collection, declaration.indexes.keySet()));
+		declared.put(ExpandedListingService.COLLECTION, expandedListingService.getIndexes().stream()
+				.map(i -> i.getOptions().getName()).collect(Collectors.toSet()));
+
+		// read the indexes of each collection at the same time
+		List<CompletableFuture<IndexReport>> reports = new ArrayList<>();
+		declared.forEach((collection, names) -> reports.add(getReport(collection, names)));
+		return CompletableFuture.allOf(reports.toArray(new CompletableFuture<?>[0]))
+				.thenApply(v -> reports.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Compares the declared indexes of the collection to those that exist. If the
+	 * existing indexes can't be read, such as when the collection doesn't exist
+	 * yet, the collection is reported without existing indexes.
+	 * 
+	 * @param collection the name of the collection
+	 * @param declared   the names of the indexes declared for the collection
+	 * @return the future report for the collection
+	 */
+	private CompletableFuture<IndexReport> getReport(String collection, Set<String> declared) {
+		return run(() -> dao.getIndexes(collection)).handle((existing, e) -> {
+			if (e != null) {
+				LOGGER.warn("Could not read the indexes of collection '{}'", collection, e);
+				return new IndexReport(collection, declared, Collections.emptySet());
+			}
+			Set<String> existingNames = existing.stream().map(d -> d.getString("name")).collect(Collectors.toSet());
+			return new IndexReport(collection, declared, existingNames);
+		});
+	}
+
+	/**
+	 * Starts the operation, capturing errors thrown before it could start in the
+	 * returned future.
+	 * 
+	 * @param operation supplier that starts the operation
+	 * @return the future result of the operation
+	 */
+	private static <R> CompletableFuture<R> run(Supplier<CompletionStage<R>> operation) {
+		try {
+			return operation.get().toCompletableFuture();
+		} catch (RuntimeException e) {
+			CompletableFuture<R> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
+	/**
+	 * Collects the indexes declared by each of the DTO filters, grouped by the
+	 * collection they belong to. Some types share collections, so indexes are
+	 * merged by name.
+	 * 
+	 * @return map of collection names to their index declarations
+	 */
+	private Map<String, Declaration> getDeclarations() {
+		Map<String, Declaration> out = new TreeMap<>();
+		Set<Class<?>> seen = new HashSet<>();
+		for (DtoFilter<?> filter : filters) {
+			List<IndexModel> indexes = filter.getIndexes();
+			String collection = DtoTableNames.getTableName(filter.getType());
+			if (indexes.isEmpty() || collection == null || !seen.add(filter.getType())) {
+				continue;
+			}
+			Declaration declaration = out.computeIfAbsent(collection, c -> new Declaration(c, filter.getType()));
+			indexes.forEach(i -> declaration.indexes.putIfAbsent(i.getOptions().getName(), i));
+		}
+		return out;
+	}
+
+	/**
+	 * Container for the indexes declared for a single collection.
+	 */
+	private static class Declaration {
+		private final String collection;
+		private final Class<?> type;
+		private final Map<String, IndexModel> indexes = new LinkedHashMap<>();
+
+		private Declaration(String collection, Class<?> type) {
+			this.collection = collection;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.NegativeCacheStats;
+import org.eclipsefoundation.marketplace.namespace.DatabaseFieldNames;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import io.quarkus.mongodb.ChangeStreamOptions;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.ReactiveMongoClient;
+import io.quarkus.mongodb.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * <p>
+ * Default implementation of the negative cache. IDs that were looked up and not
+ * found are kept in a small cache with a short TTL, so that repeated lookups
+ * for them don't reach the database while IDs written by other instances are
+ * only reported as missing for a short time.
+ * </p>
+ *
+ * <p>
+ * In front of this cache, a Bloom filter of the known IDs is kept for each
+ * tracked table. The filter is built from the IDs in the table on startup and
+ * kept current through a change stream, so an ID that isn't in the filter
+ * doesn't exist on any instance. As the filter can't report an existing ID as
+ * missing but can do the reverse, IDs it reports as known are still looked up.
+ * The filter is only used while the change stream is open, as writes are
+ * missed otherwise, and is rebuilt each time the stream is reopened. The
+ * stream starts at the operation time of the server read before the IDs are
+ * scanned, so writes made between the scan and the stream opening are still
+ * received.
+ * </p>
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultNegativeCacheService implements NegativeCacheService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultNegativeCacheService.class);
+
+	// tables that are looked up by ID from the API
+	private static final Set<DtoTableNames> FILTERED_TABLES = EnumSet.of(DtoTableNames.LISTING,
+			DtoTableNames.ERRORREPORT);
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	private static final long RETRY_SECONDS = 10;
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_DB_NAME)
+	String databaseName;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_NEGATIVE_TTL_SECONDS, defaultValue = "60")
+	long ttlSeconds;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_NEGATIVE_SIZE_MAX, defaultValue = "100000")
+	long maxSize;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_NEGATIVE_FILTER_ENABLED, defaultValue = "true")
+	boolean filterEnabled;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_NEGATIVE_FILTER_EXPECTED_IDS, defaultValue = "1000000")
+	long expectedIds;
+
+	@Inject
+	ReactiveMongoClient mongoClient;
+
+	private Cache<String, Boolean> missing;
+	private final Map<DtoTableNames, BloomFilter<CharSequence>> filters = new ConcurrentHashMap<>();
+	// tables with an open change stream, and tables with a complete filter
+	private final Set<DtoTableNames> listening = ConcurrentHashMap.newKeySet();
+	private final Set<DtoTableNames> ready = ConcurrentHashMap.newKeySet();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder filterRejections = new LongAdder();
+	private ScheduledExecutorService scheduler;
+
+	@PostConstruct
+	public void init() {
+		this.missing = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+
+	/**
+	 * Builds the filters of known IDs once the application has started.
+	 *
+	 * @param event the startup event
+	 */
+	void onStart(@Observes StartupEvent event) {
+		if (!filterEnabled) {
+			LOGGER.info("Filters of known IDs are disabled, only IDs looked up and not found are cached");
+			return;
+		}
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+		FILTERED_TABLES.forEach(this::listen);
+	}
+
+	@PreDestroy
+	void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Override
+	public boolean isMissing(DtoTableNames table, String id) {
+		if (id == null) {
+			return false;
+		}
+		if (ready.contains(table) && !filters.get(table).mightContain(id)) {
+			filterRejections.increment();
+			return true;
+		}
+		if (missing.getIfPresent(getKey(table, id)) != null) {
+			hits.increment();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void recordMissing(DtoTableNames table, String id) {
+		if (id != null) {
+			missing.put(getKey(table, id), Boolean.TRUE);
+		}
+	}
+
+	@Override
+	public void recordExisting(DtoTableNames table, String id) {
+		if (id == null) {
+			return;
+		}
+		BloomFilter<CharSequence> filter = filters.get(table);
+		if (filter != null) {
+			filter.put(id);
+		}
+		missing.invalidate(getKey(table, id));
+	}
+
+	@Override
+	public long getMaxAge() {
+		return ttlSeconds;
+	}
+
+	@Override
+	public NegativeCacheStats getStats() {
+		return new NegativeCacheStats(missing.size(), maxSize, ttlSeconds, hits.sum(), filterRejections.sum(),
+				!ready.isEmpty());
+	}
+
+	/**
+	 * Opens the change stream for the table if not already open and rebuilds its
+	 * filter, reopening the stream after a delay if it stops. Filters are not used
+	 * when the server is not part of a replica set, as change streams are not
+	 * available.
+	 *
+	 * @param table the table to track the IDs of
+	 */
+	private void listen(DtoTableNames table) {
+		if (!listening.add(table)) {
+			return;
+		}
+		// writes made while the stream was closed were missed
+		ready.remove(table);
+		missing.asMap().keySet().removeIf(k -> k.startsWith(getKey(table, "")));
+		mongoClient.getDatabase(databaseName).runCommand(new Document("isMaster", 1)).whenComplete((info, e) -> {
+			if (e != null) {
+				retry(table, e);
+			} else if (info.getString("setName") == null) {
+				LOGGER.warn("MongoDB is not a replica set, IDs of '{}' are only cached once looked up",
+						table.getTableName());
+			} else {
+				watch(table, info.get("operationTime", BsonTimestamp.class));
+			}
+		});
+	}
+
+	/**
+	 * Opens the change stream for the table from the given time, then reads the
+	 * IDs in the table into a new filter. As the stream starts at a time read
+	 * before the scan, writes made while the stream is being opened are received
+	 * even if the scan starts first.
+	 *
+	 * @param table the table to track the IDs of
+	 * @param now   the operation time of the server before the scan
+	 */
+	private void watch(DtoTableNames table, BsonTimestamp now) {
+		BloomFilter<CharSequence> filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+				expectedIds, FALSE_POSITIVE_RATE);
+		filters.put(table, filter);
+
+		ChangeStreamOptions options = new ChangeStreamOptions();
+		if (now != null) {
+			options.startAtOperationTime(now);
+		}
+		getCollection(table).watch(options).forEach(change -> apply(table, change)).run()
+				.whenComplete((v, e) -> retry(table, e));
+		getCollection(table).find(new FindOptions().projection(Projections.include(DatabaseFieldNames.DOCID)))
+				.forEach(d -> filter.put(String.valueOf(d.get(DatabaseFieldNames.DOCID)))).run().whenComplete((v, e) -> {
+					if (e != null) {
+						LOGGER.error("Could not read the known IDs of '{}'", table.getTableName(), e);
+					} else if (listening.contains(table) && filters.get(table) == filter) {
+						LOGGER.info("Built filter of {} known IDs for '{}'", filter.approximateElementCount(),
+								table.getTableName());
+						ready.add(table);
+					}
+				});
+	}
+
+	private void retry(DtoTableNames table, Throwable e) {
+		// change streams don't complete on their own, so any completion stops updates
+		LOGGER.error("Stopped listening for writes to '{}', retrying in {} seconds", table.getTableName(),
+				RETRY_SECONDS, e);
+		listening.remove(table);
+		ready.remove(table);
+		if (!scheduler.isShutdown()) {
+			scheduler.schedule(() -> listen(table), RETRY_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+
+	private void apply(DtoTableNames table, ChangeStreamDocument<Document> change) {
+		OperationType type = change.getOperationType();
+		if ((type != OperationType.INSERT && type != OperationType.REPLACE && type != OperationType.UPDATE)
+				|| change.getDocumentKey() == null) {
+			return;
+		}
+		BsonValue id = change.getDocumentKey().get(DatabaseFieldNames.DOCID);
+		if (id != null) {
+			recordExisting(table, id.isString() ? id.asString().getValue()
+					: id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString());
+		}
+	}
+
+	private static String getKey(DtoTableNames table, String id) {
+		return table.getTableName() + ':' + id;
+	}
+
+	private ReactiveMongoCollection<Document> getCollection(DtoTableNames table) {
+		return mongoClient.getDatabase(databaseName).getCollection(table.getTableName());
+	}
+}
@@ -0,0 +1,311 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.helper.CacheValueHelper;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.OffHeapStats;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.eclipsefoundation.marketplace.model.SerializedValue;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.OffHeapCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * <p>
+ * Off-heap cache tier storing response bodies in direct buffer slabs. Bodies
+ * are appended to the current slab, and once the slabs are full the oldest slab
+ * is reused, dropping the entries stored in it. Only the index of key hashes to
+ * the location of each body is kept on the heap.
+ * </p>
+ *
+ * <p>
+ * Reads copy the body out of the slab without locking. Each slab has a
+ * generation that is increased before it is reused, so a read that overlaps
+ * with the slab being overwritten is treated as a miss.
+ * </p>
+ *
+ * <p>
+ * Pages of results are served from the stored body, with the total kept in the
+ * index as the body only contains the results. The results of the page are only
+ * read from the body if they are requested.
+ * </p>
+ *
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultOffHeapCacheService implements OffHeapCacheService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultOffHeapCacheService.class);
+	private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_OFFHEAP_SIZE_BYTES, defaultValue = "0")
+	long maxBytes;
+	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_OFFHEAP_SLAB_BYTES, defaultValue = "16777216")
+	int slabSize;
+
+	// serializer matching the one used to create response bodies
+	Jsonb jsonb;
+
+	final Map<HashCode, Slot> index = new ConcurrentHashMap<>();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder demotions = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	// slabs are allocated when first written to
+	private ByteBuffer[] slabs;
+	private AtomicIntegerArray generations;
+	private List<Set<HashCode>> slabKeys;
+	// position of the next write, guarded by this service
+	private int current;
+	private int position;
+
+	@PostConstruct
+	public void init() {
+		this.jsonb = new JsonBConfig().getContext(Object.class);
+		int count = maxBytes > 0 ? (int) Math.max(1, maxBytes / slabSize) : 0;
+		this.slabs = new ByteBuffer[count];
+		this.generations = new AtomicIntegerArray(count);
+		this.slabKeys = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			slabKeys.add(new HashSet<>());
+		}
+		if (count > 0) {
+			LOGGER.info("Using {} off-heap cache slabs of {} bytes", count, slabSize);
+		}
+	}
+
+	@Override
+	public void store(CacheEntry<?> entry) {
+		if (slabs.length == 0 || !entry.isFresh(System.currentTimeMillis())) {
+			return;
+		}
+		// only entries that have been served have a body to store
+		Optional<SerializedValue> body = entry.getSerialized();
+		String type = CacheValueHelper.getType(entry.getValue());
+		String itemType = CacheValueHelper.getItemType(entry.getValue());
+		if (!body.isPresent() || !CacheValueHelper.isAllowed(type, itemType)) {
+			return;
+		}
+		byte[] json = body.get().getJson();
+		if (json.length > slabSize) {
+			return;
+		}
+		HashCode hash = hash(entry.getKey());
+		synchronized (this) {
+			if (position + json.length > slabSize) {
+				current = (current + 1) % slabs.length;
+				position = 0;
+				reclaim(current);
+			}
+			if (slabs[current] == null) {
+				slabs[current] = ByteBuffer.allocateDirect(slabSize);
+			}
+			ByteBuffer target = slabs[current].duplicate();
+			target.position(position);
+			target.put(json);
+			Slot slot = new Slot(entry, type, itemType, current, position, json.length, generations.get(current));
+			position += json.length;
+			slabKeys.get(current).add(hash);
+			// indexed while holding the lock so the slot is dropped if the slab is reused
+			Slot previous = index.put(hash, slot);
+			bytes.add(json.length);
+			if (previous != null) {
+				bytes.add(-previous.length);
+			}
+		}
+		demotions.increment();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Optional<CacheEntry<T>> load(String key) {
+		if (slabs.length == 0) {
+			return Optional.empty();
+		}
+		HashCode hash = hash(key);
+		Slot slot = index.get(hash);
+		if (slot == null || !remove(hash, slot) || slot.expiresAt <= System.currentTimeMillis()) {
+			misses.increment();
+			return Optional.empty();
+		}
+		byte[] json = read(slot);
+		if (json == null) {
+			misses.increment();
+			return Optional.empty();
+		}
+		try {
+			String body = new String(json, StandardCharsets.UTF_8);
+			// pages are served from the stored body without reading the results
+			T value = (T) (CacheValueHelper.isPage(slot.type)
+					? CacheValueHelper.readPage(jsonb, slot.itemType, body, slot.total)
+					: CacheValueHelper.deserialize(jsonb, slot.type, slot.itemType, body));
+			if (value == null) {
+				misses.increment();
+				return Optional.empty();
+			}
+			CacheEntry<T> entry = new CacheEntry<>(slot.key, value, slot.loadedAt, slot.expiresAt - slot.loadedAt,
+					slot.loadNanos, slot.size, slot.tags);
+			// keep the stored body so it isn't serialized again
+			SerializedValue serialized = new SerializedValue(json);
+			entry.getSerialized(v -> serialized);
+			hits.increment();
+			return Optional.of(entry);
+		} catch (JsonbException | ClassNotFoundException e) {
+			LOGGER.warn("Could not read off-heap cache entry '{}'", key, e);
+			misses.increment();
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		HashCode hash = hash(key);
+		Slot slot = index.get(hash);
+		if (slot != null) {
+			remove(hash, slot);
+		}
+	}
+
+	@Override
+	public void removeByTag(String tag) {
+		removeIf(s -> s.tags.contains(tag));
+	}
+
+	@Override
+	public void removeByPrefix(String prefix) {
+		removeIf(s -> s.key.startsWith(prefix));
+	}
+
+	@Override
+	public void removeAll() {
+		removeIf(s -> true);
+	}
+
+	@Override
+	public OffHeapStats getStats() {
+		return new OffHeapStats(index.size(), bytes.sum(), (long) slabs.length * slabSize, hits.sum(), misses.sum(),
+				demotions.sum(), evictions.sum());
+	}
+
+	/**
+	 * Copies the body of the slot out of its slab.
+	 *
+	 * @param slot the location of the body
+	 * @return the body, or null if the slab was reused while reading
+	 */
+	byte[] read(Slot slot) {
+		byte[] json = new byte[slot.length];
+		ByteBuffer source = slabs[slot.slab].duplicate();
+		source.position(slot.offset);
+		source.get(json);
+		return generations.get(slot.slab) == slot.generation ? json : null;
+	}
+
+	/**
+	 * Drops the entries stored in the slab before it is overwritten. Called while
+	 * holding the lock for writes.
+	 *
+	 * @param slab the index of the slab to reuse
+	 */
+	private void reclaim(int slab) {
+		generations.incrementAndGet(slab);
+		for (HashCode hash : slabKeys.get(slab)) {
+			Slot slot = index.get(hash);
+			if (slot != null && slot.slab == slab && remove(hash, slot)) {
+				evictions.increment();
+			}
+		}
+		slabKeys.get(slab).clear();
+	}
+
+	private boolean remove(HashCode hash, Slot slot) {
+		if (index.remove(hash, slot)) {
+			bytes.add(-slot.length);
+			return true;
+		}
+		return false;
+	}
+
+	private void removeIf(Predicate<Slot> predicate) {
+		Iterator<Map.Entry<HashCode, Slot>> it = index.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<HashCode, Slot> e = it.next();
+			if (predicate.test(e.getValue())) {
+				remove(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	static HashCode hash(String key) {
+		return KEY_HASH.hashString(key, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Location of a stored body along with the metadata of its entry.
+	 */
+	static class Slot {
+		private final String key;
+		private final Set<String> tags;
+		private final String type;
+		private final String itemType;
+		private final long loadedAt;
+		private final long expiresAt;
+		private final long loadNanos;
+		private final long size;
+		private final long total;
+		private final int slab;
+		private final int offset;
+		private final int length;
+		private final int generation;
+
+		Slot(CacheEntry<?> entry, String type, String itemType, int slab, int offset, int length, int generation) {
+			this.key = entry.getKey();
+			this.tags = entry.getTags();
+			this.type = type;
+			this.itemType = itemType;
+			this.loadedAt = entry.getLoadedAt();
+			this.expiresAt = entry.getExpiresAt();
+			this.loadNanos = entry.getLoadTime() * 1_000_000L;
+			this.size = entry.getSize();
+			this.total = entry.getValue() instanceof PaginatedResult
+					? ((PaginatedResult<?>) entry.getValue()).getTotal()
+					: -1;
+			this.slab = slab;
+			this.offset = offset;
+			this.length = length;
+			this.generation = generation;
+		}
+	}
+}
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -18,7 +20,6 @@ import org.eclipsefoundation.marketplace.dao.MongoDao;
 import org.eclipsefoundation.marketplace.dto.Listing;
 import org.eclipsefoundation.marketplace.dto.Promotion;
 import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
-import org.eclipsefoundation.marketplace.helper.StreamHelper;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
@@ -63,10 +64,10 @@ public class DefaultPromotionService implements PromotionService {
 	private Random r = new Random();
 
 	@Override
-	public List<Listing> getListingsForPromotions(RequestWrapper wrapper, List<Promotion> promos) {
+	public CompletionStage<List<Listing>> getListingsForPromotions(RequestWrapper wrapper, List<Promotion> promos) {
 		if (promos == null || promos.isEmpty()) {
 			LOGGER.debug("No promotions were passed, returning empty list");
-			return Collections.emptyList();
+			return CompletableFuture.completedFuture(Collections.emptyList());
 		}
 		// create mapping to get a list of specific IDs, and to add context to the call
 		// for caching
@@ -77,27 +78,49 @@ public class DefaultPromotionService implements PromotionService {
 
 		MongoQuery<Listing> q = new MongoQuery<>(null, adds, listingFilter);
 		// retrieve the possible cached object
-		Optional<List<Listing>> cachedResults = listingCache.get("promo|listings", wrapper, adds,
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
-		if (!cachedResults.isPresent()) {
-			LOGGER.error("Error while retrieving cached promotion listings");
-			return Collections.emptyList();
-		}
+		return listingCache.getAsync("promo|listings", wrapper, adds, () -> dao.get(q)).thenApply(cachedResults -> {
+			if (!cachedResults.isPresent()) {
+				LOGGER.error("Error while retrieving cached promotion listings");
+				return Collections.emptyList();
+			}
+			return cachedResults.get();
+		});
+	}
 
-		// return the results as a response
-		return cachedResults.get();
+	@Override
+	public CompletionStage<List<Listing>> retrievePromotions(RequestWrapper wrapper, List<Listing> listings) {
+		return getPromotedListings(wrapper, listings).thenApply(promoted -> {
+			List<Listing> out = new ArrayList<>(promoted);
+			out.addAll(listings);
+			return out;
+		});
 	}
 
 	@Override
-	public List<Listing> retrievePromotions(RequestWrapper wrapper, List<Listing> listings) {
+	public CompletionStage<List<Listing>> getPromotedListings(RequestWrapper wrapper, List<Listing> listings) {
 		// create an empty promo query to get all promos
 		MongoQuery<Promotion> q = new MongoQuery<>(null, Collections.emptyMap(), promotionFilter);
-		// retrieve the possible cached object
-		Optional<List<Promotion>> cachedResults = promoCache.get("all|promo", wrapper, Collections.emptyMap(),
-				() -> StreamHelper.awaitCompletionStage(dao.get(q)));
+		// retrieve the possible cached object, then the listings for the chosen promotions
+		return promoCache.getAsync("all|promo", wrapper, Collections.emptyMap(), () -> dao.get(q))
+				.thenCompose(cachedResults -> selectPromotions(wrapper, listings, cachedResults));
+	}
+
+	/**
+	 * Chooses the promotions to inject from the available promotions, and
+	 * retrieves the listings for them.
+	 * 
+	 * @param wrapper       wrapper for the current request
+	 * @param listings      listings that promotions will be shown with
+	 * @param cachedResults the available promotions, or empty if they could not be
+	 *                      retrieved
+	 * @return a stage that completes with the promoted listings in the order they
+	 *         should be shown
+	 */
+	private CompletionStage<List<Listing>> selectPromotions(RequestWrapper wrapper, List<Listing> listings,
+			Optional<List<Promotion>> cachedResults) {
 		if (!cachedResults.isPresent() || cachedResults.get().isEmpty()) {
 			LOGGER.debug("Could not find any promotions to inject, returning");
-			return listings;
+			return CompletableFuture.completedFuture(Collections.emptyList());
 		}
 		// make a copy of the array to not impact cached values
 		List<Promotion> promos = new ArrayList<>(cachedResults.get());
@@ -112,8 +135,8 @@ public class DefaultPromotionService implements PromotionService {
 			// create a local final field referencing the current promotion for stream ref
 			final Promotion p = curr;
 			LOGGER.debug("Checking promo {}", p.getListingId());
-			// check if current promo matches any of the listing IDs
-			if (promos.stream().noneMatch(l -> l.getId().equals(p.getListingId()))) {
+			// check if current promo has a listing that isn't already in the results
+			if (p.getListingId() != null && listings.stream().noneMatch(l -> p.getListingId().equals(l.getId()))) {
 				LOGGER.debug("Preparing promo with listing ID '{}' to be injected into result set",
 						curr.getListingId());
 
@@ -126,17 +149,19 @@ public class DefaultPromotionService implements PromotionService {
 		}
 
 		// if we couldn't find enough promos, reinsert records
-		List<Listing> out = new ArrayList<>(listings);
 		if (promoHolding.isEmpty()) {
 			LOGGER.debug("Could not find any promos to inject");
-		} else {
-			for (Listing listing : getListingsForPromotions(wrapper, promoHolding)) {
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+		return getListingsForPromotions(wrapper, promoHolding).thenApply(promoted -> {
+			List<Listing> out = new ArrayList<>(promoted.size());
+			for (Listing listing : promoted) {
 				LOGGER.debug("Injecting promo with listing ID '{}' ", listing.getId());
 				listing.setPromotion(true);
 				out.add(0, listing);
 			}
-		}
-		return out;
+			return out;
+		});
 	}
 
 	/**
@@ -0,0 +1,91 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.CoalescingStats;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.QueryCoalescingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default implementation of the query coalescing service. Operations are
+ * tracked by key only while in flight, so results are never served once the
+ * operation has completed.
+ * 
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultQueryCoalescingService implements QueryCoalescingService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultQueryCoalescingService.class);
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_COALESCE_ENABLED, defaultValue = "true")
+	boolean enabled;
+
+	private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder collapsed = new LongAdder();
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <R> CompletionStage<R> coalesce(String key, Supplier<CompletionStage<R>> operation) {
+		if (!enabled) {
+			executed.increment();
+			return operation.get();
+		}
+		CompletableFuture<R> created = new CompletableFuture<>();
+		CompletableFuture<?> existing = inFlight.putIfAbsent(key, created);
+		if (existing != null) {
+			collapsed.increment();
+			LOGGER.debug("Collapsing call into in-flight operation: {}", key);
+			// keys include the document type, so the result type matches
+			return copy((CompletableFuture<R>) existing);
+		}
+		executed.increment();
+		try {
+			operation.get().whenComplete((r, e) -> {
+				// stop sharing before completing so late callers start a fresh operation
+				inFlight.remove(key, created);
+				if (e != null) {
+					created.completeExceptionally(e);
+				} else {
+					created.complete(r);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlight.remove(key, created);
+			created.completeExceptionally(e);
+		}
+		return copy(created);
+	}
+
+	@Override
+	public CoalescingStats getStats() {
+		return new CoalescingStats(executed.sum(), collapsed.sum(), inFlight.size());
+	}
+
+	/**
+	 * Creates a dependent copy of the shared future so that callers can't complete
+	 * or cancel it for other callers.
+	 * 
+	 * @param future the shared future
+	 * @return a future completed with the result of the shared future
+	 */
+	private static <R> CompletionStage<R> copy(CompletableFuture<R> future) {
+		return future.thenApply(r -> r);
+	}
+}
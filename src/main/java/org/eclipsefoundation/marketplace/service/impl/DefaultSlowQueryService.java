@@ -0,0 +1,111 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.SlowQuery;
+import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
+import org.eclipsefoundation.marketplace.service.SlowQueryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default implementation of the slow query service, keeping a bounded set of
+ * the slowest recent queries in memory. Entries are ranked by their recent
+ * peak duration, which halves for every configured half-life without a slower
+ * execution, and are dropped once it falls below the slow query threshold.
+ * When the set is full, the entry with the lowest recent peak is dropped to
+ * make room for a slower query, and faster queries are not recorded.
+ * 
+ * @author Martin Lowe
+ */
+@ApplicationScoped
+public class DefaultSlowQueryService implements SlowQueryService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultSlowQueryService.class);
+
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_SLOW_QUERY_THRESHOLD, defaultValue = "500")
+	long thresholdMillis;
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_SLOW_QUERY_MAX_ENTRIES, defaultValue = "50")
+	int maxEntries;
+	@ConfigProperty(name = MicroprofilePropertyNames.MONGODB_SLOW_QUERY_HALF_LIFE, defaultValue = "600")
+	long halfLifeSeconds;
+
+	private final Map<String, SlowQuery> entries = new ConcurrentHashMap<>();
+
+	@Override
+	public void record(String operation, MongoQuery<?> q, long millis) {
+		if (millis < thresholdMillis) {
+			return;
+		}
+		String fingerprint = q.getFingerprint();
+		LOGGER.warn("Slow {} operation took {}ms: {}", operation, millis, fingerprint);
+		String key = operation + ':' + fingerprint;
+		long now = System.currentTimeMillis();
+		SlowQuery existing = entries.get(key);
+		if (existing != null) {
+			existing.record(millis, now, getHalfLifeMillis());
+			return;
+		}
+		// slow queries are rare, so new entries are added one at a time
+		synchronized (entries) {
+			removeExpired(now);
+			if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+				// make room before adding so that the new entry isn't the one dropped
+				Optional<Map.Entry<String, SlowQuery>> lowest = entries.entrySet().stream()
+						.min(Comparator.comparingDouble(e -> e.getValue().getPeakMillis(now, getHalfLifeMillis())));
+				if (!lowest.isPresent() || lowest.get().getValue().getPeakMillis(now, getHalfLifeMillis()) >= millis) {
+					return;
+				}
+				entries.remove(lowest.get().getKey());
+			}
+			entries.computeIfAbsent(key, k -> new SlowQuery(operation, fingerprint)).record(millis, now,
+					getHalfLifeMillis());
+		}
+	}
+
+	@Override
+	public List<SlowQuery> getSlowest() {
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			removeExpired(now);
+		}
+		return entries.values().stream()
+				.sorted(Comparator
+						.comparingDouble((SlowQuery e) -> e.getPeakMillis(now, getHalfLifeMillis())).reversed())
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Drops the entries whose recent peak has decayed below the slow query
+	 * threshold.
+	 * 
+	 * @param now the current time in milliseconds
+	 */
+	private void removeExpired(long now) {
+		entries.values().removeIf(e -> e.getPeakMillis(now, getHalfLifeMillis()) < thresholdMillis);
+	}
+
+	private long getHalfLifeMillis() {
+		return TimeUnit.SECONDS.toMillis(halfLifeSeconds);
+	}
+}
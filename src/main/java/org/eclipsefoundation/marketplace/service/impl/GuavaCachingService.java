@@ -6,35 +6,41 @@
  */
 package org.eclipsefoundation.marketplace.service.impl;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
 
-import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
-import org.eclipsefoundation.marketplace.namespace.MicroprofilePropertyNames;
-import org.eclipsefoundation.marketplace.service.CachingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.RemovalCause;
+import com.google.common.hash.HashCode;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * <p>
  * Simple caching service for caching objects in an in-memory cache, implemented
  * using the Google Guava cache mechanism. Cache size and time to live are
- * configured within the MicroProfile configuration.
+ * configured within the MicroProfile configuration. Used when the configured
+ * cache provider is guava.
  * </p>
  * 
  * <p>
@@ -42,32 +48,49 @@ import com.google.common.util.concurrent.UncheckedExecutionException;
  * on access.
  * </p>
  * 
+ * <p>
+ * Entries are kept for a configurable time after they expire. Stale entries are
+ * only served by asynchronous retrievals when loading a fresh value runs out of
+ * time.
+ * </p>
+ * 
  * @author Martin Lowe
  * @param <T> the type of object cached by this instance of the service
  *
  */
 @ApplicationScoped
-public class GuavaCachingService<T> implements CachingService<T> {
+@Typed(GuavaCachingService.class)
+public class GuavaCachingService<T> extends AbstractCachingService<HashCode, T> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GuavaCachingService.class);
 
-	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_SIZE_MAX, defaultValue = "10000")
-	long maxSize;
-	@ConfigProperty(name = MicroprofilePropertyNames.CACHE_TTL_MAX_SECONDS, defaultValue = "900")
-	long ttlWrite;
-
 	// actual cache object
-	Cache<String, T> cache = null;
-	Map<String, Long> ttl;
+	Cache<HashCode, CacheEntry<T>> cache = null;
+	// loads in progress for asynchronous retrievals, shared by concurrent requests
+	Map<HashCode, CompletableFuture<T>> loading;
 
 	@PostConstruct
 	public void init() {
-		this.ttl = new HashMap<>();
-		// create cache with configured settings that maintains a TTL map
-		cache = CacheBuilder
-					.newBuilder()
-					.maximumSize(maxSize)
-					.expireAfterWrite(ttlWrite, TimeUnit.SECONDS)
-					.removalListener(not -> ttl.remove(not.getKey()))
+		initState();
+		this.loading = new ConcurrentHashMap<>();
+		// create cache with configured settings
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+		// bound by the estimated size of entries when set, otherwise by the count
+		if (maxBytes > 0) {
+			builder.maximumWeight(maxBytes).<HashCode, CacheEntry<T>>weigher((key, entry) -> entry.getWeight());
+		} else {
+			builder.maximumSize(maxSize);
+		}
+		cache = builder
+					.expireAfterWrite(ttlWrite + staleMax, TimeUnit.SECONDS)
+					.<HashCode, CacheEntry<T>>removalListener(not -> {
+						// entries evicted to make space are kept in the off-heap tier
+						if (not.getCause() == RemovalCause.SIZE && offHeap != null) {
+							offHeap.store(not.getValue());
+						}
+						if (not.wasEvicted()) {
+							recordEviction(not.getValue(), not.getCause().name());
+						}
+					})
 					.build();
 
 	}
@@ -80,25 +103,41 @@ public class GuavaCachingService<T> implements CachingService<T> {
 		Objects.requireNonNull(callable);
 
 		String cacheKey = getCacheKey(id, wrapper, params);
+		HashCode hash = hash(cacheKey);
 		LOGGER.debug("Retrieving cache value for '{}'", cacheKey);
 		try {
 			// check if the cache is bypassed for the request
 			if (wrapper.isCacheBypass()) {
+				long start = System.nanoTime();
 				T result = callable.call();
 				// if the cache has a value for key, update it
-				if (cache.asMap().containsKey(cacheKey)) {
-					cache.put(cacheKey, result);
+				if (cache.asMap().containsKey(hash)) {
+					cache.put(hash, newEntry(cacheKey, result, start));
 				}
 				return Optional.of(result);
 			}
-			
-			// get entry, and enter a ttl as soon as it returns
-			T data = cache.get(cacheKey, callable);
-			if (data != null) {
-				ttl.putIfAbsent(cacheKey, System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(ttlWrite, TimeUnit.SECONDS));
+
+			CacheEntry<T> entry = cache.getIfPresent(hash);
+			if (entry != null && entry.isFresh(System.currentTimeMillis())) {
+				entry.recordHit();
+				stats.recordHit(cacheKey);
+				return Optional.of(entry.getValue());
+			}
+			stats.recordMiss(cacheKey);
+			// stale entries are only served as a fallback for asynchronous loads
+			if (entry != null) {
+				cache.asMap().remove(hash, entry);
 			}
-			return Optional.of(cache.get(cacheKey, callable));
+			return Optional.of(cache.get(hash, () -> {
+				Optional<CacheEntry<T>> demoted = promote(cacheKey);
+				if (demoted.isPresent()) {
+					return demoted.get();
+				}
+				long start = System.nanoTime();
+				return newEntry(cacheKey, callable.call(), start);
+			}).getValue());
 		} catch (InvalidCacheLoadException | UncheckedExecutionException e) {
+			stats.recordLoadFailure();
 			LOGGER.error("Error while retrieving fresh value for cachekey: {}", cacheKey, e);
 		} catch (Exception e) {
 			LOGGER.error("Error while retrieving value of callback", e);
@@ -107,28 +146,91 @@ public class GuavaCachingService<T> implements CachingService<T> {
 	}
 
 	@Override
-	public Optional<Long> getExpiration(String id, RequestWrapper params) {
-		return Optional.ofNullable(ttl.get(getCacheKey(Objects.requireNonNull(id), Objects.requireNonNull(params), null)));
-	}
-	
-	@Override
-	public Set<String> getCacheKeys() {
-		return cache.asMap().keySet();
+	public CompletionStage<Optional<T>> getAsync(String id, RequestWrapper wrapper, Map<String, List<String>> params,
+			Supplier<CompletionStage<? extends T>> loader) {
+		Objects.requireNonNull(id);
+		Objects.requireNonNull(wrapper);
+		Objects.requireNonNull(loader);
+
+		String cacheKey = getCacheKey(id, wrapper, params);
+		HashCode hash = hash(cacheKey);
+		LOGGER.debug("Retrieving cache value asynchronously for '{}'", cacheKey);
+		// check if the cache is bypassed for the request
+		if (wrapper.isCacheBypass()) {
+			long start = System.nanoTime();
+			return call(loader).handle((result, e) -> {
+				if (e != null) {
+					return getFallback(cacheKey, cache.getIfPresent(hash), e);
+				}
+				// if the cache has a value for key, update it
+				if (cache.asMap().containsKey(hash)) {
+					cache.put(hash, newEntry(cacheKey, result, start));
+				}
+				return Optional.of(result);
+			});
+		}
+
+		CacheEntry<T> cached = cache.getIfPresent(hash);
+		if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+			cached.recordHit();
+			stats.recordHit(cacheKey);
+			return CompletableFuture.completedFuture(Optional.of(cached.getValue()));
+		}
+		stats.recordMiss(cacheKey);
+		// start a new load only if there isn't one in progress for the key
+		CompletableFuture<T> created = new CompletableFuture<>();
+		CompletableFuture<T> future = loading.putIfAbsent(hash, created);
+		if (future == null) {
+			future = created;
+			created.whenComplete((data, e) -> loading.remove(hash, created));
+			Optional<CacheEntry<T>> demoted = cached == null ? promote(cacheKey) : Optional.empty();
+			if (demoted.isPresent()) {
+				cache.put(hash, demoted.get());
+				created.complete(demoted.get().getValue());
+			} else {
+				long start = System.nanoTime();
+				load(loader, created, data -> cache.put(hash, newEntry(cacheKey, data, start)));
+			}
+		}
+		return future.handle((data, e) -> {
+			if (e != null) {
+				return getFallback(cacheKey, cached, e);
+			}
+			return Optional.of(data);
+		});
 	}
 
-	@Override
-	public void remove(String key) {
-		cache.invalidate(key);
+	/**
+	 * Calls the loader, completing the future with the result of the returned stage.
+	 * Null values can't be cached, and complete the future exceptionally.
+	 * 
+	 * @param loader the loader for the value
+	 * @param future the future to complete with the loaded value
+	 * @param onLoad callback for the loaded value, run before the future completes
+	 */
+	private void load(Supplier<CompletionStage<? extends T>> loader, CompletableFuture<T> future,
+			Consumer<T> onLoad) {
+		call(loader).whenComplete((data, e) -> {
+			if (e != null) {
+				future.completeExceptionally(e);
+				return;
+			}
+			try {
+				onLoad.accept(data);
+				future.complete(data);
+			} catch (RuntimeException ex) {
+				future.completeExceptionally(ex);
+			}
+		});
 	}
 
 	@Override
-	public void removeAll() {
-		cache.invalidateAll();
+	protected ConcurrentMap<HashCode, CacheEntry<T>> asMap() {
+		return cache.asMap();
 	}
 
 	@Override
-	public long getMaxAge() {
-		return ttlWrite;
+	protected HashCode toKey(String cacheKey) {
+		return hash(cacheKey);
 	}
-
 }
@@ -0,0 +1,115 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.dao.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.UriInfo;
+
+import org.bson.codecs.configuration.CodecProvider;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.model.CoalescingStats;
+import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
+import org.eclipsefoundation.marketplace.service.QueryCoalescingService;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.specimpl.ResteasyUriInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.mongodb.ReactiveMongoClient;
+import io.quarkus.test.junit.QuarkusTest;
+import io.undertow.servlet.spec.HttpServletRequestImpl;
+
+/**
+ * Tests for the sharing of identical reads by the default DAO.
+ *
+ * @author Martin Lowe
+ */
+@QuarkusTest
+public class DefaultMongoDaoTest {
+
+	@Inject
+	Instance<CodecProvider> providers;
+	@Inject
+	ReactiveMongoClient mongoClient;
+	@Inject
+	DtoFilter<Listing> listingFilter;
+
+	private DefaultMongoDao dao;
+	private List<String> keys;
+
+	@BeforeEach
+	public void pre() {
+		ResteasyContext.pushContext(UriInfo.class, new ResteasyUriInfo("http://localhost/listings", ""));
+		ResteasyContext.pushContext(HttpServletRequest.class, new HttpServletRequestImpl(null, null));
+
+		// record the keys reads are shared by without running them
+		this.keys = new ArrayList<>();
+		this.dao = new DefaultMongoDao();
+		dao.databaseName = "test";
+		dao.providers = providers;
+		dao.mongoClient = mongoClient;
+		dao.coalescer = new QueryCoalescingService() {
+			@Override
+			public <R> CompletionStage<R> coalesce(String key, Supplier<CompletionStage<R>> operation) {
+				keys.add(key);
+				return new CompletableFuture<>();
+			}
+
+			@Override
+			public CoalescingStats getStats() {
+				return new CoalescingStats(keys.size(), 0, 0);
+			}
+		};
+	}
+
+	@Test
+	public void testDeadlineNotShared() {
+		dao.count(createQuery(null));
+		dao.count(createQuery(System.currentTimeMillis() + 50));
+		dao.count(createQuery(null));
+
+		Assertions.assertEquals(3, keys.size());
+		Assertions.assertNotEquals(keys.get(0), keys.get(1),
+				"Reads limited by a short deadline should not be shared with other callers");
+		Assertions.assertEquals(keys.get(0), keys.get(2), "Identical reads without a deadline should be shared");
+	}
+
+	@Test
+	public void testPageWithTotalShared() {
+		dao.defaultLimit = 10;
+		dao.defaultMax = 100;
+		dao.getWithTotal(createQuery(null));
+		dao.getWithTotal(createQuery(null));
+		dao.get(createQuery(null));
+
+		Assertions.assertEquals(3, keys.size());
+		Assertions.assertEquals(keys.get(0), keys.get(1), "Identical reads of a page and total should be shared");
+		Assertions.assertNotEquals(keys.get(0), keys.get(2),
+				"Reads of a page and total should not be shared with reads of the page only");
+	}
+
+	private MongoQuery<Listing> createQuery(Long deadline) {
+		return new MongoQuery<>(new RequestWrapperMock() {
+			@Override
+			public Optional<Long> getDeadline() {
+				return Optional.ofNullable(deadline);
+			}
+		}, listingFilter);
+	}
+}
@@ -11,14 +11,21 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.bson.Document;
 import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.reactive.streams.operators.ReactiveStreams;
 import org.eclipsefoundation.marketplace.dao.MongoDao;
+import org.eclipsefoundation.marketplace.model.BulkWriteSummary;
 import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.reactivestreams.Publisher;
 
 import com.mongodb.MongoException;
+import com.mongodb.client.model.IndexModel;
 import com.mongodb.client.result.DeleteResult;
 
 import io.quarkus.test.Mock;
@@ -57,11 +64,23 @@ public class MockMongoDao implements MongoDao {
 	}
 
 	@Override
-	public <T> CompletionStage<Void> add(MongoQuery<T> q, List<T> documents) {
+	public <T> CompletionStage<PaginatedResult<T>> getWithTotal(MongoQuery<T> q) {
+		// wrap the mock results with a random total
+		return get(q).thenCombine(count(q), PaginatedResult::new);
+	}
+
+	@Override
+	public <T> Publisher<T> stream(MongoQuery<T> q) {
+		// stream the mock results
+		return ReactiveStreams.fromCompletionStage(get(q)).flatMapIterable(l -> l).buildRs();
+	}
+
+	@Override
+	public <T> CompletionStage<BulkWriteSummary> add(MongoQuery<T> q, List<T> documents) {
 		try {
 			// return the object in a list after a short wait.
-			CompletableFuture<Void> cf = CompletableFuture.supplyAsync(() -> {
-				return null;
+			CompletableFuture<BulkWriteSummary> cf = CompletableFuture.supplyAsync(() -> {
+				return new BulkWriteSummary();
 			});
 			// if flag is set, complete exceptionally
 			if (completeExceptionally) {
@@ -107,6 +126,24 @@ public class MockMongoDao implements MongoDao {
 		}
 	}
 
+	@Override
+	public <T> CompletionStage<Document> explain(MongoQuery<T> q) {
+		return CompletableFuture.completedFuture(new Document("ok", 1));
+	}
+
+	@Override
+	public <T> CompletionStage<List<String>> createIndexes(Class<T> type, List<IndexModel> indexes) {
+		// return the names of the passed indexes
+		return CompletableFuture.completedFuture(
+				indexes.stream().map(i -> i.getOptions().getName()).collect(Collectors.toList()));
+	}
+
+	@Override
+	public CompletionStage<List<Document>> getIndexes(String collection) {
+		// only the default ID index exists
+		return CompletableFuture.completedFuture(Arrays.asList(new Document("name", "_id_")));
+	}
+
 	public void setCompleteExceptionally(boolean completeExceptionally) {
 		this.completeExceptionally = completeExceptionally;
 	}
@@ -0,0 +1,55 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.dto.codecs;
+
+import java.util.Arrays;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.codecs.DecoderContext;
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@linkplain ListingCodec}
+ * 
+ * @author Martin Lowe
+ */
+public class ListingCodecTest {
+
+	@Test
+	public void testDecodePartialListing() {
+		String json = decodeToJson("{\"_id\": \"abc-123\", \"title\": \"Sample\", \"logo\": \"logo.png\", "
+				+ "\"category_ids\": [\"a\"], \"projected_fields\": [\"_id\", \"title\", \"logo\", \"category_ids\"]}");
+		Assertions.assertTrue(json.contains("\"logo\":\"logo.png\""));
+		Assertions.assertTrue(json.contains("\"category_ids\":[\"a\"]"));
+		// fields left out of the partial read should be left out rather than defaulted
+		for (String field : Arrays.asList("favorite_count", "foundation_member", "installs_count", "authors",
+				"versions", "body")) {
+			Assertions.assertFalse(json.contains("\"" + field + "\""), field + " should be left out of " + json);
+		}
+	}
+
+	@Test
+	public void testDecodeFullListing() {
+		String json = decodeToJson("{\"_id\": \"abc-123\", \"title\": \"Sample\", \"category_ids\": [\"a\"]}");
+		// full reads keep the defaults of fields missing from the listing
+		for (String field : Arrays.asList("\"favorite_count\":0", "\"foundation_member\":false",
+				"\"installs_count\":0", "\"promotion\":false", "\"authors\":[]")) {
+			Assertions.assertTrue(json.contains(field), field + " should be included in " + json);
+		}
+		Assertions.assertFalse(json.contains("category_ids"), "Category IDs are only returned when requested");
+	}
+
+	private static String decodeToJson(String document) {
+		Listing listing = new ListingCodec().decode(new BsonDocumentReader(BsonDocument.parse(document)),
+				DecoderContext.builder().build());
+		return new JsonBConfig().getContext(Object.class).toJson(listing);
+	}
+}
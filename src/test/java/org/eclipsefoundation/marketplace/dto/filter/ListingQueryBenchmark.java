@@ -0,0 +1,105 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.dto.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.model.MaterializedViewStatus;
+import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.model.IndexModel;
+
+/**
+ * Measures the CPU time and allocations needed to build the query for a
+ * listings request, up to the point where the pipeline is rendered for the
+ * driver. Run with the GC profiler to see allocations per query, and compare
+ * against an earlier build to see the effect of changes to query building.
+ *
+ * @author Martin Lowe
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingQueryBenchmark {
+
+	private ListingFilter filter;
+	private Map<String, List<String>> params;
+
+	@Setup
+	public void setup() {
+		filter = new ListingFilter();
+		filter.listingVersionFilter = new ListingVersionFilter();
+		filter.expandedListings = new ExpandedListingService() {
+			@Override
+			public boolean isAvailable() {
+				return false;
+			}
+
+			@Override
+			public void rebuild() {
+				// not used in benchmarks
+			}
+
+			@Override
+			public List<IndexModel> getIndexes() {
+				return Collections.emptyList();
+			}
+
+			@Override
+			public MaterializedViewStatus getStatus() {
+				return new MaterializedViewStatus();
+			}
+		};
+
+		params = new HashMap<>();
+		params.put("sort", Collections.singletonList("installs_count desc"));
+		params.put("tags", Arrays.asList("java", "tools"));
+		params.put("market_ids", Collections.singletonList("1"));
+		params.put("page", Collections.singletonList("2"));
+	}
+
+	@Benchmark
+	public void buildQuery(Blackhole bh) {
+		MongoQuery<Listing> q = new MongoQuery<>(null, params, filter);
+		for (Bson stage : q.getPipeline(25)) {
+			bh.consume(stage.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ListingQueryBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -73,6 +73,7 @@ public class DateTimeHelperTest {
 		// create a calendar instance to represent the given date
 		Calendar c = Calendar.getInstance(tz);
 		c.set(1996, 11, 19, 16, 39, 57);
+		c.set(Calendar.MILLISECOND, 0);
 
 		// expect UTC time in return
 		String expected = "1996-12-20T00:39:57Z";
@@ -81,6 +82,14 @@ public class DateTimeHelperTest {
 		Assertions.assertEquals(expected, actual);
 	}
 
+	@Test
+	public void validRFC3339DateMillis() {
+		// milliseconds are kept so that stored dates can be compared exactly
+		Date d = DateTimeHelper.toRFC3339("1996-12-20T00:39:57.123Z");
+		Assertions.assertEquals(123, d.getTime() % 1000);
+		Assertions.assertEquals("1996-12-20T00:39:57.123Z", DateTimeHelper.toRFC3339(d));
+	}
+
 	@Test
 	public void invalidRFC3339DateStringIn() {
 		// test various permutations of the date string to ensure format enforcement
@@ -0,0 +1,81 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.eclipsefoundation.marketplace.dto.ErrorReport;
+import org.eclipsefoundation.marketplace.dto.filter.ErrorReportFilter;
+import org.eclipsefoundation.marketplace.namespace.UrlParameterNames;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoClient;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Test class for {@linkplain MongoQuery}
+ * 
+ * @author Martin Lowe
+ */
+@QuarkusTest
+public class MongoQueryTest {
+
+	@Test
+	public void testFingerprintIgnoresValues() {
+		MongoQuery<ErrorReport> first = getQuery(UrlParameterNames.LISTING_ID.getParameterName(), "abc-123");
+		MongoQuery<ErrorReport> second = getQuery(UrlParameterNames.LISTING_ID.getParameterName(), "def-456");
+
+		Assertions.assertEquals(first.getFingerprint(), second.getFingerprint());
+		Assertions.assertFalse(first.getFingerprint().contains("abc-123"));
+	}
+
+	@Test
+	public void testFingerprintDiffersByShape() {
+		MongoQuery<ErrorReport> first = getQuery(UrlParameterNames.LISTING_ID.getParameterName(), "abc-123");
+		MongoQuery<ErrorReport> second = getQuery(UrlParameterNames.READ.getParameterName(), "true");
+
+		Assertions.assertNotEquals(first.getFingerprint(), second.getFingerprint());
+	}
+
+	@Test
+	public void testFingerprintIgnoresListSize() {
+		MongoQuery<ErrorReport> first = getQuery(UrlParameterNames.IDS.getParameterName(), "a");
+		MongoQuery<ErrorReport> second = getQuery(UrlParameterNames.IDS.getParameterName(), "a", "b", "c");
+
+		Assertions.assertEquals(first.getFingerprint(), second.getFingerprint());
+	}
+
+	@Test
+	public void testCursorMatchedWithFilters() {
+		Map<String, List<String>> params = new HashMap<>();
+		params.put(UrlParameterNames.READ.getParameterName(), Arrays.asList("true"));
+		params.put(UrlParameterNames.CURSOR.getParameterName(),
+				Arrays.asList(new PageCursor(null, SortOrder.ASCENDING, null, "abc-123").encode()));
+		MongoQuery<ErrorReport> q = new MongoQuery<>(null, params, new ErrorReportFilter());
+
+		// the range of the cursor should be matched first so that it can use an index
+		BsonDocument first = q.getPipeline(10).get(0).toBsonDocument(BsonDocument.class,
+				MongoClient.getDefaultCodecRegistry());
+		Assertions.assertTrue(first.containsKey("$match"));
+		Assertions.assertTrue(first.toJson().contains("abc-123"), "Cursor range should be in the first stage");
+		Assertions.assertEquals(1,
+				q.getPipeline(10).stream().filter(stage -> stage.toBsonDocument(BsonDocument.class,
+						MongoClient.getDefaultCodecRegistry()).toJson().contains("abc-123")).count());
+	}
+
+	private MongoQuery<ErrorReport> getQuery(String key, String... values) {
+		Map<String, List<String>> params = new HashMap<>();
+		params.put(key, Arrays.asList(values));
+		return new MongoQuery<>(null, params, new ErrorReportFilter());
+	}
+}
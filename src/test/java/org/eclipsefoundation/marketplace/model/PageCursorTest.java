@@ -0,0 +1,59 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.model;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Test class for {@linkplain PageCursor}
+ * 
+ * @author Martin Lowe
+ */
+@QuarkusTest
+public class PageCursorTest {
+
+	@Test
+	public void testEncodeDecode() {
+		PageCursor cursor = new PageCursor("installs_count", SortOrder.DESCENDING, "42", "abc-123");
+		Optional<PageCursor> decoded = PageCursor.decode(cursor.encode());
+
+		Assertions.assertTrue(decoded.isPresent());
+		Assertions.assertEquals("installs_count", decoded.get().getField());
+		Assertions.assertEquals(SortOrder.DESCENDING, decoded.get().getOrder());
+		Assertions.assertEquals("42", decoded.get().getValue());
+		Assertions.assertEquals("abc-123", decoded.get().getLastId());
+	}
+
+	@Test
+	public void testEncodeDecodeNullValues() {
+		PageCursor cursor = new PageCursor(null, SortOrder.ASCENDING, null, "abc-123");
+		Optional<PageCursor> decoded = PageCursor.decode(cursor.encode());
+
+		Assertions.assertTrue(decoded.isPresent());
+		Assertions.assertNull(decoded.get().getField());
+		Assertions.assertNull(decoded.get().getValue());
+		Assertions.assertEquals("abc-123", decoded.get().getLastId());
+	}
+
+	@Test
+	public void testEncodeIsUrlSafe() {
+		PageCursor cursor = new PageCursor("created", SortOrder.ASCENDING, "2019-12-18T10:00:00+00:00", "a/b+c");
+		Assertions.assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+	}
+
+	@Test
+	public void testDecodeMalformed() {
+		Assertions.assertFalse(PageCursor.decode("").isPresent());
+		Assertions.assertFalse(PageCursor.decode("not a cursor").isPresent());
+		Assertions.assertFalse(PageCursor.decode("e30").isPresent());
+	}
+}
@@ -7,10 +7,43 @@
 package org.eclipsefoundation.marketplace.resource;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.UriInfo;
+
+import org.eclipsefoundation.marketplace.dao.MongoDao;
+import org.eclipsefoundation.marketplace.dto.Category;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
+import org.eclipsefoundation.marketplace.namespace.MediaTypeNames;
+import org.eclipsefoundation.marketplace.namespace.ResponseHeaderNames;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
+import org.eclipsefoundation.marketplace.service.CachingService;
+import org.eclipsefoundation.marketplace.service.NegativeCacheService;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.specimpl.ResteasyUriInfo;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
+import io.restassured.specification.RequestSpecification;
+import io.undertow.servlet.spec.HttpServletRequestImpl;
 
 /**
  * Test the listing resource endpoint, using fake data points to test solely the
@@ -21,6 +54,21 @@ import io.quarkus.test.junit.QuarkusTest;
 @QuarkusTest
 public class ListingResourceTest {
 
+	@Inject
+	MongoDao dao;
+	@Inject
+	DtoFilter<Listing> dtoFilter;
+	@Inject
+	NegativeCacheService negativeCache;
+	@Inject
+	CachingService<List<Listing>> listingCache;
+	@Inject
+	CachingService<PaginatedResult<Listing>> pageCache;
+	@Inject
+	CachingService<List<Category>> categoryCache;
+	@Inject
+	CacheInvalidationService cacheInvalidation;
+
 	@Test
 	public void testListingIdEndpoint() {
 		given().when().get("/listings/abc-123").then().statusCode(200);
@@ -30,4 +78,135 @@ public class ListingResourceTest {
 	public void testListings() {
 		given().when().get("/listings").then().statusCode(200);
 	}
+
+	@Test
+	public void testListingsStream() {
+		// streamed results should use the same property names as other responses
+		given().accept(MediaTypeNames.APPLICATION_NDJSON).when().get("/listings").then().statusCode(200)
+				.contentType(MediaTypeNames.APPLICATION_NDJSON).body(containsString("\"favorite_count\""));
+	}
+
+	@Test
+	public void testListingsPage() {
+		// pages are returned as the array of results, with the total as a header
+		given().when().get("/listings").then().statusCode(200).body("size()", greaterThanOrEqualTo(1))
+				.header(ResponseHeaderNames.TOTAL_COUNT, notNullValue());
+	}
+
+	@Test
+	public void testListingsPagesShareTotal() {
+		// the total is cached for the filters, so later pages don't count again
+		String total = given().param("q", "shared-total").param("page", 1).when().get("/listings").then()
+				.statusCode(200).extract().header(ResponseHeaderNames.TOTAL_COUNT);
+		given().param("q", "shared-total").param("page", 2).when().get("/listings").then().statusCode(200)
+				.header(ResponseHeaderNames.TOTAL_COUNT, equalTo(total));
+	}
+
+	@Test
+	public void testListingNotModified() {
+		String etag = given().when().get("/listings/abc-123").then().statusCode(200).extract()
+				.header(HttpHeaders.ETAG);
+		given().header(HttpHeaders.IF_NONE_MATCH, etag).when().get("/listings/abc-123").then().statusCode(304)
+				.header(HttpHeaders.ETAG, equalTo(etag));
+		// weak comparison is used for If-None-Match
+		given().header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag).when().get("/listings/abc-123").then()
+				.statusCode(304);
+		given().header(HttpHeaders.IF_NONE_MATCH, "\"other\"").when().get("/listings/abc-123").then()
+				.statusCode(200);
+	}
+
+	@Test
+	public void testListingEncoding() {
+		encoding("gzip").when().get("/listings/abc-123").then().statusCode(200)
+				.header(HttpHeaders.CONTENT_ENCODING, equalTo("gzip"))
+				.header(HttpHeaders.VARY, equalTo(HttpHeaders.ACCEPT_ENCODING));
+		encoding("identity").when().get("/listings/abc-123").then()
+				.statusCode(200).header(HttpHeaders.CONTENT_ENCODING, nullValue());
+		encoding("gzip;q=0").when().get("/listings/abc-123").then()
+				.statusCode(200).header(HttpHeaders.CONTENT_ENCODING, nullValue());
+	}
+
+	@Test
+	public void testChangedListingRemovesPages() {
+		String page = CachingService.getCacheKey("/listings", "all", Collections.emptyMap());
+		String filteredPage = CachingService.getCacheKey("/listings", "all",
+				Collections.singletonMap("q", Collections.singletonList("tools")));
+		String categories = CachingService.getCacheKey("/categories", "all", Collections.emptyMap());
+		pageCache.put(page, new PaginatedResult<>(Collections.emptyList(), 1));
+		pageCache.put(filteredPage, new PaginatedResult<>(Collections.emptyList(), 1));
+		categoryCache.put(categories, Collections.emptyList());
+
+		// pages that don't contain the listing can still have changed totals
+		ListingResource resource = new ListingResource();
+		resource.cacheInvalidation = cacheInvalidation;
+		resource.removeCached("abc-123");
+		Assertions.assertFalse(pageCache.getCacheKeys().contains(page));
+		Assertions.assertFalse(pageCache.getCacheKeys().contains(filteredPage));
+		Assertions.assertTrue(categoryCache.getCacheKeys().contains(categories));
+	}
+
+	@Test
+	public void testUpdatedListingKeepsOtherListings() throws Exception {
+		ResteasyContext.pushContext(UriInfo.class, new ResteasyUriInfo("http://localhost/listings", ""));
+		ResteasyContext.pushContext(HttpServletRequest.class, new HttpServletRequestImpl(null, null));
+		String page = CachingService.getCacheKey("/listings", "all", Collections.emptyMap());
+		String updated = getListingKey("abc-123");
+		String other = getListingKey("def-456");
+		pageCache.put(page, new PaginatedResult<>(Collections.emptyList(), 1));
+		listingCache.put(updated, Collections.singletonList(createListing("abc-123")));
+		listingCache.put(other, Collections.singletonList(createListing("def-456")));
+
+		ListingResource resource = new ListingResource();
+		resource.dao = dao;
+		resource.dtoFilter = dtoFilter;
+		resource.cachingService = listingCache;
+		resource.pageCache = pageCache;
+		resource.cacheInvalidation = cacheInvalidation;
+		resource.negativeCache = negativeCache;
+		resource.params = new RequestWrapperMock() {
+			@Override
+			public Optional<Long> getDeadline() {
+				return Optional.empty();
+			}
+		};
+		resource.putListing(createListing("abc-123")).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+		// only the pages and the updated listing are replaced
+		Assertions.assertFalse(pageCache.getCacheKeys().contains(page));
+		Assertions.assertTrue(listingCache.getCacheKeys().contains(other),
+				"Other cached listings should not be removed when a listing is updated");
+		Assertions.assertNotEquals(Collections.singletonList(createListing("abc-123")),
+				listingCache.getEntries().get(updated).getValue());
+	}
+
+	private static String getListingKey(String listingId) {
+		return CachingService.getCacheKey("/listings/" + listingId, listingId,
+				Collections.singletonMap("id", Collections.singletonList(listingId)));
+	}
+
+	private static Listing createListing(String listingId) {
+		Listing listing = new Listing();
+		listing.setId(listingId);
+		return listing;
+	}
+
+	@Test
+	public void testListingsStreamEncoding() {
+		encoding("gzip").accept(MediaTypeNames.APPLICATION_NDJSON).when()
+				.get("/listings").then().statusCode(200).header(HttpHeaders.CONTENT_ENCODING, equalTo("gzip"));
+		encoding("identity").accept(MediaTypeNames.APPLICATION_NDJSON).when()
+				.get("/listings").then().statusCode(200).header(HttpHeaders.CONTENT_ENCODING, nullValue());
+	}
+
+	/**
+	 * Creates a request with only the given Accept-Encoding, as the client
+	 * otherwise adds the encodings it can decode.
+	 * 
+	 * @param acceptEncoding the Accept-Encoding header value
+	 * @return the request specification
+	 */
+	private static RequestSpecification encoding(String acceptEncoding) {
+		return given().config(RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+				.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+	}
 }
@@ -0,0 +1,147 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
+import org.eclipsefoundation.marketplace.service.CachingService;
+
+/**
+ * Replays a trace of cache keys against the Guava and Caffeine caching
+ * services, reporting the hit ratio and latency percentiles of each. Loads are
+ * simulated with a fixed delay, and requests that wait on a load count as
+ * misses. The TTL is kept short so that entries expire during the replay.
+ * <p>
+ * Pass the path to a file with one cache key per line to replay a captured
+ * trace, otherwise a Zipf distributed trace is generated.
+ * </p>
+ *
+ * @author Martin Lowe
+ */
+public class CacheReplayBenchmark {
+	private static final int REQUESTS = 100_000;
+	private static final int KEYS = 5_000;
+	private static final double ZIPF_EXPONENT = 0.99;
+	private static final int THREADS = 16;
+	private static final long LOAD_MILLIS = 20;
+	private static final long CACHE_SIZE = 1_000;
+	private static final long TTL_SECONDS = 4;
+	private static final long REFRESH_SECONDS = 2;
+
+	private static final ExecutorService LOADERS = Executors.newFixedThreadPool(64);
+
+	public static void main(String[] args) throws Exception {
+		List<String> trace = args.length > 0 ? Files.readAllLines(Paths.get(args[0])) : generateTrace();
+
+		GuavaCachingService<List<String>> guava = new GuavaCachingService<>();
+		guava.maxSize = CACHE_SIZE;
+		guava.ttlWrite = TTL_SECONDS;
+		guava.jsonb = new JsonBConfig().getContext(Object.class);
+		guava.init();
+
+		CaffeineCachingService<List<String>> caffeine = new CaffeineCachingService<>();
+		caffeine.maxSize = CACHE_SIZE;
+		caffeine.ttlWrite = TTL_SECONDS;
+		caffeine.refreshWrite = REFRESH_SECONDS;
+		caffeine.jsonb = guava.jsonb;
+		caffeine.init();
+
+		replay("guava", guava, trace);
+		replay("caffeine", caffeine, trace);
+		LOADERS.shutdown();
+	}
+
+	private static void replay(String name, CachingService<List<String>> cache, List<String> trace)
+			throws InterruptedException {
+		RequestWrapper wrapper = new RequestWrapperMock() {
+			@Override
+			public String getEndpoint() {
+				return "/replay";
+			}
+
+			@Override
+			public boolean isCacheBypass() {
+				return false;
+			}
+		};
+		long[] latencies = new long[trace.size()];
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			clients.execute(() -> {
+				int idx;
+				while ((idx = next.getAndIncrement()) < trace.size()) {
+					String key = trace.get(idx);
+					long start = System.nanoTime();
+					cache.getAsync("replay", wrapper, Collections.singletonMap("key", Collections.singletonList(key)),
+							() -> load(key)).toCompletableFuture().join();
+					latencies[idx] = System.nanoTime() - start;
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.HOURS);
+
+		long[] sorted = latencies.clone();
+		Arrays.sort(sorted);
+		long loadNanos = TimeUnit.MILLISECONDS.toNanos(LOAD_MILLIS);
+		long hits = Arrays.stream(latencies).filter(l -> l < loadNanos / 2).count();
+		System.out.printf("%-9s hit ratio %.4f, p50 %.3fms, p99 %.3fms, p99.9 %.3fms, max %.3fms%n", name,
+				(double) hits / latencies.length, toMillis(percentile(sorted, 0.5)), toMillis(percentile(sorted, 0.99)),
+				toMillis(percentile(sorted, 0.999)), toMillis(sorted[sorted.length - 1]));
+	}
+
+	private static CompletableFuture<List<String>> load(String key) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				Thread.sleep(LOAD_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Collections.singletonList(key);
+		}, LOADERS);
+	}
+
+	private static List<String> generateTrace() {
+		// cumulative probabilities for a Zipf distribution over the keys
+		double[] cumulative = new double[KEYS];
+		double sum = 0;
+		for (int i = 0; i < KEYS; i++) {
+			sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+			cumulative[i] = sum;
+		}
+		Random r = new Random(42);
+		List<String> out = new ArrayList<>(REQUESTS);
+		for (int i = 0; i < REQUESTS; i++) {
+			int idx = Arrays.binarySearch(cumulative, r.nextDouble() * sum);
+			out.add("key-" + (idx < 0 ? -idx - 1 : idx));
+		}
+		return out;
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipsefoundation.marketplace.model.CacheStatistics;
+import org.eclipsefoundation.marketplace.model.CacheUsage;
+import org.eclipsefoundation.marketplace.model.HotKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Martin Lowe
+ *
+ */
+public class CacheStatsRecorderTest {
+
+	@Test
+	public void testHitAndMissRates() {
+		CacheStatsRecorder recorder = new CacheStatsRecorder(4);
+		recorder.recordHit("a");
+		recorder.recordHit("a");
+		recorder.recordHit("a");
+		recorder.recordMiss("b");
+
+		CacheStatistics stats = recorder.getStatistics(new CacheUsage(1, 1, -1, -1));
+		Assertions.assertEquals(3, stats.getHits());
+		Assertions.assertEquals(1, stats.getMisses());
+		Assertions.assertEquals(0.75, stats.getHitRate(), 0.0001);
+		Assertions.assertEquals(0.25, stats.getMissRate(), 0.0001);
+	}
+
+	@Test
+	public void testLoadPercentile() {
+		CacheStatsRecorder recorder = new CacheStatsRecorder(4);
+		for (int i = 0; i < 99; i++) {
+			recorder.recordLoad(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		recorder.recordLoad(TimeUnit.MILLISECONDS.toNanos(1000));
+
+		CacheStatistics stats = recorder.getStatistics(new CacheUsage(0, 0, -1, -1));
+		Assertions.assertEquals(100, stats.getLoads());
+		// percentiles are accurate to within 12.5%
+		Assertions.assertEquals(1, stats.getP99LoadMillis(), 0.125);
+		Assertions.assertEquals(10.99, stats.getAverageLoadMillis(), 0.0001);
+	}
+
+	@Test
+	public void testHotKeysReplaceLowestCount() {
+		CacheStatsRecorder recorder = new CacheStatsRecorder(2);
+		for (int i = 0; i < 5; i++) {
+			recorder.recordHit("hot");
+		}
+		recorder.recordMiss("cold");
+		recorder.recordMiss("new");
+
+		List<HotKey> keys = recorder.getHotKeys(2);
+		Assertions.assertEquals(2, keys.size());
+		Assertions.assertEquals("hot", keys.get(0).getKey());
+		Assertions.assertEquals(5, keys.get(0).getCount());
+		// the new key takes over the count of the key it replaced as its error
+		Assertions.assertEquals("new", keys.get(1).getKey());
+		Assertions.assertEquals(2, keys.get(1).getCount());
+		Assertions.assertEquals(1, keys.get(1).getError());
+	}
+
+	@Test
+	public void testHotKeysReplaceSuccessively() {
+		CacheStatsRecorder recorder = new CacheStatsRecorder(2);
+		for (int i = 0; i < 3; i++) {
+			recorder.recordHit("a");
+		}
+		recorder.recordMiss("b");
+		recorder.recordMiss("c");
+		recorder.recordMiss("d");
+
+		// each new key replaces the previous one, building up its count
+		List<HotKey> keys = recorder.getHotKeys(2);
+		Assertions.assertEquals(2, keys.size());
+		Assertions.assertTrue(keys.stream().anyMatch(k -> "a".equals(k.getKey()) && k.getCount() == 3));
+		Assertions.assertTrue(
+				keys.stream().anyMatch(k -> "d".equals(k.getKey()) && k.getCount() == 3 && k.getError() == 2));
+	}
+}
@@ -0,0 +1,115 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.UriInfo;
+
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.exception.QueryTimeoutException;
+import org.eclipsefoundation.marketplace.model.RequestWrapper;
+import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.specimpl.ResteasyUriInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.undertow.servlet.spec.HttpServletRequestImpl;
+
+/**
+ * Tests for the refresh and fallback behaviour of the Caffeine caching
+ * service.
+ *
+ * @author Martin Lowe
+ */
+@QuarkusTest
+public class CaffeineCachingServiceTest {
+	private static final String KEY = "k";
+	private static final long REFRESH_WAIT_MILLIS = 1100;
+
+	private CaffeineCachingService<String> ccs;
+	private RequestWrapper sample;
+
+	@BeforeEach
+	public void pre() {
+		// inject empty objects into the Request context before creating a mock object
+		ResteasyContext.pushContext(UriInfo.class, new ResteasyUriInfo("", ""));
+		ResteasyContext.pushContext(HttpServletRequest.class, new HttpServletRequestImpl(null, null));
+		this.sample = new RequestWrapperMock();
+
+		// entries are refreshed after a second, and are kept well past that
+		this.ccs = new CaffeineCachingService<>();
+		ccs.maxSize = 10;
+		ccs.ttlWrite = 60;
+		ccs.refreshWrite = 1;
+		ccs.jsonb = new JsonBConfig().getContext(Object.class);
+		ccs.init();
+	}
+
+	@Test
+	public void testServesStaleWhileRefreshing() throws InterruptedException {
+		Assertions.assertEquals("a", get(sample, () -> CompletableFuture.completedFuture("a")));
+		Thread.sleep(REFRESH_WAIT_MILLIS);
+
+		// the current value is served while the refresh is in progress
+		CompletableFuture<String> refresh = new CompletableFuture<>();
+		Assertions.assertEquals("a", get(sample, () -> refresh));
+		Assertions.assertEquals("a", get(sample, () -> CompletableFuture.completedFuture("c")),
+				"Only one refresh should be started for an entry");
+
+		refresh.complete("b");
+		Assertions.assertEquals("b", get(sample, () -> CompletableFuture.completedFuture("c")));
+	}
+
+	@Test
+	public void testRefreshFailureKeepsEntry() throws InterruptedException {
+		Assertions.assertEquals("a", get(sample, () -> CompletableFuture.completedFuture("a")));
+		Thread.sleep(REFRESH_WAIT_MILLIS);
+
+		CompletableFuture<String> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new IllegalStateException());
+		Assertions.assertEquals("a", get(sample, () -> failed));
+
+		// the entry is kept after the failed refresh, and can be refreshed again
+		Assertions.assertEquals("a", get(sample, () -> CompletableFuture.completedFuture("b")));
+		Assertions.assertEquals("b", get(sample, () -> CompletableFuture.completedFuture("c")));
+	}
+
+	@Test
+	public void testTimeoutFallsBackToCachedValue() {
+		RequestWrapper bypass = new RequestWrapperMock() {
+			@Override
+			public boolean isCacheBypass() {
+				return true;
+			}
+		};
+		CompletableFuture<String> timedOut = new CompletableFuture<>();
+		timedOut.completeExceptionally(new QueryTimeoutException("timed out", false, null));
+
+		// there is no value to fall back on before the key is loaded
+		Assertions.assertThrows(CompletionException.class, () -> get(bypass, () -> timedOut));
+
+		Assertions.assertEquals("a", get(sample, () -> CompletableFuture.completedFuture("a")));
+		Assertions.assertEquals("a", get(bypass, () -> timedOut),
+				"Cached value should be served when a fresh value can't be loaded in time");
+	}
+
+	private String get(RequestWrapper wrapper, Supplier<CompletionStage<? extends String>> loader) {
+		Optional<String> value = ccs.getAsync(KEY, wrapper, Collections.emptyMap(), loader).toCompletableFuture()
+				.join();
+		return value.orElse(null);
+	}
+}
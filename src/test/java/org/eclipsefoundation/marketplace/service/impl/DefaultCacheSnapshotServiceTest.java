@@ -0,0 +1,164 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.eclipsefoundation.marketplace.service.CacheInvalidationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Martin Lowe
+ *
+ */
+public class DefaultCacheSnapshotServiceTest {
+	private static final String LIST_KEY = "[/listings]id:all";
+	private static final String COUNT_KEY = "[/installs]id:abc-123";
+
+	private Path file;
+
+	@BeforeEach
+	public void pre() throws Exception {
+		this.file = Files.createTempFile("cache", ".snapshot");
+	}
+
+	@AfterEach
+	public void post() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testSaveAndRestore() throws Exception {
+		BsonDocument position = new BsonDocument("resume_token",
+				new BsonDocument("_data", new BsonString("825DDE7F3A000000012B022C0100296E5A1004")));
+		DefaultCacheSnapshotService saved = createService(position);
+		saved.cachingService.put(LIST_KEY, Arrays.asList("a", "b"));
+		saved.cachingService.put(COUNT_KEY, 12L);
+		Assertions.assertEquals(2, saved.save());
+
+		// restore on startup into an empty cache
+		DefaultCacheSnapshotService restored = createService(null);
+		restored.enabled = true;
+		restored.onStart(null);
+		Optional<BsonDocument> restoredPosition = restored.whenRestored().toCompletableFuture().get(10,
+				TimeUnit.SECONDS);
+		Assertions.assertTrue(restored.isWarm());
+		Assertions.assertEquals(Optional.of(position), restoredPosition,
+				"The position of the removals stream should be restored with the entries");
+
+		Map<String, CacheEntry<Object>> entries = restored.cachingService.getEntries();
+		Assertions.assertEquals(2, entries.size());
+		Assertions.assertEquals(Arrays.asList("a", "b"), entries.get(LIST_KEY).getValue());
+		Assertions.assertEquals(12L, entries.get(COUNT_KEY).getValue());
+		Assertions.assertEquals(saved.cachingService.getEntries().get(COUNT_KEY).getExpiresAt(),
+				entries.get(COUNT_KEY).getExpiresAt(), "Entries should keep their original expiration");
+	}
+
+	@Test
+	public void testRestorePage() throws Exception {
+		DefaultCacheSnapshotService saved = createService(null);
+		saved.cachingService.put(LIST_KEY, new PaginatedResult<>(Arrays.asList("a", "b"), 12));
+		Assertions.assertEquals(1, saved.save());
+
+		DefaultCacheSnapshotService restored = createService(null);
+		Assertions.assertEquals(1, restored.restore());
+		PaginatedResult<?> page = (PaginatedResult<?>) restored.cachingService.getEntries().get(LIST_KEY).getValue();
+		Assertions.assertEquals(Arrays.asList("a", "b"), page.getResults());
+		Assertions.assertEquals(12, page.getTotal(), "The total should be restored along with the results");
+	}
+
+	@Test
+	public void testRestoreOperationTime() throws Exception {
+		BsonDocument position = new BsonDocument("operation_time", new BsonTimestamp(1575911226, 3));
+		DefaultCacheSnapshotService saved = createService(position);
+		saved.cachingService.put(COUNT_KEY, 1L);
+		saved.save();
+
+		DefaultCacheSnapshotService restored = createService(null);
+		Assertions.assertEquals(1, restored.restore());
+		restored.enabled = true;
+		restored.onStart(null);
+		Assertions.assertEquals(Optional.of(position),
+				restored.whenRestored().toCompletableFuture().get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRestoreDisabled() throws Exception {
+		DefaultCacheSnapshotService service = createService(null);
+		service.onStart(null);
+		Assertions.assertTrue(service.isWarm());
+		Assertions.assertEquals(Optional.empty(), service.whenRestored().toCompletableFuture().getNow(null));
+	}
+
+	private DefaultCacheSnapshotService createService(BsonDocument position) {
+		GuavaCachingService<Object> cache = new GuavaCachingService<>();
+		cache.maxSize = 100;
+		cache.ttlWrite = 900;
+		cache.hotKeys = 4;
+		cache.jsonb = new JsonBConfig().getContext(Object.class);
+		cache.init();
+
+		DefaultCacheSnapshotService service = new DefaultCacheSnapshotService();
+		service.path = file.toString();
+		service.cachingService = cache;
+		service.jsonb = cache.jsonb;
+		service.cacheInvalidation = new FixedPositionInvalidation(position);
+		return service;
+	}
+
+	/**
+	 * Invalidation service that only applies removals locally, reporting a fixed
+	 * position in the stream of removals.
+	 */
+	private static class FixedPositionInvalidation implements CacheInvalidationService {
+		private final BsonDocument position;
+
+		FixedPositionInvalidation(BsonDocument position) {
+			this.position = position;
+		}
+
+		@Override
+		public void remove(String key) {
+		}
+
+		@Override
+		public void removeByTag(String tag) {
+		}
+
+		@Override
+		public void removeByPrefix(String prefix) {
+		}
+
+		@Override
+		public void removeAll() {
+		}
+
+		@Override
+		public boolean isListening() {
+			return position != null;
+		}
+
+		@Override
+		public Optional<BsonDocument> getPosition() {
+			return Optional.ofNullable(position);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.eclipsefoundation.marketplace.model.IndexReport;
+import org.eclipsefoundation.marketplace.namespace.DtoTableNames;
+import org.eclipsefoundation.marketplace.service.ExpandedListingService;
+import org.eclipsefoundation.marketplace.service.IndexService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * @author Martin Lowe
+ *
+ */
+@QuarkusTest
+public class DefaultIndexServiceTest {
+
+	@Inject
+	IndexService indexService;
+
+	@Test
+	public void testReportsCoverAllCollections() {
+		Map<String, IndexReport> reports = indexService.getReports().toCompletableFuture().join().stream()
+				.collect(Collectors.toMap(IndexReport::getCollection, Function.identity()));
+		Set<String> collections = Arrays.stream(DtoTableNames.values()).map(DtoTableNames::getTableName)
+				.collect(Collectors.toSet());
+		collections.add(ExpandedListingService.COLLECTION);
+		Assertions.assertEquals(collections, reports.keySet());
+
+		// collections without declared indexes are reported with their existing indexes
+		IndexReport catalogs = reports.get(DtoTableNames.CATALOG.getTableName());
+		Assertions.assertTrue(catalogs.getDeclared().isEmpty());
+		Assertions.assertTrue(catalogs.getExisting().contains("_id_"));
+		Assertions.assertFalse(reports.get(DtoTableNames.LISTING.getTableName()).getMissing().isEmpty());
+		Assertions.assertFalse(reports.get(ExpandedListingService.COLLECTION).getDeclared().isEmpty());
+	}
+}
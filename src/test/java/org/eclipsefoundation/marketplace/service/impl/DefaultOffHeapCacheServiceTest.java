@@ -0,0 +1,112 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipsefoundation.marketplace.model.CacheEntry;
+import org.eclipsefoundation.marketplace.model.PaginatedResult;
+import org.eclipsefoundation.marketplace.model.SerializedValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Martin Lowe
+ *
+ */
+public class DefaultOffHeapCacheServiceTest {
+	private static final String FIRST_KEY = "[/listings]id:all|page=1";
+	private static final String SECOND_KEY = "[/listings]id:all|page=2";
+	private static final String THIRD_KEY = "[/listings]id:all|page=3";
+
+	private DefaultOffHeapCacheService service;
+
+	@BeforeEach
+	public void pre() {
+		// two slabs, each only holding a single page
+		this.service = new DefaultOffHeapCacheService();
+		service.maxBytes = 128;
+		service.slabSize = 64;
+		service.init();
+	}
+
+	@Test
+	public void testLoadPage() {
+		CacheEntry<PaginatedResult<String>> stored = createPage(FIRST_KEY, "first-page-of-listing-results-for-tests",
+				42);
+		service.store(stored);
+
+		Optional<CacheEntry<PaginatedResult<String>>> loaded = service.load(FIRST_KEY);
+		Assertions.assertTrue(loaded.isPresent());
+		Assertions.assertArrayEquals(stored.getSerialized().get().getJson(),
+				loaded.get().getSerialized().get().getJson(), "The stored body should be served");
+		Assertions.assertEquals(42, loaded.get().getValue().getTotal());
+		Assertions.assertEquals(Collections.singletonList("first-page-of-listing-results-for-tests"),
+				loaded.get().getValue().getResults());
+		Assertions.assertEquals(stored.getTags(), loaded.get().getTags());
+
+		// loading moves the entry back to the heap
+		Assertions.assertFalse(service.load(FIRST_KEY).isPresent());
+	}
+
+	@Test
+	public void testEvictionWhenFull() {
+		service.store(createPage(FIRST_KEY, "first-page-of-listing-results-for-tests", 3));
+		service.store(createPage(SECOND_KEY, "second-page-of-listing-results-for-tests", 3));
+		Assertions.assertEquals(2, service.getStats().getEntries());
+
+		// both slabs are in use, so the oldest is reused
+		service.store(createPage(THIRD_KEY, "third-page-of-listing-results-for-tests", 3));
+		Assertions.assertEquals(2, service.getStats().getEntries());
+		Assertions.assertEquals(1, service.getStats().getEvictions());
+		Assertions.assertFalse(service.load(FIRST_KEY).isPresent());
+		Assertions.assertTrue(service.load(SECOND_KEY).isPresent());
+	}
+
+	@Test
+	public void testSlabReuse() {
+		service.store(createPage(FIRST_KEY, "first-page-of-listing-results-for-tests", 3));
+		service.store(createPage(SECOND_KEY, "second-page-of-listing-results-for-tests", 3));
+		service.store(createPage(THIRD_KEY, "third-page-of-listing-results-for-tests", 3));
+
+		// the reused slab holds the new body in place of the evicted one
+		Optional<CacheEntry<PaginatedResult<String>>> loaded = service.load(THIRD_KEY);
+		Assertions.assertTrue(loaded.isPresent());
+		Assertions.assertEquals(Collections.singletonList("third-page-of-listing-results-for-tests"),
+				loaded.get().getValue().getResults());
+		Assertions.assertEquals(128, service.getStats().getMaxBytes());
+	}
+
+	@Test
+	public void testGenerationCheck() {
+		service.store(createPage(FIRST_KEY, "first-page-of-listing-results-for-tests", 3));
+		DefaultOffHeapCacheService.Slot slot = service.index.get(DefaultOffHeapCacheService.hash(FIRST_KEY));
+		Assertions.assertNotNull(service.read(slot));
+
+		// a read that started before the slab was reused should not return the new body
+		service.store(createPage(SECOND_KEY, "second-page-of-listing-results-for-tests", 3));
+		service.store(createPage(THIRD_KEY, "third-page-of-listing-results-for-tests", 3));
+		Assertions.assertNull(service.read(slot));
+	}
+
+	private CacheEntry<PaginatedResult<String>> createPage(String key, String result, long total) {
+		List<String> results = Collections.singletonList(result);
+		CacheEntry<PaginatedResult<String>> entry = new CacheEntry<>(key, new PaginatedResult<>(results, total),
+				System.currentTimeMillis(), TimeUnit.MINUTES.toMillis(5), 0, 0, Collections.singleton("listings"));
+		// pages are stored once they have been served
+		byte[] body = ("[\"" + result + "\"]").getBytes(StandardCharsets.UTF_8);
+		entry.getSerialized(v -> new SerializedValue(body));
+		Assertions.assertTrue(Arrays.equals(body, entry.getSerialized().get().getJson()));
+		return entry;
+	}
+}
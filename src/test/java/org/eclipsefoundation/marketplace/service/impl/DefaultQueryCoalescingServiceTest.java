@@ -0,0 +1,89 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipsefoundation.marketplace.model.CoalescingStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the default query coalescing service.
+ * 
+ * @author Martin Lowe
+ */
+public class DefaultQueryCoalescingServiceTest {
+
+	private DefaultQueryCoalescingService service;
+
+	@BeforeEach
+	public void pre() {
+		this.service = new DefaultQueryCoalescingService();
+		this.service.enabled = true;
+	}
+
+	@Test
+	public void testConcurrentCallsCollapse() {
+		AtomicInteger calls = new AtomicInteger();
+		CompletableFuture<String> source = new CompletableFuture<>();
+		CompletionStage<String> first = service.coalesce("key", () -> {
+			calls.incrementAndGet();
+			return source;
+		});
+		CompletionStage<String> second = service.coalesce("key", () -> {
+			calls.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+		source.complete("result");
+
+		Assertions.assertEquals(1, calls.get());
+		Assertions.assertEquals("result", first.toCompletableFuture().join());
+		Assertions.assertEquals("result", second.toCompletableFuture().join());
+
+		CoalescingStats stats = service.getStats();
+		Assertions.assertEquals(1, stats.getExecuted());
+		Assertions.assertEquals(1, stats.getCollapsed());
+		Assertions.assertEquals(0, stats.getInFlight());
+	}
+
+	@Test
+	public void testCompletedCallsNotShared() {
+		Assertions.assertEquals("first",
+				service.coalesce("key", () -> CompletableFuture.completedFuture("first")).toCompletableFuture().join());
+		Assertions.assertEquals("second",
+				service.coalesce("key", () -> CompletableFuture.completedFuture("second")).toCompletableFuture().join());
+		Assertions.assertEquals(0, service.getStats().getCollapsed());
+	}
+
+	@Test
+	public void testDifferentKeysNotCollapsed() {
+		CompletableFuture<String> source = new CompletableFuture<>();
+		service.coalesce("key", () -> source);
+		CompletionStage<String> other = service.coalesce("other", () -> CompletableFuture.completedFuture("other"));
+
+		Assertions.assertEquals("other", other.toCompletableFuture().join());
+		Assertions.assertEquals(1, service.getStats().getInFlight());
+		source.complete("result");
+		Assertions.assertEquals(0, service.getStats().getInFlight());
+	}
+
+	@Test
+	public void testFailureShared() {
+		CompletableFuture<String> source = new CompletableFuture<>();
+		CompletionStage<String> first = service.coalesce("key", () -> source);
+		CompletionStage<String> second = service.coalesce("key", () -> source);
+		source.completeExceptionally(new IllegalStateException("failed"));
+
+		Assertions.assertTrue(first.toCompletableFuture().isCompletedExceptionally());
+		Assertions.assertTrue(second.toCompletableFuture().isCompletedExceptionally());
+		Assertions.assertEquals(0, service.getStats().getInFlight());
+	}
+}
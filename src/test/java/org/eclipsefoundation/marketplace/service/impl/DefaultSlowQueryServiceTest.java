@@ -0,0 +1,92 @@
+/* Copyright (c) 2019 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html,
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipsefoundation.marketplace.service.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.UriInfo;
+
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.model.MongoQuery;
+import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
+import org.eclipsefoundation.marketplace.model.SlowQuery;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.specimpl.ResteasyUriInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.undertow.servlet.spec.HttpServletRequestImpl;
+
+/**
+ * Tests for the bounded set of slow queries.
+ *
+ * @author Martin Lowe
+ */
+@QuarkusTest
+public class DefaultSlowQueryServiceTest {
+
+	@Inject
+	DtoFilter<Listing> listingFilter;
+
+	private DefaultSlowQueryService service;
+	private MongoQuery<Listing> query;
+
+	@BeforeEach
+	public void pre() {
+		ResteasyContext.pushContext(UriInfo.class, new ResteasyUriInfo("http://localhost/listings", ""));
+		ResteasyContext.pushContext(HttpServletRequest.class, new HttpServletRequestImpl(null, null));
+		this.query = new MongoQuery<>(new RequestWrapperMock() {
+			@Override
+			public Optional<Long> getDeadline() {
+				return Optional.empty();
+			}
+		}, listingFilter);
+
+		this.service = new DefaultSlowQueryService();
+		service.thresholdMillis = 100;
+		service.maxEntries = 2;
+		service.halfLifeSeconds = 600;
+	}
+
+	@Test
+	public void testFullSetKeepsSlowest() {
+		service.record("a", query, 300);
+		service.record("b", query, 200);
+
+		// faster queries don't replace slower ones once full
+		service.record("c", query, 150);
+		Assertions.assertEquals(Arrays.asList("a", "b"), getOperations());
+
+		// slower queries replace the fastest entry
+		service.record("d", query, 400);
+		Assertions.assertEquals(Arrays.asList("d", "a"), getOperations());
+	}
+
+	@Test
+	public void testPeakDecays() {
+		SlowQuery slow = new SlowQuery("a", query.getFingerprint());
+		slow.record(400, 0, 1000);
+		Assertions.assertEquals(200, slow.getPeakMillis(1000, 1000), 0.001);
+
+		// a faster execution doesn't replace a slower peak that hasn't decayed as far
+		slow.record(100, 1000, 1000);
+		Assertions.assertEquals(200, slow.getPeakMillis(1000, 1000), 0.001);
+		Assertions.assertEquals(400, slow.getMaxMillis());
+	}
+
+	private List<String> getOperations() {
+		return service.getSlowest().stream().map(SlowQuery::getOperation).collect(Collectors.toList());
+	}
+}
@@ -13,6 +13,10 @@ import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.UriInfo;
 
+import org.eclipsefoundation.marketplace.config.JsonBConfig;
+import org.eclipsefoundation.marketplace.dto.Listing;
+import org.eclipsefoundation.marketplace.dto.filter.DtoFilter;
+import org.eclipsefoundation.marketplace.model.MongoQuery;
 import org.eclipsefoundation.marketplace.model.RequestWrapper;
 import org.eclipsefoundation.marketplace.model.RequestWrapperMock;
 import org.jboss.resteasy.core.ResteasyContext;
@@ -33,6 +37,8 @@ public class GuavaCachingServiceTest {
 
 	@Inject
 	GuavaCachingService<Object> gcs;
+	@Inject
+	DtoFilter<Listing> listingFilter;
 	RequestWrapper sample;
 
 	/**
@@ -65,6 +71,7 @@ public class GuavaCachingServiceTest {
 				"Object should not be generated when there is no cache initialized");
 
 		// initialize the cache w/ configs
+		gcsManual.jsonb = new JsonBConfig().getContext(Object.class);
 		gcsManual.init();
 
 		// run a command to interact with cache
@@ -108,4 +115,27 @@ public class GuavaCachingServiceTest {
 		});
 		Assertions.assertFalse(emptyObj.isPresent());
 	}
+
+	@Test
+	public void testCacheKeyFilterParameters() {
+		String epl = getListingsKey("license_type=EPL");
+		String gpl = getListingsKey("license_type=GPL");
+		Assertions.assertNotEquals(epl, gpl, "Parameters read by the filters should be part of the key");
+		Assertions.assertNotEquals(getListingsKey(""), epl, "Parameters read by the filters should be part of the key");
+		Assertions.assertEquals(epl, getListingsKey("license_type=EPL&utm_source=test"),
+				"Parameters not read by the filters should be left out of the key");
+	}
+
+	private String getListingsKey(String query) {
+		ResteasyContext.pushContext(UriInfo.class, new ResteasyUriInfo("http://localhost/listings?" + query, ""));
+		RequestWrapper wrapper = new RequestWrapperMock() {
+			@Override
+			public Optional<Long> getDeadline() {
+				return Optional.empty();
+			}
+		};
+		// creating the query records the parameters read by the filters
+		new MongoQuery<>(wrapper, listingFilter);
+		return gcs.getCacheKey("all", wrapper, null);
+	}
 }